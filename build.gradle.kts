@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("application")
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "com.intershop.mico"
@@ -23,4 +24,20 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
+}
+
+tasks.register<JavaExec>("generateWorkspace") {
+    group = "application"
+    description = "Generates a synthetic cartridge workspace for load tests, pass options with --args"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass = "com.intershop.mico.tools.WorkspaceGenerator"
+}
+
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    // The prompt benchmark renders the real phase instructions
+    jvmArgsAppend.add("-Dmico.phases=${project.file("phases")}")
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
 }
\ No newline at end of file
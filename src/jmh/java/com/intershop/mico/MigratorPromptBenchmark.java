@@ -0,0 +1,92 @@
+package com.intershop.mico;
+
+import com.intershop.mico.benchmark.BenchmarkCorpus;
+import com.intershop.mico.models.Cartridge;
+import com.intershop.mico.models.Phase;
+import com.intershop.mico.repo.CartridgeRepository;
+import com.intershop.mico.repo.PhaseRepository;
+import com.intershop.mico.util.MigrationLogger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendering the real phase instructions for a generated cartridge, including the pruning of the
+ * mapping tables and the dependency resolution. The cartridge index is built during setup, as it
+ * is before the phases of a session run.
+ * <p>
+ * The instructions are read from {@code phases} in the working directory, or from the directory
+ * given by the system property {@code mico.phases}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MigratorPromptBenchmark {
+
+    @Param({"gradle_build_migration", "dep_res", "code_fixing", "resource_processing"})
+    public String phaseId;
+
+    private Path workDir;
+    private Migrator migrator;
+    private Cartridge cartridge;
+    private Phase phase;
+    private String template;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path phases = Paths.get(System.getProperty("mico.phases", "phases"));
+        if (!Files.isDirectory(phases)) {
+            throw new IllegalStateException("Phase instructions not found in " + phases.toAbsolutePath()
+                + ", set -Dmico.phases=<dir>");
+        }
+        PhaseRepository phaseRepository = new PhaseRepository(phases.resolve("config.json"), phases.resolve("instructions"));
+        phase = phaseRepository.getPhases().stream()
+            .filter(p -> p.getId().equals(phaseId))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown phase: " + phaseId));
+        template = phaseRepository.getPhaseInstructions(phase);
+
+        workDir = Files.createTempDirectory("mico-benchmark");
+        Path root = BenchmarkCorpus.writeCartridge(workDir.resolve("cartridge"), 400);
+        Path sessionDir = Files.createDirectories(workDir.resolve("session"));
+        cartridge = new Cartridge(root.toString(), root.toString(), "to_do");
+        migrator = new Migrator(new CartridgeRepository(root.toString(), true), phaseRepository, () -> null,
+            new MigrationLogger(sessionDir));
+        migrator.preparePrompt(template, phase.getInputs(), cartridge);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public String preparePrompt() {
+        return migrator.preparePrompt(template, phase.getInputs(), cartridge);
+    }
+}
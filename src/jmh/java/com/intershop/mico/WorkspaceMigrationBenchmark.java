@@ -0,0 +1,100 @@
+package com.intershop.mico;
+
+import com.intershop.mico.tools.WorkspaceGenerator;
+import com.intershop.mico.util.CartridgeSourceIndex;
+import com.intershop.mico.util.CodeMigrator;
+import com.intershop.mico.util.MigrationRuleSet;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the native phases over a whole generated workspace: indexing every cartridge,
+ * collecting its imports and running the code migration. The migration rewrites the files, so
+ * every iteration runs on a freshly generated workspace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WorkspaceMigrationBenchmark {
+
+    private static final long SEED = 1;
+
+    @Param({"50"})
+    public int cartridges;
+
+    @Param({"100"})
+    public int javaFilesPerCartridge;
+
+    private WorkspaceGenerator generator;
+    private Path root;
+
+    @Setup(Level.Trial)
+    public void setUpGenerator() throws IOException {
+        Path phases = Paths.get(System.getProperty("mico.phases", "phases"));
+        generator = new WorkspaceGenerator(SEED,
+            WorkspaceGenerator.loadPackages(phases.resolve("instructions/cartridge-packages.properties")),
+            MigrationRuleSet.defaults())
+            .setCartridges(cartridges)
+            .setJavaFilesPerCartridge(javaFilesPerCartridge);
+    }
+
+    @Setup(Level.Iteration)
+    public void generateWorkspace() throws IOException {
+        root = Files.createTempDirectory("mico-workspace");
+        generator.generate(root);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteWorkspace() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public int nativePhases() throws IOException {
+        PrintStream out = new PrintStream(PrintStream.nullOutputStream());
+        int imports = 0;
+        List<Path> cartridgeDirs;
+        try (Stream<Path> dirs = Files.list(root)) {
+            cartridgeDirs = dirs.sorted().toList();
+        }
+        for (Path cartridge : cartridgeDirs) {
+            CartridgeSourceIndex index = new CartridgeSourceIndex(cartridge);
+            imports += index.getImports(Set.of()).size();
+            new CodeMigrator(cartridge.toString(), out, MigrationRuleSet.defaults())
+                .setJavaFiles(index.getJavaFiles())
+                .migrate();
+            index.refresh();
+        }
+        return imports;
+    }
+}
@@ -0,0 +1,220 @@
+package com.intershop.mico.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the Java sources the benchmarks run on.
+ * <p>
+ * The sources are derived from a fixed seed, so every run and every commit measures exactly the
+ * same input. They use the legacy imports, annotations and method calls the default migration
+ * rules rewrite, mixed with Intershop and JDK imports that stay unchanged. Change
+ * {@link #VERSION} whenever the generated sources change, results of different versions are not
+ * comparable.
+ */
+public final class BenchmarkCorpus {
+
+    public static final int VERSION = 1;
+
+    private static final long SEED = 20260127L;
+
+    /**
+     * Shapes of generated files
+     */
+    public enum Kind {
+        /** A few imports and a short class */
+        SMALL,
+        /** Some imports and a long class body */
+        LARGE,
+        /** Hundreds of imports and a short class */
+        IMPORT_HEAVY,
+        /** A JUnit 5 test with annotations on every method */
+        ANNOTATION_HEAVY
+    }
+
+    /** Imports rewritten by the default rules */
+    private static final String[] MIGRATED_IMPORTS = {
+        "javax.inject.Inject",
+        "javax.inject.Named",
+        "javax.inject.Provider",
+        "javax.ws.rs.GET",
+        "javax.ws.rs.Path",
+        "javax.ws.rs.core.Response",
+        "javax.xml.bind.annotation.XmlElement",
+        "javax.annotation.PostConstruct",
+        "javax.servlet.http.HttpServletRequest",
+        "org.apache.commons.lang.StringUtils",
+        "org.junit.jupiter.api.Test",
+        "org.junit.jupiter.api.BeforeEach",
+        "org.junit.jupiter.api.Disabled",
+    };
+
+    /** Imports left unchanged by the default rules */
+    private static final String[] KEPT_PACKAGES = {
+        "com.intershop.beehive.core.capi.domain",
+        "com.intershop.beehive.core.capi.localization",
+        "com.intershop.beehive.core.capi.request",
+        "com.intershop.beehive.foundation.quantity",
+        "com.intershop.component.basket.capi",
+        "com.intershop.component.product.capi",
+        "com.intershop.component.customer.capi",
+        "com.intershop.component.pricing.capi.pricelist",
+        "com.intershop.adapter.bmecat.capi",
+        "com.intershop.application.storefront.rest.b2b.capi",
+        "com.intershop.sellside.rest.basket.v1.capi.resource",
+        "java.util",
+        "java.util.function",
+        "java.time",
+    };
+
+    private static final String[] TYPE_NAMES = {
+        "Basket", "Product", "Customer", "PriceList", "Domain", "Request", "Money", "Quantity",
+        "Localization", "LineItem", "Catalog", "Promotion", "Address", "Payment", "Shipping"
+    };
+
+    private final Random random;
+
+    /**
+     * Generates the content of a Java file of the given shape. Each index yields a different
+     * file, the same index always the same one.
+     */
+    public static String javaFile(Kind kind, int index) {
+        return new BenchmarkCorpus(kind.ordinal() * 100_003L + index).generate(kind, index);
+    }
+
+    /**
+     * Writes a cartridge with the given number of Java files of all shapes below
+     * {@code src/main/java}, plus a build directory and resources that scans skip or ignore
+     *
+     * @return the cartridge directory
+     */
+    public static Path writeCartridge(Path root, int javaFiles) throws IOException {
+        Kind[] kinds = Kind.values();
+        for (int i = 0; i < javaFiles; i++) {
+            Kind kind = kinds[i % kinds.length];
+            Path dir = root.resolve("src/main/java").resolve(packageName(i).replace('.', '/'));
+            Files.createDirectories(dir);
+            Files.writeString(dir.resolve(className(kind, i) + ".java"), javaFile(kind, i));
+        }
+        Path resources = root.resolve("src/main/resources/resources/benchmark");
+        Files.createDirectories(resources);
+        for (int i = 0; i < javaFiles / 10; i++) {
+            Files.writeString(resources.resolve("message_" + i + ".properties"), "benchmark.message" + i + "=Message " + i + "\n");
+        }
+        Path build = root.resolve("build/generated/java/generated");
+        Files.createDirectories(build);
+        Files.writeString(build.resolve("Generated.java"), "package generated;\n\nimport javax.inject.Inject;\n\nclass Generated {}\n");
+        return root;
+    }
+
+    private BenchmarkCorpus(long offset) {
+        random = new Random(SEED + offset);
+    }
+
+    private String generate(Kind kind, int index) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("/*\n * Benchmark corpus ").append(VERSION).append(", ").append(kind).append(' ').append(index)
+            .append("\n */\n");
+        sb.append("package ").append(packageName(index)).append(";\n\n");
+        switch (kind) {
+            case SMALL -> {
+                imports(sb, 6);
+                classBody(sb, className(kind, index), 3);
+            }
+            case LARGE -> {
+                imports(sb, 25);
+                classBody(sb, className(kind, index), 120);
+            }
+            case IMPORT_HEAVY -> {
+                imports(sb, 400);
+                classBody(sb, className(kind, index), 2);
+            }
+            case ANNOTATION_HEAVY -> {
+                sb.append("import static org.junit.jupiter.api.Assertions.assertEquals;\n");
+                sb.append("import org.junit.jupiter.api.AfterEach;\n");
+                sb.append("import org.junit.jupiter.api.BeforeEach;\n");
+                sb.append("import org.junit.jupiter.api.Disabled;\n");
+                sb.append("import org.junit.jupiter.api.Test;\n");
+                sb.append("import org.junit.jupiter.api.extension.ExtendWith;\n");
+                sb.append("import org.mockito.Mock;\n");
+                sb.append("import org.mockito.MockitoAnnotations;\n");
+                imports(sb, 10);
+                testBody(sb, className(kind, index), 60);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void imports(StringBuilder sb, int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(4) == 0) {
+                lines.add(MIGRATED_IMPORTS[random.nextInt(MIGRATED_IMPORTS.length)]);
+            } else {
+                lines.add(KEPT_PACKAGES[random.nextInt(KEPT_PACKAGES.length)] + "."
+                    + TYPE_NAMES[random.nextInt(TYPE_NAMES.length)] + (i / TYPE_NAMES.length));
+            }
+        }
+        for (String line : lines) {
+            sb.append("import ").append(line).append(";\n");
+        }
+        sb.append('\n');
+    }
+
+    private void classBody(StringBuilder sb, String className, int methods) {
+        sb.append("/**\n * Generated class for benchmarks\n */\n");
+        sb.append("@Named(\"").append(className).append("\")\n");
+        sb.append("public class ").append(className).append(" {\n\n");
+        sb.append("    @Inject\n    private Provider<Domain0> domainProvider;\n\n");
+        for (int m = 0; m < methods; m++) {
+            String type = TYPE_NAMES[random.nextInt(TYPE_NAMES.length)];
+            sb.append("    /**\n     * Returns the ").append(type.toLowerCase()).append(" for the key\n     */\n");
+            sb.append("    public String get").append(type).append(m).append("(String key) {\n");
+            sb.append("        if (StringUtils.isEmpty(key)) {\n");
+            sb.append("            return \"import javax.inject.Inject; // not an import\";\n");
+            sb.append("        }\n");
+            for (int s = 0; s < 6 + random.nextInt(6); s++) {
+                sb.append("        String value").append(s).append(" = key + \"").append(type).append(s)
+                    .append("\"; // ").append(random.nextInt(1000)).append('\n');
+            }
+            sb.append("        return value0;\n    }\n\n");
+        }
+        sb.append("}\n");
+    }
+
+    private void testBody(StringBuilder sb, String className, int methods) {
+        sb.append("@ExtendWith(MockitoExtension.class)\n");
+        sb.append("public class ").append(className).append(" {\n\n");
+        sb.append("    @Mock\n    private Basket0 basket;\n\n");
+        sb.append("    @BeforeEach\n    public void setUp() {\n        MockitoAnnotations.initMocks(this);\n    }\n\n");
+        sb.append("    @AfterEach\n    public void tearDown() {\n        verifyZeroInteractions(basket);\n    }\n\n");
+        for (int m = 0; m < methods; m++) {
+            if (random.nextInt(5) == 0) {
+                sb.append("    @Disabled(\"flaky\")\n");
+            }
+            sb.append("    @Test\n");
+            sb.append("    public void test").append(TYPE_NAMES[random.nextInt(TYPE_NAMES.length)]).append(m).append("() {\n");
+            sb.append("        Assertions.assertEquals(").append(m).append(", ").append(m).append(");\n");
+            sb.append("        verifyZeroInteractions(basket);\n");
+            sb.append("    }\n\n");
+        }
+        sb.append("}\n");
+    }
+
+    private static String packageName(int index) {
+        return "com.customer.benchmark.module" + (index % 8);
+    }
+
+    private static String className(Kind kind, int index) {
+        return switch (kind) {
+            case SMALL -> "Small";
+            case LARGE -> "Large";
+            case IMPORT_HEAVY -> "ImportHeavy";
+            case ANNOTATION_HEAVY -> "AnnotationHeavy";
+        } + index + (kind == Kind.ANNOTATION_HEAVY ? "Test" : "");
+    }
+}
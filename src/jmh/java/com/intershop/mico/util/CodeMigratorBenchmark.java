@@ -0,0 +1,48 @@
+package com.intershop.mico.util;
+
+import com.intershop.mico.benchmark.BenchmarkCorpus;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rewriting of single files by the native code migration with the default rules, without I/O
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodeMigratorBenchmark {
+
+    @Param({"SMALL", "LARGE", "IMPORT_HEAVY", "ANNOTATION_HEAVY"})
+    public BenchmarkCorpus.Kind kind;
+
+    private CodeMigrator migrator;
+    private String content;
+
+    @Setup
+    public void setUp() {
+        migrator = new CodeMigrator("benchmark", new PrintStream(PrintStream.nullOutputStream()),
+            MigrationRuleSet.defaults());
+        content = BenchmarkCorpus.javaFile(kind, 0);
+    }
+
+    @Benchmark
+    public String migrateContent() {
+        return migrator.migrateContent(content);
+    }
+}
@@ -0,0 +1,78 @@
+package com.intershop.mico.util;
+
+import com.intershop.mico.benchmark.BenchmarkCorpus;
+import com.intershop.mico.models.Cartridge;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scanning the imports of a generated cartridge: a full scan walks the cartridge and reads all
+ * headers, a refresh only checks an unchanged index for modifications.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JavaImportScannerBenchmark {
+
+    private static final Set<String> EXCLUSIONS = Set.of("java.", "com.intershop.beehive.");
+
+    @Param({"200", "2000"})
+    public int javaFiles;
+
+    private Path root;
+    private Cartridge cartridge;
+    private CartridgeSourceIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = BenchmarkCorpus.writeCartridge(Files.createTempDirectory("mico-benchmark"), javaFiles);
+        cartridge = new Cartridge(root.toString(), root.toString(), "to_do");
+        index = new CartridgeSourceIndex(root);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<String> scanImports() {
+        return JavaImportScanner.scanImports(cartridge, EXCLUSIONS);
+    }
+
+    @Benchmark
+    public int refreshIndex() {
+        return index.refresh();
+    }
+
+    @Benchmark
+    public Set<String> indexedImports() {
+        return index.getImports(EXCLUSIONS);
+    }
+}
@@ -4,11 +4,20 @@ import com.intershop.mico.agent.Agent;
 import com.intershop.mico.agent.agents.AgentType;
 import com.intershop.mico.agent.agents.CopilotAgent;
 import com.intershop.mico.agent.agents.ClaudeCodeAgent;
+import com.intershop.mico.agent.agents.StubAgent;
+import com.intershop.mico.jfr.FlightRecording;
 import com.intershop.mico.repo.CartridgeRepository;
 import com.intershop.mico.repo.PhaseRepository;
+import com.intershop.mico.util.MigrationLogger;
+import com.intershop.mico.util.MigrationRuleSet;
+import com.intershop.mico.util.SourceFilter;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Main {
     public static void main(String[] args) {
@@ -17,6 +26,15 @@ public class Main {
         boolean isSingleCartridge = false;
         AgentType agentType = null;
         String model = null;
+        int parallelism = 1;
+        String resumeSession = null;
+        boolean force = false;
+        boolean live = false;
+        boolean jfr = false;
+        int launchRate = 0;
+        int migrationThreads = Runtime.getRuntime().availableProcessors();
+        List<String> excludes = new ArrayList<>(SourceFilter.DEFAULT_EXCLUDES);
+        long maxFileSize = SourceFilter.DEFAULT_MAX_FILE_SIZE;
 
         for (int i = 0; i < args.length; i++) {
             if ("-p".equals(args[i]) && i + 1 < args.length) {
@@ -34,20 +52,56 @@ public class Main {
                     case "claude_code":
                         agentType = AgentType.CLAUDE_CODE;
                         break;
+                    case "stub":
+                        agentType = AgentType.STUB;
+                        break;
                 }
             } else if("-m".equals(args[i]) && i + 1 < args.length){
                 model = args[i + 1];
                 i++;
+            } else if ("-j".equals(args[i]) && i + 1 < args.length) {
+                parallelism = parsePositiveInt(args[i + 1], "-j");
+                i++;
+            } else if ("--resume".equals(args[i]) && i + 1 < args.length) {
+                resumeSession = args[i + 1];
+                i++;
+            } else if ("--launch-rate".equals(args[i]) && i + 1 < args.length) {
+                launchRate = parsePositiveInt(args[i + 1], "--launch-rate");
+                i++;
+            } else if ("--migration-threads".equals(args[i]) && i + 1 < args.length) {
+                migrationThreads = parsePositiveInt(args[i + 1], "--migration-threads");
+                i++;
+            } else if ("--exclude".equals(args[i]) && i + 1 < args.length) {
+                excludes.add(args[i + 1]);
+                i++;
+            } else if ("--max-file-size".equals(args[i]) && i + 1 < args.length) {
+                maxFileSize = parsePositiveInt(args[i + 1], "--max-file-size") * 1024L;
+                i++;
+            } else if ("--force".equals(args[i])) {
+                force = true;
+            } else if ("--live".equals(args[i])) {
+                live = true;
+            } else if ("--jfr".equals(args[i])) {
+                jfr = true;
             }
         }
 
         // Validate required arguments
         if (path == null || agentType == null) {
-            System.err.println("Usage: MiCo -p <path> -a <agent> [-m <model>] [-s]");
+            System.err.println("Usage: MiCo -p <path> -a <agent> [-m <model>] [-s] [-j <n>] [--resume <session>] [--force] [--launch-rate <n>] [--migration-threads <n>] [--exclude <glob>] [--max-file-size <kb>] [--live] [--jfr]");
             System.err.println("  -p <path>    : Path to cartridge(s)");
-            System.err.println("  -a <agent>   : Agent type (copilot or claude_code)");
+            System.err.println("  -a <agent>   : Agent type (copilot, claude_code or stub for offline load tests)");
             System.err.println("  -m <model>   : Model to use (optional)");
             System.err.println("  -s           : Single cartridge mode (optional)");
+            System.err.println("  -j <n>       : Number of agent phases run in parallel (optional, default 1)");
+            System.err.println("  --resume <session> : Continue a session, skipping phases it already completed (optional)");
+            System.err.println("  --force      : Run phases even if nothing changed since their last successful run (optional)");
+            System.err.println("  --launch-rate <n>  : Maximum agent launches per minute per agent and model (optional, default unlimited)");
+            System.err.println("  --migration-threads <n> : Files migrated in parallel by the native code migration (optional, default number of CPUs)");
+            System.err.println("  --exclude <glob>   : Additional files or directories to leave out of scans and migration, repeatable (optional)");
+            System.err.println("  --max-file-size <kb> : Skip larger Java files as generated (optional, default 1024)");
+            System.err.println("  --live       : Print the last output line, output rate and elapsed time of running agents (optional)");
+            System.err.println("  --jfr        : Record phases, agent processes and file migrations with Java Flight Recorder into the session log directory (optional)");
             System.exit(1);
         }
 
@@ -61,6 +115,7 @@ public class Main {
             Agent agent = switch (finalAgentType) {
                 case COPILOT -> new CopilotAgent(new File(finalPath));
                 case CLAUDE_CODE -> new ClaudeCodeAgent(new File(finalPath));
+                case STUB -> new StubAgent(new File(finalPath));
             };
             agent.setModel(finalModel);
             agent.allowAllTools();
@@ -75,8 +130,80 @@ public class Main {
             Paths.get("phases/instructions")
         );
 
+        MigrationLogger logger;
+        if (resumeSession != null) {
+            try {
+                logger = new MigrationLogger(MigrationLogger.resolveSessionDir(resumeSession));
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+                return;
+            }
+        } else {
+            logger = new MigrationLogger();
+        }
+
+        MigrationRuleSet migrationRules;
+        try {
+            migrationRules = MigrationRuleSet.load(Paths.get("phases/rules"));
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        System.out.println("📄 Code migration rules: " + String.join(", ", migrationRules.getNames()));
+
+        SourceFilter sourceFilter;
+        try {
+            sourceFilter = new SourceFilter(excludes, maxFileSize);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
         // Create and run migrator
-        Migrator migrator = new Migrator(cartridgeRepository, phaseRepository, agentFactory);
-        migrator.migrate();
+        Migrator migrator = new Migrator(cartridgeRepository, phaseRepository, agentFactory, logger)
+            .setAgent(agentType, model)
+            .setParallelism(parallelism)
+            .setSkipUnchanged(!force)
+            .setLive(live)
+            .setLaunchRate(launchRate)
+            .setMigrationRules(migrationRules)
+            .setCodeMigrationThreads(migrationThreads)
+            .setSourceFilter(sourceFilter);
+        FlightRecording recording = null;
+        if (jfr) {
+            try {
+                recording = FlightRecording.start(logger.getSessionLogDir());
+                System.out.println("🎥 Flight recording: " + recording.getFile());
+            } catch (IOException | IllegalStateException | SecurityException e) {
+                System.err.println("Cannot start flight recording: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+        }
+        try {
+            migrator.migrate();
+        } finally {
+            if (recording != null) {
+                recording.close();
+            }
+            logger.close();
+        }
+    }
+
+    private static int parsePositiveInt(String value, String flag) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        System.err.println("Invalid value for " + flag + ": " + value + " (expected a positive number)");
+        System.exit(1);
+        return -1;
     }
 }
\ No newline at end of file
@@ -1,156 +1,631 @@
 package com.intershop.mico;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import com.intershop.mico.agent.Agent;
+import com.intershop.mico.agent.AgentGovernor;
+import com.intershop.mico.agent.agents.AgentType;
+import com.intershop.mico.jfr.AgentProcessEvent;
+import com.intershop.mico.jfr.PhaseExecutionEvent;
 import com.intershop.mico.models.Cartridge;
 import com.intershop.mico.models.Phase;
+import com.intershop.mico.models.PhaseOutcome;
+import com.intershop.mico.models.RetryPolicy;
 import com.intershop.mico.repo.CartridgeRepository;
 import com.intershop.mico.repo.PhaseRepository;
+import com.intershop.mico.scheduler.PhaseScheduler;
+import com.intershop.mico.util.CartridgeSourceIndex;
 import com.intershop.mico.util.CodeMigrator;
-import com.intershop.mico.util.JavaImportScanner;
+import com.intershop.mico.util.LiveConsoleView;
+import com.intershop.mico.util.LoggedProcess;
+import com.intershop.mico.util.DependencyResolver;
 import com.intershop.mico.util.MigrationLogger;
+import com.intershop.mico.util.MigrationRuleSet;
+import com.intershop.mico.util.PhaseFingerprintStore;
+import com.intershop.mico.util.PhaseJournal;
+import com.intershop.mico.util.ProcessWatchdog;
+import com.intershop.mico.util.PromptTablePruner;
+import com.intershop.mico.util.SessionMetrics;
+import com.intershop.mico.util.SourceFilter;
+import com.intershop.mico.util.SourceTreeHasher;
 
 public class Migrator {
+    /** How much of a failed attempt's output is passed to the fix pass */
+    private static final int FIX_OUTPUT_TAIL_BYTES = 32 * 1024;
+    /** Inputs whose values are derived from the imports of the cartridge */
+    private static final Set<String> IMPORT_INPUTS = Set.of("dependencies_list", "unresolved_imports");
+    /** How long to wait for output of descendants that outlive an agent */
+    private static final Duration OUTPUT_DRAIN_TIMEOUT = Duration.ofSeconds(5);
 
     private final CartridgeRepository cartridgeRepository;
     private final PhaseRepository phaseRepository;
     private final Supplier<Agent> agentFactory;
     private final MigrationLogger logger;
+    private final Map<String, Integer> resourceSlots = new HashMap<>(Map.of(
+        Phase.RESOURCE_AGENT, 1,
+        Phase.RESOURCE_NATIVE, 1
+    ));
+    private final PhaseJournal journal;
+    private final SessionMetrics metrics;
+    private final PhaseFingerprintStore fingerprints;
+    private final PromptTablePruner promptTablePruner;
+    private final Map<String, CartridgeSourceIndex> sourceIndexes = new ConcurrentHashMap<>();
+    /** Agent phases waiting for their next attempt, by {@link #phaseKey} */
+    private final Map<String, AgentPhase> pendingRetries = new ConcurrentHashMap<>();
+    private DependencyResolver dependencyResolver;
+    private MigrationRuleSet migrationRules = MigrationRuleSet.defaults();
+    private int codeMigrationThreads = 1;
+    private SourceFilter sourceFilter = SourceFilter.defaults();
+    private ProcessWatchdog watchdog;
+    private AgentGovernor governor;
+    private int launchesPerMinute;
+    private Duration rateLimitPause = AgentGovernor.DEFAULT_INITIAL_PAUSE;
+    private AgentType agentType;
+    private String agentModel;
+    private boolean skipUnchanged = true;
+    private boolean concurrent;
+    private boolean live;
+    private LiveConsoleView liveView;
 
     public Migrator(CartridgeRepository cartridgeRepository, PhaseRepository phaseRepository, Supplier<Agent> agentFactory) {
+        this(cartridgeRepository, phaseRepository, agentFactory, new MigrationLogger());
+    }
+
+    /**
+     * Creates a migrator that logs into the given session. When the session already has a
+     * journal, phases recorded there as completed are not run again.
+     */
+    public Migrator(CartridgeRepository cartridgeRepository, PhaseRepository phaseRepository, Supplier<Agent> agentFactory,
+                    MigrationLogger logger) {
+        this(cartridgeRepository, phaseRepository, agentFactory, logger, PhaseFingerprintStore.DEFAULT_FILE);
+    }
+
+    /**
+     * Creates a migrator that keeps the phase fingerprints in the given file. Package-private for
+     * the tests.
+     */
+    Migrator(CartridgeRepository cartridgeRepository, PhaseRepository phaseRepository, Supplier<Agent> agentFactory,
+             MigrationLogger logger, Path fingerprintFile) {
         this.cartridgeRepository = cartridgeRepository;
         this.phaseRepository = phaseRepository;
         this.agentFactory = agentFactory;
-        this.logger = new MigrationLogger();
+        this.logger = logger;
+        this.journal = new PhaseJournal(logger.getSessionLogDir());
+        this.metrics = new SessionMetrics(logger.getSessionLogDir());
+        this.fingerprints = new PhaseFingerprintStore(fingerprintFile);
+        this.promptTablePruner = new PromptTablePruner(phaseRepository.getCartridgePackagesFile());
+    }
+
+    /**
+     * Sets the type and model of the agents the factory creates. Metrics and fingerprints are
+     * labelled with them; if not set, they are taken from the first agent created.
+     *
+     * @param model the configured model, null for the default model of the agent type
+     */
+    public Migrator setAgent(AgentType agentType, String model) {
+        this.agentType = agentType;
+        this.agentModel = model != null ? model : agentType.getDefaultModel();
+        return this;
+    }
+
+    /**
+     * Whether phases are skipped when the cartridge sources, the rendered prompt and the agent
+     * match a previous successful run. Enabled by default.
+     */
+    public Migrator setSkipUnchanged(boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+        return this;
+    }
+
+    /**
+     * Whether the progress of running agents is printed periodically: last line of output,
+     * output rate and elapsed time. Disabled by default.
+     */
+    public Migrator setLive(boolean live) {
+        this.live = live;
+        return this;
+    }
+
+    /**
+     * Sets how many agent phases may run at the same time, i.e. how many cartridges
+     * can wait on an agent at once. Phases of a single cartridge always follow their dependencies.
+     */
+    public Migrator setParallelism(int parallelism) {
+        return setResourceSlots(Phase.RESOURCE_AGENT, parallelism);
+    }
+
+    /**
+     * Sets how many phases of the given resource class may run at the same time
+     */
+    public Migrator setResourceSlots(String resource, int slots) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("Slots for resource '" + resource + "' must be at least 1, was " + slots);
+        }
+        resourceSlots.put(resource, slots);
+        return this;
+    }
+
+    /**
+     * Limits how many agent processes of the same agent and model are launched per minute,
+     * 0 (default) for no limit
+     */
+    public Migrator setLaunchRate(int launchesPerMinute) {
+        if (launchesPerMinute < 0) {
+            throw new IllegalArgumentException("Launch rate must not be negative, was " + launchesPerMinute);
+        }
+        this.launchesPerMinute = launchesPerMinute;
+        return this;
+    }
+
+    /**
+     * Sets how long agent launches pause after the first rate limit. Package-private for the tests.
+     */
+    Migrator setRateLimitPause(Duration rateLimitPause) {
+        this.rateLimitPause = rateLimitPause;
+        return this;
+    }
+
+    /**
+     * Sets the rules of the native code migration, the bundled default rules if not set
+     */
+    public Migrator setMigrationRules(MigrationRuleSet migrationRules) {
+        this.migrationRules = migrationRules;
+        return this;
+    }
+
+    /**
+     * Sets how many files of a cartridge the native code migration migrates at the same time
+     */
+    public Migrator setCodeMigrationThreads(int codeMigrationThreads) {
+        if (codeMigrationThreads < 1) {
+            throw new IllegalArgumentException("Code migration threads must be at least 1, was " + codeMigrationThreads);
+        }
+        this.codeMigrationThreads = codeMigrationThreads;
+        return this;
+    }
+
+    /**
+     * Sets which files of a cartridge are scanned, migrated and fingerprinted
+     */
+    public Migrator setSourceFilter(SourceFilter sourceFilter) {
+        this.sourceFilter = sourceFilter;
+        return this;
     }
 
     public void migrate() {
         long startTime = System.currentTimeMillis();
         List<Phase> phases = phaseRepository.getPhases();
         List<Cartridge> cartridges = cartridgeRepository.getCartridges();
+        PhaseScheduler scheduler = new PhaseScheduler(resourceSlots);
+        concurrent = cartridges.size() > 1 && scheduler.getMaxConcurrency(phases) > 1;
 
         logger.logToMaster("Migration session started");
         logger.logToMaster("Total cartridges: " + cartridges.size());
         logger.logToMaster("Total phases: " + phases.size());
+        logger.logToMaster("Resource slots: " + resourceSlots);
+        if (launchesPerMinute > 0) {
+            logger.logToMaster("Agent launches per minute: " + launchesPerMinute);
+        }
+        logger.logToMaster("Code migration rules: " + String.join(", ", migrationRules.getNames())
+                + " (" + migrationRules.getVersion().substring(0, 12) + ")");
+        logger.logToMaster("Source excludes: " + String.join(", ", sourceFilter.getExcludes())
+                + ", max Java file size " + sourceFilter.getMaxFileSize() / 1024 + " KB");
+
+        long alreadyCompleted = cartridges.stream()
+                .mapToLong(cartridge -> phases.stream().filter(phase -> journal.isCompleted(cartridge, phase)).count())
+                .sum();
+        if (alreadyCompleted > 0) {
+            System.out.println("⏩ Resuming session: " + alreadyCompleted + " phases already completed");
+            logger.logToMaster("Resuming session, phases already completed: " + alreadyCompleted);
+        }
+        if (journal.hasOutcomes() && !journal.hasOutcomes(cartridges)) {
+            System.err.println("⚠️ The journal " + journal.getJournalFile() + " has no entries for the cartridges of this run,"
+                    + " all phases run again. Resume with the cartridge paths of the original session.");
+            logger.logToMaster("Journal has no entries for the cartridges of this run");
+        }
 
-        for (Cartridge cartridge : cartridges) {
-            System.out.println("=== Migrating cartridge: " + cartridge.getName() + " ===");
-            logger.logToMaster("Starting cartridge: " + cartridge.getName());
-            logger.logToCartridgeSummary(cartridge, "Migration started for: " + cartridge.getName());
+        Map<PhaseOutcome, Integer> outcomes;
+        watchdog = new ProcessWatchdog();
+        liveView = live ? new LiveConsoleView() : null;
+        governor = new AgentGovernor(resourceSlots.get(Phase.RESOURCE_AGENT), launchesPerMinute, rateLimitPause);
+        try {
+            outcomes = scheduler.run(cartridges, phases, new PhaseScheduler.PhaseRunner() {
+                @Override
+                public boolean isCompleted(Cartridge cartridge, Phase phase) {
+                    if (journal.isCompleted(cartridge, phase)) {
+                        cartridge.setCurrentPhase(phase.getId());
+                        return true;
+                    }
+                    return false;
+                }
 
-            for (Phase phase : phases) {
-                System.out.println("  → Phase " + phase.getOrder() + ": " + phase.getName());
-                logger.logToMaster("  Phase " + phase.getOrder() + ": " + phase.getName());
-                logger.logToCartridgeSummary(cartridge, "Starting Phase " + phase.getOrder() + ": " + phase.getName());
+                @Override
+                public void cartridgeStarted(Cartridge cartridge) {
+                    console(cartridge, "=== Migrating cartridge: " + cartridge.getName() + " ===");
+                    logger.logToMaster("Starting cartridge: " + cartridge.getName());
+                    logger.logToCartridgeSummary(cartridge, "Migration started for: " + cartridge.getName());
+                }
 
-                try {
-                    Path logFile = logger.getLogFile(cartridge, phase);
-                    logger.writeLogHeader(logFile, cartridge, phase);
+                @Override
+                public PhaseScheduler.RunResult run(Cartridge cartridge, Phase phase) {
+                    return runPhase(cartridge, phase);
+                }
 
-                    boolean isNativePhase = "code_migration".equals(phase.getId());
+                @Override
+                public void phaseSkipped(Cartridge cartridge, Phase phase, Phase failedDependency) {
+                    String message = "Phase " + phase.getOrder() + " skipped, " + failedDependency.getId() + " did not succeed";
+                    console(cartridge, "  ⏭ " + message);
+                    logger.logToMaster("  " + label(cartridge) + "⏭ " + message);
+                    logger.logToCartridgeSummary(cartridge, "⏭ " + message);
+                }
 
-                    if (isNativePhase) {
-                        runNativePhase(cartridge, phase, logFile);
+                @Override
+                public void cartridgeCompleted(Cartridge cartridge, boolean successful) {
+                    recordFingerprints(cartridge, phases);
+                    sourceIndexes.remove(cartridge.getPath());
+                    if (successful) {
+                        console(cartridge, "=== Completed migration for: " + cartridge.getName() + " ===\n");
+                        logger.logToMaster("Completed cartridge: " + cartridge.getName());
+                        logger.logToCartridgeSummary(cartridge, "Migration completed for: " + cartridge.getName());
                     } else {
-                        Agent agent = agentFactory.get();
-                        String instructionTemplate = phaseRepository.getPhaseInstructions(phase);
-                        String finalPrompt = preparePrompt(instructionTemplate, phase.getInputs(), cartridge);
-
-                        agent.setPrompt(finalPrompt);
-
-                        ProcessBuilder pb = agent.execute();
-                        Process process = logger.executeWithLogging(pb, logFile);
-                        
-                        agent.postExecution(process);
-                        
-                        int exitCode = process.waitFor();
-
-                        if (exitCode != 0) {
-                            String errorMsg = "Phase failed with exit code: " + exitCode;
-                            System.err.println("    ✗ " + errorMsg);
-                            logger.logToMaster("  ✗ " + errorMsg);
-                            logger.logToCartridgeSummary(cartridge, "✗ Phase " + phase.getOrder() + " failed with exit code: " + exitCode);
-                        } else {
-                            String successMsg = "Phase completed successfully";
-                            System.out.println("    ✓ " + successMsg);
-                            logger.logToMaster("  ✓ " + successMsg);
-                            logger.logToCartridgeSummary(cartridge, "✓ Phase " + phase.getOrder() + " completed successfully");
-                        }
+                        consoleError(cartridge, "=== Migration incomplete for: " + cartridge.getName() + " ===\n");
+                        logger.logToMaster("Incomplete cartridge: " + cartridge.getName());
+                        logger.logToCartridgeSummary(cartridge, "Migration incomplete for: " + cartridge.getName());
                     }
-
-                    cartridge.setCurrentPhase(phase.getId());
-                    System.out.println("    📄 Log: " + logFile.toAbsolutePath());
-
-                } catch (IOException | InterruptedException e) {
-                    String errorMsg = "Error executing phase: " + e.getMessage();
-                    System.err.println("    ✗ " + errorMsg);
-                    logger.logToMaster("  ✗ " + errorMsg);
-                    logger.logToCartridgeSummary(cartridge, "✗ Phase " + phase.getOrder() + " error: " + e.getMessage());
-                    throw new RuntimeException(e);
+                    logger.closeCartridgeSummary(cartridge);
                 }
+            });
+        } finally {
+            watchdog.close();
+            if (liveView != null) {
+                liveView.close();
             }
-
-            System.out.println("=== Completed migration for: " + cartridge.getName() + " ===\n");
-            logger.logToMaster("Completed cartridge: " + cartridge.getName());
-            logger.logToCartridgeSummary(cartridge, "Migration completed for: " + cartridge.getName());
+            journal.close();
+            metrics.close();
         }
 
         long duration = System.currentTimeMillis() - startTime;
         logger.logToMaster("Migration session completed");
-        logger.createSummaryReport(cartridges.size(), phases.size(), duration);
+        logger.logToMaster("Phase outcomes: " + outcomes);
+        logger.createSummaryReport(cartridges.size(), phases.size(), duration, outcomes, metrics);
 
+        if (outcomes.getOrDefault(PhaseOutcome.FAILED, 0) + outcomes.getOrDefault(PhaseOutcome.TIMED_OUT, 0) > 0) {
+            System.out.println("\n🔁 Re-run the failed phases with: --resume " + logger.getSessionId());
+        }
         System.out.println("\n📁 All logs saved to: " + logger.getSessionLogDir().toAbsolutePath());
     }
 
-    private String preparePrompt(String instructionTemplate, Map<String, String> inputs, Cartridge cartridge) {
+    /**
+     * Runs a single phase for a cartridge, or the next attempt of an agent phase waiting for a
+     * retry, and records its metrics. Failures are reported as outcome, they never abort the session.
+     */
+    private PhaseScheduler.RunResult runPhase(Cartridge cartridge, Phase phase) {
+        AgentPhase pending = pendingRetries.remove(phaseKey(cartridge, phase));
+        SessionMetrics.PhaseRun run;
+        PhaseExecutionEvent event;
+        PhaseScheduler.RunResult result;
+        if (pending != null) {
+            run = pending.run;
+            run.retryWaitEnded();
+            event = pending.event;
+            result = runAgentPhase(cartridge, phase, pending);
+        } else {
+            if (Phase.RESOURCE_NATIVE.equals(phase.getResource())) {
+                run = metrics.nativePhase(cartridge, phase);
+            } else {
+                resolveAgent();
+                run = metrics.agentPhase(cartridge, phase, agentType.name().toLowerCase(), agentModel);
+            }
+            event = new PhaseExecutionEvent();
+            event.begin();
+            result = executePhase(cartridge, phase, run, event);
+        }
+        if (result.isRetry()) {
+            return result;
+        }
+
+        PhaseOutcome outcome = result.outcome();
+        metrics.phaseFinished(run, outcome);
+        event.end();
+        if (event.shouldCommit()) {
+            event.cartridge = cartridge.getName();
+            event.phase = phase.getId();
+            event.resource = phase.getResource();
+            event.outcome = outcome.name();
+            event.commit();
+        }
+        return result;
+    }
+
+    private PhaseScheduler.RunResult executePhase(Cartridge cartridge, Phase phase, SessionMetrics.PhaseRun run,
+                                                  PhaseExecutionEvent event) {
+        console(cartridge, "  → Phase " + phase.getOrder() + ": " + phase.getName());
+        logger.logToMaster("  " + label(cartridge) + "Phase " + phase.getOrder() + ": " + phase.getName());
+        logger.logToCartridgeSummary(cartridge, "Starting Phase " + phase.getOrder() + ": " + phase.getName());
+        journal.phaseStarted(cartridge, phase);
+
+        PhaseOutcome outcome;
+        try {
+            Path logFile = logger.getLogFile(cartridge, phase);
+            boolean isNativePhase = Phase.RESOURCE_NATIVE.equals(phase.getResource());
+            // Native phases only describe what they do in their instructions, nothing is rendered for them
+            String prompt = isNativePhase ? null : renderPrompt(cartridge, phase, true);
+            if (!isNativePhase) {
+                run.setPrompt(prompt);
+            }
+            metrics.phaseStarted(run);
+
+            String fingerprint = skipUnchanged ? fingerprint(cartridge, phase, prompt) : null;
+            if (fingerprint != null && fingerprints.matches(cartridge, phase, fingerprint)) {
+                String message = "Phase unchanged since last successful run, skipped";
+                console(cartridge, "    ⏩ " + message);
+                logger.logToMaster("  " + label(cartridge) + "⏩ " + message);
+                logger.logToCartridgeSummary(cartridge, "⏩ Phase " + phase.getOrder() + " unchanged, skipped");
+                journal.phaseFinished(cartridge, phase, PhaseOutcome.UNCHANGED);
+                cartridge.setCurrentPhase(phase.getId());
+                return PhaseScheduler.RunResult.finished(PhaseOutcome.UNCHANGED);
+            }
+
+            String skipIfEmpty = phase.getSkipIfEmpty();
+            if (skipIfEmpty != null && getInputValue(skipIfEmpty, cartridge, sourceIndex(cartridge).getImports(Set.of())).isBlank()) {
+                String message = "Nothing to do, " + skipIfEmpty + " is empty";
+                console(cartridge, "    ✓ " + message);
+                logger.logToMaster("  " + label(cartridge) + "✓ " + message);
+                logger.logToCartridgeSummary(cartridge, "✓ Phase " + phase.getOrder() + ": " + message);
+                journal.phaseFinished(cartridge, phase, PhaseOutcome.SUCCEEDED);
+                cartridge.setCurrentPhase(phase.getId());
+                return PhaseScheduler.RunResult.finished(PhaseOutcome.SUCCEEDED);
+            }
+
+            logger.writeLogHeader(logFile, cartridge, phase);
+            try {
+                // Indexed before the phase runs, so the files it touches can be counted afterwards
+                sourceIndex(cartridge);
+            } catch (UncheckedIOException e) {
+                System.err.println("Cannot index " + cartridge.getName() + ": " + e.getMessage());
+            }
+
+            if (!isNativePhase) {
+                return runAgentPhase(cartridge, phase, new AgentPhase(run, event, prompt, logFile));
+            }
+            outcome = runNativePhase(cartridge, phase, logFile);
+            console(cartridge, "    📄 Log: " + logFile.toAbsolutePath());
+
+        } catch (Exception e) {
+            outcome = phaseError(cartridge, phase, e);
+        }
+        return finishPhase(cartridge, phase, run, outcome);
+    }
+
+    /**
+     * Records the final outcome of a phase once no more attempts follow
+     */
+    private PhaseScheduler.RunResult finishPhase(Cartridge cartridge, Phase phase, SessionMetrics.PhaseRun run,
+                                                 PhaseOutcome outcome) {
+        run.setFilesTouched(refreshSourceIndex(cartridge));
+
+        if (outcome.isSuccessful()) {
+            cartridge.setCurrentPhase(phase.getId());
+        }
+        journal.phaseFinished(cartridge, phase, outcome);
+        return PhaseScheduler.RunResult.finished(outcome);
+    }
+
+    private PhaseOutcome phaseError(Cartridge cartridge, Phase phase, Exception e) {
+        String errorMsg = "Error executing phase: " + e.getMessage();
+        consoleError(cartridge, "    ✗ " + errorMsg);
+        logger.logToMaster("  " + label(cartridge) + "✗ " + errorMsg);
+        logger.logToCartridgeSummary(cartridge, "✗ Phase " + phase.getOrder() + " error: " + e.getMessage());
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        return PhaseOutcome.FAILED;
+    }
+
+    /**
+     * Takes the agent type and model from a first agent if they were not set
+     */
+    private synchronized void resolveAgent() {
+        if (agentType == null) {
+            Agent agent = agentFactory.get();
+            agentType = agent.getType();
+            agentModel = agent.getModel();
+        }
+    }
+
+    private static String phaseKey(Cartridge cartridge, Phase phase) {
+        return cartridge.getPath() + "#" + phase.getId();
+    }
+
+    /**
+     * The source index of a cartridge, created on first use and shared by all its phases
+     */
+    private CartridgeSourceIndex sourceIndex(Cartridge cartridge) {
+        return sourceIndexes.computeIfAbsent(cartridge.getPath(), path -> new CartridgeSourceIndex(Paths.get(path), sourceFilter));
+    }
+
+    /**
+     * Brings the source index up to date with the changes of a phase. If that fails, the
+     * cartridge is indexed again on next use.
+     *
+     * @return the number of files the phase added, removed or changed, or -1 if unknown
+     */
+    private int refreshSourceIndex(Cartridge cartridge) {
+        CartridgeSourceIndex index = sourceIndexes.get(cartridge.getPath());
+        if (index == null) {
+            return -1;
+        }
+        try {
+            int changed = index.refresh();
+            if (changed > 0) {
+                logger.logToCartridgeSummary(cartridge, "Source index updated, " + changed + " files changed");
+            }
+            return changed;
+        } catch (UncheckedIOException e) {
+            sourceIndexes.remove(cartridge.getPath());
+            return -1;
+        }
+    }
+
+    /**
+     * Prints a progress line for a cartridge. When several cartridges run at once,
+     * every line is prefixed with the cartridge so interleaved output stays readable.
+     */
+    private void console(Cartridge cartridge, String message) {
+        System.out.println(label(cartridge) + message);
+    }
+
+    private void consoleError(Cartridge cartridge, String message) {
+        System.err.println(label(cartridge) + message);
+    }
+
+    private String label(Cartridge cartridge) {
+        if (!concurrent) {
+            return "";
+        }
+        Path fileName = Paths.get(cartridge.getName()).getFileName();
+        return "[" + (fileName != null ? fileName : cartridge.getName()) + "] ";
+    }
+
+    /**
+     * Renders the instructions of a phase with all inputs filled in for the cartridge
+     *
+     * @param logPruning whether to write the rows kept in pruned mapping tables to the cartridge summary
+     */
+    private String renderPrompt(Cartridge cartridge, Phase phase, boolean logPruning) {
+        String instructionTemplate = phaseRepository.getPhaseInstructions(phase);
+        return preparePrompt(instructionTemplate, phase.getInputs(), cartridge, logPruning);
+    }
+
+    /**
+     * Renders the Fix instructions with the end of a failed attempt's log as build output
+     */
+    private String renderFixPrompt(Cartridge cartridge, Path failedLog) {
+        return phaseRepository.getFixInstructions()
+            .replace("[CARTRIDGE_PATH]", cartridge.getPath())
+            .replace("[CARTRIDGE_NAME]", cartridge.getName())
+            .replace("[BUILD_OUTPUT]", MigrationLogger.readLogTail(failedLog, FIX_OUTPUT_TAIL_BYTES));
+    }
+
+    /**
+     * Fingerprint of everything a phase depends on: the cartridge sources and, for an agent phase,
+     * the rendered prompt and the agent and model running it, for a native phase the version of its
+     * rules. Returns null if the sources cannot be hashed.
+     *
+     * @param prompt the rendered prompt of an agent phase, null for a native phase
+     */
+    private String fingerprint(Cartridge cartridge, Phase phase, String prompt) {
+        try {
+            String treeHash = sourceIndex(cartridge).getTreeHash();
+            if (Phase.RESOURCE_NATIVE.equals(phase.getResource())) {
+                // Rule changes must rerun a native phase even on unchanged sources
+                return SourceTreeHasher.hashText(treeHash + "\nnative:" + nativeRulesVersion(phase));
+            }
+            resolveAgent();
+            String executor = agentType + ":" + agentModel;
+            return SourceTreeHasher.hashText(treeHash + "\n" + SourceTreeHasher.hashText(prompt) + "\n" + executor);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Cannot fingerprint " + cartridge.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Version of the rules a native phase executes
+     */
+    private String nativeRulesVersion(Phase phase) {
+        return switch (phase.getId()) {
+            case "dependency_resolution" -> dependencyResolver().getVersion();
+            default -> migrationRules.getVersion();
+        };
+    }
+
+    /**
+     * Stores the fingerprints of all successful phases of a finished cartridge, computed on the
+     * final source tree. An unchanged cartridge produces the same fingerprints next time.
+     */
+    private void recordFingerprints(Cartridge cartridge, List<Phase> phases) {
+        for (Phase phase : phases) {
+            String fingerprint = null;
+            if (journal.isCompleted(cartridge, phase)) {
+                String prompt = Phase.RESOURCE_NATIVE.equals(phase.getResource())
+                        ? null
+                        : renderPrompt(cartridge, phase, false);
+                fingerprint = fingerprint(cartridge, phase, prompt);
+            }
+            if (fingerprint != null) {
+                fingerprints.put(cartridge, phase, fingerprint);
+            } else {
+                fingerprints.remove(cartridge, phase);
+            }
+        }
+        fingerprints.save();
+    }
+
+    /**
+     * Fills in the inputs of a phase. Marked mapping tables are pruned to the rows matching
+     * the imports of the cartridge first. Package-private for the benchmarks.
+     */
+    String preparePrompt(String instructionTemplate, Map<String, String> inputs, Cartridge cartridge) {
+        return preparePrompt(instructionTemplate, inputs, cartridge, false);
+    }
+
+    private String preparePrompt(String instructionTemplate, Map<String, String> inputs, Cartridge cartridge,
+                                 boolean logPruning) {
         String result = instructionTemplate;
 
+        boolean pruneTables = PromptTablePruner.hasSections(result);
+        Set<String> imports = pruneTables || inputs.keySet().stream().anyMatch(IMPORT_INPUTS::contains)
+                ? sourceIndex(cartridge).getImports(Set.of())
+                : Set.of();
+        if (pruneTables) {
+            PromptTablePruner.Result pruned = promptTablePruner.prune(result, imports);
+            result = pruned.text();
+            if (logPruning) {
+                logger.logToCartridgeSummary(cartridge, "Pruned mapping tables: kept " + pruned.keptRows()
+                    + " rows, removed " + pruned.removedRows());
+            }
+        }
+
         for (Map.Entry<String, String> input : inputs.entrySet()) {
             String placeholder = "[" + input.getKey().toUpperCase() + "]";
-            String value = getInputValue(input.getKey(), cartridge);
+            String value = getInputValue(input.getKey(), cartridge, imports);
             result = result.replace(placeholder, value);
         }
         return result;
     }
 
-    private String getInputValue(String inputKey, Cartridge cartridge) {
+    private String getInputValue(String inputKey, Cartridge cartridge, Set<String> imports) {
         return switch (inputKey.toLowerCase()) {
             case "cartridge_path" -> cartridge.getPath();
             case "cartridge_name" -> cartridge.getName();
-            case "dependencies_list" -> generateDependenciesList(cartridge);
+            case "dependencies_list" -> generateDependenciesList(imports);
+            case "unresolved_imports" -> generateDependenciesList(resolveDependencies(cartridge, imports).unresolved());
             case "java_classes_list" -> generateJavaClassesList(cartridge);
             default -> "";
         };
     }
 
     private String generateJavaClassesList(Cartridge cartridge) {
-        java.nio.file.Path cartridgePath = java.nio.file.Paths.get(cartridge.getPath());
+        CartridgeSourceIndex index = sourceIndex(cartridge);
         StringBuilder sb = new StringBuilder();
-
-        try (java.util.stream.Stream<java.nio.file.Path> paths = java.nio.file.Files.walk(cartridgePath)) {
-            paths.filter(java.nio.file.Files::isRegularFile)
-                 .filter(p -> p.toString().endsWith(".java"))
-                 .forEach(p -> {
-                     String relativePath = cartridgePath.relativize(p).toString();
-                     sb.append(relativePath).append("\n");
-                 });
-        } catch (IOException e) {
-            System.err.println("Error scanning Java files: " + e.getMessage());
+        for (Path javaFile : index.getJavaFiles()) {
+            sb.append(index.getRoot().relativize(javaFile)).append("\n");
         }
-
         return sb.toString();
     }
 
-    private String generateDependenciesList(Cartridge cartridge) {
-        Set<String> exclusions = Set.of();
-        Set<String> imports = JavaImportScanner.scanImports(cartridge, exclusions);
-
+    private String generateDependenciesList(Set<String> imports) {
         StringBuilder sb = new StringBuilder();
         for (String importStatement : imports) {
             sb.append(importStatement).append("\n");
@@ -160,46 +635,264 @@ public class Migrator {
     }
 
     /**
-     * Runs a native phase (Java code) directly without using AI agent
+     * An agent phase across its attempts: the attempt to run next and, after a failure, the log
+     * of the failed attempt for the fix pass
      */
-    private void runNativePhase(Cartridge cartridge, Phase phase, Path logFile) {
+    private static final class AgentPhase {
+        private final SessionMetrics.PhaseRun run;
+        private final PhaseExecutionEvent event;
+        private final String prompt;
+        private final Path logFile;
+        private int attempt = 1;
+        private Path failedLog;
+
+        private AgentPhase(SessionMetrics.PhaseRun run, PhaseExecutionEvent event, String prompt, Path logFile) {
+            this.run = run;
+            this.event = event;
+            this.prompt = prompt;
+            this.logFile = logFile;
+        }
+    }
+
+    /**
+     * Runs the next attempt of an agent phase. If it does not succeed and its {@link RetryPolicy}
+     * allows another attempt, the phase waits for the retry without holding its slot: the scheduler
+     * runs it again after the backoff.
+     * <p>
+     * A retry after a failure first runs the Fix instructions on the output of the failed attempt,
+     * then the original prompt again. The fix pass only repairs, the phase outcome is always
+     * that of the original prompt. After a rate limit or timeout there is no error output to fix,
+     * so only the original prompt runs again.
+     */
+    private PhaseScheduler.RunResult runAgentPhase(Cartridge cartridge, Phase phase, AgentPhase agentPhase) {
+        PhaseOutcome outcome;
         try {
-            // Redirect System.out and System.err to log file
-            var originalOut = System.out;
-            var originalErr = System.err;
-            CodeMigrator.MigrationStats stats;
+            RetryPolicy retry = phase.getRetry();
+            int attempt = agentPhase.attempt;
+            Path attemptLog = agentPhase.logFile;
+            if (attempt > 1) {
+                if (agentPhase.failedLog != null) {
+                    runFixPass(cartridge, phase, agentPhase.run, agentPhase.failedLog, attempt);
+                }
+                attemptLog = logger.getLogFile(cartridge, phase, attempt);
+                logger.writeLogHeader(attemptLog, cartridge, phase);
+                console(cartridge, "    📄 Log: " + attemptLog.toAbsolutePath());
+            }
 
-            try (var printStream = new java.io.PrintStream(
-                    new java.io.FileOutputStream(logFile.toFile(), true))) {
-                System.setOut(printStream);
-                System.setErr(printStream);
+            agentPhase.run.setAttempts(attempt);
+            AgentAttempt result = runAgentAttempt(cartridge, phase, agentPhase.prompt, attemptLog, agentPhase.run, attempt, false);
+            outcome = result.outcome();
+            if (!outcome.isSuccessful() && attempt < retry.getMaxAttempts()) {
+                boolean repair = outcome == PhaseOutcome.FAILED && !result.rateLimited();
+                Duration backoff = retry.getBackoff(attempt);
+                String message = "Retrying in " + Math.round(backoff.toMillis() / 1000.0) + "s, attempt " + (attempt + 1) + "/" + retry.getMaxAttempts()
+                    + (repair ? " after a fix pass" : "");
+                console(cartridge, "    🔁 " + message);
+                logger.logToMaster("  " + label(cartridge) + "🔁 " + message);
+                logger.logToCartridgeSummary(cartridge, "🔁 Phase " + phase.getOrder() + ": " + message);
+                metrics.retry(agentPhase.run, attempt, result.exitCode(), result.wallMillis(), backoff.toMillis(), result.rateLimited());
+
+                agentPhase.attempt = attempt + 1;
+                agentPhase.failedLog = repair ? attemptLog : null;
+                agentPhase.run.retryWaitStarted();
+                pendingRetries.put(phaseKey(cartridge, phase), agentPhase);
+                return PhaseScheduler.RunResult.retryAfter(backoff);
+            }
+            console(cartridge, "    📄 Log: " + agentPhase.logFile.toAbsolutePath());
+        } catch (Exception e) {
+            outcome = phaseError(cartridge, phase, e);
+        }
+        return finishPhase(cartridge, phase, agentPhase.run, outcome);
+    }
 
-                // Run CodeMigrator
-                CodeMigrator migrator = new CodeMigrator(cartridge.getPath());
-                migrator.migrate();
-                stats = migrator.getStats();
+    /**
+     * Runs the Fix instructions on the output of a failed attempt, before the original prompt
+     * runs again. Its outcome is only logged.
+     */
+    private void runFixPass(Cartridge cartridge, Phase phase, SessionMetrics.PhaseRun run, Path failedLog, int attempt)
+            throws IOException, InterruptedException {
+        Path fixLog = logger.getFixLogFile(cartridge, phase, attempt);
+        logger.writeLogHeader(fixLog, cartridge, phase);
+        console(cartridge, "    🔧 Fix pass, log: " + fixLog.toAbsolutePath());
+        runAgentAttempt(cartridge, phase, renderFixPrompt(cartridge, failedLog), fixLog, run, attempt, true);
+    }
 
-                printStream.println("\n=== Code Migration Statistics ===");
-                printStream.println("Files processed: " + stats.filesProcessed());
-                printStream.println("Errors: " + stats.errorCount());
-                printStream.println("===================================\n");
+    private record AgentAttempt(PhaseOutcome outcome, boolean rateLimited, int exitCode, long wallMillis) {}
 
+    /**
+     * Runs a single agent session, the phase prompt or a fix pass. The session is throttled by
+     * the governor, and killed by the watchdog if it exceeds the phase timeouts.
+     */
+    private AgentAttempt runAgentAttempt(Cartridge cartridge, Phase phase, String prompt, Path logFile,
+                                         SessionMetrics.PhaseRun run, int attempt, boolean fixPass)
+            throws IOException, InterruptedException {
+        String session = fixPass ? "Fix pass" : "Phase";
+        String summaryLabel = "Phase " + phase.getOrder() + (fixPass ? " fix pass" : "");
+        Agent agent = agentFactory.get();
+        agent.setPrompt(prompt);
+
+        AgentGovernor.Permit permit = governor.acquire(agent);
+        boolean rateLimited = false;
+        long startNanos = System.nanoTime();
+        AgentProcessEvent event = new AgentProcessEvent();
+        event.begin();
+        try {
+            ProcessBuilder pb = agent.execute();
+            LiveConsoleView.Task task = liveView != null
+                ? liveView.start(Paths.get(cartridge.getName()).getFileName() + " phase " + phase.getOrder() + (fixPass ? " fix" : ""))
+                : null;
+            int exitCode;
+            ProcessWatchdog.Watch watch;
+            try {
+                LoggedProcess process = logger.executeWithLogging(pb, logFile, task);
+                event.pid = process.pid();
+                event.exitCode = -1;
+                watch = watchdog.watch(process, logFile,
+                    Duration.ofMinutes(phase.getTimeoutMinutes()), Duration.ofMinutes(phase.getIdleTimeoutMinutes()));
+                try {
+                    agent.postExecution(process);
+                    exitCode = process.waitFor();
+                    event.exitCode = exitCode;
+                } finally {
+                    watch.cancel();
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.cartridge = cartridge.getName();
+                        event.phase = phase.getId();
+                        event.agent = agent.getType().name().toLowerCase();
+                        event.model = agent.getModel();
+                        event.attempt = attempt;
+                        event.killed = watch.isKilled();
+                        event.commit();
+                    }
+                }
+                if (!process.awaitOutput(OUTPUT_DRAIN_TIMEOUT)) {
+                    logger.logToCartridgeSummary(cartridge, "Output of phase " + phase.getOrder()
+                        + " still open after the agent exited, log may be incomplete");
+                }
             } finally {
-                System.setOut(originalOut);
-                System.setErr(originalErr);
+                if (task != null) {
+                    task.close();
+                }
             }
 
-            String successMsg = "Native phase completed: " + stats.filesProcessed() + " files";
-            System.out.println("    ✓ " + successMsg);
-            logger.logToMaster("  ✓ " + successMsg);
+            long wallMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            if (!fixPass) {
+                run.setExitCode(exitCode);
+            }
+            if (exitCode != 0 || watch.isKilled()) {
+                rateLimited = AgentGovernor.isRateLimited(logFile);
+            }
+
+            if (watch.isKilled()) {
+                String errorMsg = watch.getReason() == ProcessWatchdog.Reason.TIMEOUT
+                    ? session + " timed out after " + phase.getTimeoutMinutes() + " minutes"
+                    : session + " killed, no output for " + phase.getIdleTimeoutMinutes() + " minutes";
+                consoleError(cartridge, "    ✗ " + errorMsg);
+                logger.logToMaster("  " + label(cartridge) + "✗ " + errorMsg);
+                logger.logToCartridgeSummary(cartridge, "✗ " + summaryLabel + ": " + errorMsg);
+                metrics.timeout(run, attempt, watch.getReason().name().toLowerCase(), wallMillis);
+                return new AgentAttempt(PhaseOutcome.TIMED_OUT, rateLimited, exitCode, wallMillis);
+            }
+            if (exitCode != 0) {
+                String errorMsg = session + " failed with exit code: " + exitCode + (rateLimited ? " (rate limited)" : "");
+                consoleError(cartridge, "    ✗ " + errorMsg);
+                logger.logToMaster("  " + label(cartridge) + "✗ " + errorMsg);
+                logger.logToCartridgeSummary(cartridge, "✗ " + summaryLabel + " failed with exit code: " + exitCode
+                    + (rateLimited ? " (rate limited)" : ""));
+                return new AgentAttempt(PhaseOutcome.FAILED, rateLimited, exitCode, wallMillis);
+            }
+            String successMsg = session + " completed successfully";
+            console(cartridge, "    ✓ " + successMsg);
+            logger.logToMaster("  " + label(cartridge) + "✓ " + successMsg);
+            logger.logToCartridgeSummary(cartridge, "✓ " + summaryLabel + " completed successfully");
+            return new AgentAttempt(PhaseOutcome.SUCCEEDED, false, exitCode, wallMillis);
+        } finally {
+            permit.release(rateLimited);
+        }
+    }
+
+    /**
+     * Runs a native phase (Java code) directly without using AI agent
+     */
+    private PhaseOutcome runNativePhase(Cartridge cartridge, Phase phase, Path logFile) {
+        try {
+            String successMsg;
+
+            // Native output goes straight to the phase log, so System.out stays untouched
+            // while other cartridges are running
+            try (var printStream = new java.io.PrintStream(
+                    new java.io.FileOutputStream(logFile.toFile(), true), true, java.nio.charset.StandardCharsets.UTF_8)) {
+                successMsg = switch (phase.getId()) {
+                    case "code_migration" -> migrateCode(cartridge, phase, printStream);
+                    case "dependency_resolution" -> updateDependencies(cartridge, printStream);
+                    default -> throw new IllegalStateException("No native implementation for phase: " + phase.getId());
+                };
+            }
+
+            console(cartridge, "    ✓ " + successMsg);
+            logger.logToMaster("  " + label(cartridge) + "✓ " + successMsg);
             logger.logToCartridgeSummary(cartridge, "✓ Phase " + phase.getOrder() + " completed (native)");
+            return PhaseOutcome.SUCCEEDED;
 
         } catch (Exception e) {
             String errorMsg = "Native phase failed: " + e.getMessage();
-            System.err.println("    ✗ " + errorMsg);
-            logger.logToMaster("  ✗ " + errorMsg);
+            consoleError(cartridge, "    ✗ " + errorMsg);
+            logger.logToMaster("  " + label(cartridge) + "✗ " + errorMsg);
             logger.logToCartridgeSummary(cartridge, "✗ Phase " + phase.getOrder() + " failed: " + e.getMessage());
-            throw new RuntimeException(e);
+            return PhaseOutcome.FAILED;
+        }
+    }
+
+    private String migrateCode(Cartridge cartridge, Phase phase, java.io.PrintStream printStream) {
+        CodeMigrator migrator = new CodeMigrator(cartridge.getPath(), printStream, migrationRules)
+            .setParallelism(codeMigrationThreads)
+            .setPhase(phase.getId())
+            .setJavaFiles(sourceIndex(cartridge).getJavaFiles());
+        migrator.migrate();
+        CodeMigrator.MigrationStats stats = migrator.getStats();
+
+        printStream.println("\n=== Code Migration Statistics ===");
+        printStream.println("Files processed: " + stats.filesProcessed());
+        printStream.println("Errors: " + stats.errorCount());
+        printStream.println("===================================\n");
+        return "Native phase completed: " + stats.filesProcessed() + " files";
+    }
+
+    /**
+     * Adds the dependencies of all imports the resolver can map to build.gradle.kts. The remaining
+     * imports are left to the agent phase that takes {@code unresolved_imports}.
+     */
+    private String updateDependencies(Cartridge cartridge, java.io.PrintStream printStream) throws IOException {
+        Path buildScript = Paths.get(cartridge.getPath(), "build.gradle.kts");
+        if (!java.nio.file.Files.exists(buildScript)) {
+            throw new IllegalStateException("Build script not found: " + buildScript);
+        }
+        DependencyResolver.Resolution resolution = resolveDependencies(cartridge, sourceIndex(cartridge).getImports(Set.of()));
+
+        printStream.println("=== Resolved Dependencies ===");
+        resolution.dependencies().forEach(printStream::println);
+        printStream.println("\n=== Unresolved Imports ===");
+        resolution.unresolved().forEach(printStream::println);
+        printStream.println();
+        int added = DependencyResolver.updateBuildScript(buildScript, resolution.dependencies(), printStream);
+
+        return "Native phase completed: " + added + " dependencies added, "
+            + resolution.unresolved().size() + " imports unresolved";
+    }
+
+    private DependencyResolver.Resolution resolveDependencies(Cartridge cartridge, Set<String> imports) {
+        return dependencyResolver().resolve(imports, sourceIndex(cartridge).getPackages());
+    }
+
+    /**
+     * The dependency resolver, created on first use and shared by all cartridges
+     */
+    private synchronized DependencyResolver dependencyResolver() {
+        if (dependencyResolver == null) {
+            dependencyResolver = new DependencyResolver(
+                phaseRepository.getDependencyMappings(), phaseRepository.getCartridgePackagesFile());
         }
+        return dependencyResolver;
     }
 }
@@ -1,7 +1,11 @@
 package com.intershop.mico.agent;
 
+import com.intershop.mico.agent.agents.AgentType;
+
 public interface Agent {
 
+    AgentType getType();
+    String getModel();
     String getExecutionCommand();
     Agent setModel(String model);
     Agent setDirectory(String directory);
@@ -0,0 +1,195 @@
+package com.intershop.mico.agent;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import com.intershop.mico.util.MigrationLogger;
+
+/**
+ * Throttles agent sessions per agent type and model, so parallel migrations stay below the
+ * provider limits.
+ * <p>
+ * Every agent and model has its own lane with a token bucket for process launches and a
+ * semaphore for concurrent sessions. When a session fails with a rate limit message in its
+ * output, the lane halves its concurrency and pauses launches; the pause doubles with every
+ * further rate limit. Each successful session raises the concurrency by one and halves the
+ * pause again, up to the configured maximum.
+ */
+public class AgentGovernor {
+
+    /** Pause of the launches after the first rate limit */
+    public static final Duration DEFAULT_INITIAL_PAUSE = Duration.ofSeconds(30);
+
+    /** Throttling messages of the providers, not just any 429 or "overloaded" in compiler output */
+    private static final Pattern RATE_LIMIT_PATTERN = Pattern.compile(
+        "(?i)\\bHTTP(?:/[0-9.]+)?[ :]+429\\b|\\b429 Too Many Requests\\b|\\brate[ _-]?limit(?:ed\\b|[ _](?:exceeded|reached)|_error)"
+            + "|\"type\"\\s*:\\s*\"overloaded_error\"|\\bquota exceeded\\b");
+    private static final int LOG_TAIL_BYTES = 16 * 1024;
+    private static final int LOG_TAIL_LINES = 20;
+    private static final long MAX_PAUSE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final int maxSessions;
+    private final int launchesPerMinute;
+    private final long initialPauseNanos;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxSessions       maximum number of concurrent sessions per agent and model
+     * @param launchesPerMinute maximum number of process launches per minute per agent and model, 0 for no limit
+     */
+    public AgentGovernor(int maxSessions, int launchesPerMinute) {
+        this(maxSessions, launchesPerMinute, DEFAULT_INITIAL_PAUSE);
+    }
+
+    /**
+     * @param maxSessions       maximum number of concurrent sessions per agent and model
+     * @param launchesPerMinute maximum number of process launches per minute per agent and model, 0 for no limit
+     * @param initialPause      pause of the launches after the first rate limit, zero for no pause
+     */
+    public AgentGovernor(int maxSessions, int launchesPerMinute, Duration initialPause) {
+        this.maxSessions = Math.max(1, maxSessions);
+        this.launchesPerMinute = Math.max(0, launchesPerMinute);
+        this.initialPauseNanos = Math.min(MAX_PAUSE_NANOS, Math.max(0, initialPause.toNanos()));
+    }
+
+    /**
+     * Waits until the agent may start a session. The returned permit must be released once the
+     * agent process has exited.
+     */
+    public Permit acquire(Agent agent) throws InterruptedException {
+        String model = agent.getModel() != null ? agent.getModel() : "default";
+        String key = agent.getType().name().toLowerCase() + ":" + model;
+        Lane lane = lanes.computeIfAbsent(key, Lane::new);
+        lane.acquire();
+        return new Permit(lane);
+    }
+
+    /**
+     * Whether the last lines of an agent log contain a rate limit or throttling message of the
+     * provider
+     */
+    public static boolean isRateLimited(Path logFile) {
+        String tail = MigrationLogger.readLogTail(logFile, LOG_TAIL_BYTES).stripTrailing();
+        int start = tail.length();
+        for (int lines = 0; lines < LOG_TAIL_LINES && start > 0; lines++) {
+            start = tail.lastIndexOf('\n', start - 1);
+            if (start < 0) {
+                start = 0;
+            }
+        }
+        return RATE_LIMIT_PATTERN.matcher(tail).region(start, tail.length()).find();
+    }
+
+    /**
+     * A running agent session
+     */
+    public static final class Permit {
+        private final Lane lane;
+        private boolean released;
+
+        private Permit(Lane lane) {
+            this.lane = lane;
+        }
+
+        /**
+         * Ends the session. Only the first call has an effect.
+         *
+         * @param rateLimited whether the session failed because the provider throttled it
+         */
+        public synchronized void release(boolean rateLimited) {
+            if (!released) {
+                released = true;
+                lane.release(rateLimited);
+            }
+        }
+    }
+
+    private final class Lane {
+        private final String key;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private int sessionLimit = maxSessions;
+        private int activeSessions;
+        private double tokens = Math.max(1, maxSessions);
+        private long lastRefill = System.nanoTime();
+        private long pauseNanos;
+        private long pausedUntil = System.nanoTime();
+
+        private Lane(String key) {
+            this.key = key;
+        }
+
+        private void acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    long waitNanos = 0;
+                    if (activeSessions >= sessionLimit) {
+                        waitNanos = Long.MAX_VALUE;
+                    }
+                    if (pausedUntil - now > 0) {
+                        waitNanos = Math.max(waitNanos, pausedUntil - now);
+                    }
+                    if (launchesPerMinute > 0 && tokens < 1) {
+                        waitNanos = Math.max(waitNanos, (long) ((1 - tokens) * nanosPerToken()));
+                    }
+                    if (waitNanos == 0) {
+                        activeSessions++;
+                        if (launchesPerMinute > 0) {
+                            tokens--;
+                        }
+                        return;
+                    }
+                    if (waitNanos == Long.MAX_VALUE) {
+                        changed.await();
+                    } else {
+                        changed.awaitNanos(waitNanos);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void release(boolean rateLimited) {
+            lock.lock();
+            try {
+                activeSessions--;
+                if (rateLimited) {
+                    sessionLimit = Math.max(1, sessionLimit / 2);
+                    pauseNanos = pauseNanos == 0 ? initialPauseNanos : Math.min(pauseNanos * 2, MAX_PAUSE_NANOS);
+                    pausedUntil = System.nanoTime() + pauseNanos;
+                    tokens = 0;
+                    System.out.println("⏸ " + key + " is rate limited, pausing launches for "
+                        + Duration.ofNanos(pauseNanos).toSeconds() + "s and allowing " + sessionLimit + " session(s)");
+                } else {
+                    sessionLimit = Math.min(maxSessions, sessionLimit + 1);
+                    pauseNanos = pauseNanos / 2 < TimeUnit.SECONDS.toNanos(1) ? 0 : pauseNanos / 2;
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void refill(long now) {
+            if (launchesPerMinute > 0) {
+                double burst = Math.max(1, maxSessions);
+                tokens = Math.min(burst, tokens + (now - lastRefill) / nanosPerToken());
+            }
+            lastRefill = now;
+        }
+
+        private double nanosPerToken() {
+            return (double) TimeUnit.MINUTES.toNanos(1) / launchesPerMinute;
+        }
+    }
+}
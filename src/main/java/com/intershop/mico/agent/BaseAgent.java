@@ -25,6 +25,11 @@ public abstract class BaseAgent implements Agent {
         return executionCommand;
     }
 
+    @Override
+    public String getModel() {
+        return model;
+    }
+
     @Override
     public Agent setModel(String model) {
         this.model = model;
@@ -1,5 +1,18 @@
 package com.intershop.mico.agent.agents;
 
 public enum AgentType {
-    COPILOT, CLAUDE_CODE
+    COPILOT("gpt-4.1"), CLAUDE_CODE(null), STUB("stub");
+
+    private final String defaultModel;
+
+    AgentType(String defaultModel) {
+        this.defaultModel = defaultModel;
+    }
+
+    /**
+     * Model used when none is configured, null if the agent picks it
+     */
+    public String getDefaultModel() {
+        return defaultModel;
+    }
 }
@@ -16,6 +16,11 @@ public class ClaudeCodeAgent extends BaseAgent {
         }
     }
 
+    @Override
+    public AgentType getType() {
+        return AgentType.CLAUDE_CODE;
+    }
+
     @Override
     public Agent allowAllTools() {
         command.add("--dangerously-skip-permissions");
@@ -6,6 +6,7 @@ import com.intershop.mico.agent.Agent;
 import com.intershop.mico.agent.BaseAgent;
 
 public class CopilotAgent extends BaseAgent {
+    private static final String DEFAULT_MODEL = AgentType.COPILOT.getDefaultModel();
 
     public CopilotAgent(File workingDirectory) {
         super(workingDirectory);
@@ -16,6 +17,16 @@ public class CopilotAgent extends BaseAgent {
         }
     }
 
+    @Override
+    public AgentType getType() {
+        return AgentType.COPILOT;
+    }
+
+    @Override
+    public String getModel() {
+        return model != null ? model : DEFAULT_MODEL;
+    }
+
     @Override
     public Agent allowAllTools() {
         command.add("--allow-all-tools");
@@ -36,6 +47,6 @@ public class CopilotAgent extends BaseAgent {
     }
 
     private void setDefaultModel(){
-        this.model = "gpt-4.1";
+        this.model = DEFAULT_MODEL;
     }
 }
@@ -0,0 +1,62 @@
+package com.intershop.mico.agent.agents;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import com.intershop.mico.agent.Agent;
+import com.intershop.mico.agent.BaseAgent;
+
+/**
+ * Offline agent for load tests and benchmarks of the orchestration. Launches
+ * {@link StubAgentSimulator} in a small JVM, or the command in {@value #COMMAND_ENV} if set.
+ * The simulator is configured through the environment, see {@link StubAgentSimulator}.
+ */
+public class StubAgent extends BaseAgent {
+    /** Command line of a script to launch instead of the simulator, split at whitespace */
+    public static final String COMMAND_ENV = "MICO_STUB_COMMAND";
+
+    private static final String DEFAULT_MODEL = AgentType.STUB.getDefaultModel();
+
+    public StubAgent(File workingDirectory) {
+        super(workingDirectory);
+        String script = System.getenv(COMMAND_ENV);
+        if (script != null && !script.isBlank()) {
+            command.addAll(Arrays.asList(script.trim().split("\\s+")));
+        } else {
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            // Start fast and small, the simulator does hardly any work
+            command.add("-XX:TieredStopAtLevel=1");
+            command.add("-XX:+UseSerialGC");
+            command.add("-Xmx64m");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(StubAgentSimulator.class.getName());
+        }
+    }
+
+    @Override
+    public AgentType getType() {
+        return AgentType.STUB;
+    }
+
+    @Override
+    public String getModel() {
+        return model != null ? model : DEFAULT_MODEL;
+    }
+
+    @Override
+    public Agent allowAllTools() {
+        return this;
+    }
+
+    @Override
+    public ProcessBuilder execute() {
+        command.add("--model");
+        command.add(getModel());
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(workingDirectory);
+        executionCommand = pb.command().toString();
+        return pb;
+    }
+}
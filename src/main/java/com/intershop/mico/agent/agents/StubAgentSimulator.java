@@ -0,0 +1,185 @@
+package com.intershop.mico.agent.agents;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Simulated agent session, launched by {@link StubAgent}.
+ * <p>
+ * Reads the prompt from stdin, finds the cartridge in it and applies canned edits for the phases
+ * that the following native phases depend on: the build script migration writes a minimal
+ * {@code build.gradle.kts}, moving the cartridge files moves the {@code staticfiles/cartridge}
+ * tree. All other phases only produce output. The session is shaped by environment variables:
+ * <ul>
+ *   <li>{@value #LATENCY_ENV}: duration of the session in milliseconds, default 1000</li>
+ *   <li>{@value #OUTPUT_LINES_ENV}: lines of output, spread over the duration, default 20</li>
+ *   <li>{@value #FAILURE_RATE_ENV}: probability of exiting with code 1, default 0</li>
+ *   <li>{@value #RATE_LIMIT_RATE_ENV}: probability of failing with a rate limit message, default 0</li>
+ *   <li>{@value #SEED_ENV}: makes failures depend only on the seed and the prompt, random by default</li>
+ * </ul>
+ */
+public final class StubAgentSimulator {
+    public static final String LATENCY_ENV = "MICO_STUB_LATENCY_MS";
+    public static final String OUTPUT_LINES_ENV = "MICO_STUB_OUTPUT_LINES";
+    public static final String FAILURE_RATE_ENV = "MICO_STUB_FAILURE_RATE";
+    public static final String RATE_LIMIT_RATE_ENV = "MICO_STUB_RATE_LIMIT_RATE";
+    public static final String SEED_ENV = "MICO_STUB_SEED";
+
+    private static final Pattern CARTRIDGE_PATH = Pattern.compile(
+        "Cartridge Path: (\\S+)|\\| `([^`]+)` \\| Directory containing the cartridge");
+    private static final String[] ACTIVITIES = {
+        "Reading", "Analyzing", "Editing", "Checking imports of", "Running gradle for", "Reviewing"
+    };
+
+    private StubAgentSimulator() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long latencyMillis;
+        int outputLines;
+        double failureRate;
+        double rateLimitRate;
+        Long seed;
+        try {
+            latencyMillis = Long.parseLong(env(LATENCY_ENV, "1000"));
+            outputLines = Integer.parseInt(env(OUTPUT_LINES_ENV, "20"));
+            failureRate = Double.parseDouble(env(FAILURE_RATE_ENV, "0"));
+            rateLimitRate = Double.parseDouble(env(RATE_LIMIT_RATE_ENV, "0"));
+            String seedValue = env(SEED_ENV, null);
+            seed = seedValue != null ? Long.parseLong(seedValue) : null;
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid stub agent setting: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        String prompt = new String(System.in.readAllBytes(), StandardCharsets.UTF_8);
+        Random random = seed != null ? new Random(seed * 31 + prompt.hashCode()) : new Random();
+        String title = prompt.lines().findFirst().orElse("").replaceFirst("^#+\\s*", "");
+        Path cartridge = findCartridge(prompt);
+        PrintStream out = System.out;
+        out.println("Stub agent " + modelOf(args) + ": " + title);
+        out.println("Prompt: " + prompt.length() + " characters, cartridge: " + cartridge);
+
+        long pause = outputLines > 0 ? latencyMillis / (outputLines + 1) : latencyMillis;
+        for (int i = 0; i < outputLines; i++) {
+            Thread.sleep(pause);
+            out.println("[" + (i + 1) + "/" + outputLines + "] " + ACTIVITIES[random.nextInt(ACTIVITIES.length)] + " "
+                + (cartridge != null ? cartridge.getFileName() : "cartridge") + " "
+                + Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+        }
+        Thread.sleep(outputLines > 0 ? pause : latencyMillis);
+
+        double roll = random.nextDouble();
+        if (roll < rateLimitRate) {
+            out.println("Error: 429 Too Many Requests (simulated rate limit)");
+            System.exit(1);
+        }
+        if (roll < rateLimitRate + failureRate) {
+            out.println("Error: simulated failure");
+            System.exit(1);
+        }
+
+        if (cartridge != null && Files.isDirectory(cartridge)) {
+            if (title.contains("Build Script Migration")) {
+                migrateBuildScript(cartridge, out);
+            } else if (title.contains("Move cartridge files")) {
+                moveStaticFiles(cartridge, out);
+            }
+        }
+        out.println("✅ Done");
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isBlank() ? value.trim() : defaultValue;
+    }
+
+    private static String modelOf(String[] args) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if ("--model".equals(args[i])) {
+                return args[i + 1];
+            }
+        }
+        return "stub";
+    }
+
+    private static Path findCartridge(String prompt) {
+        Matcher matcher = CARTRIDGE_PATH.matcher(prompt);
+        if (!matcher.find()) {
+            return null;
+        }
+        return Paths.get(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+    }
+
+    /**
+     * Replaces {@code build.gradle} by a minimal Kotlin build script
+     */
+    private static void migrateBuildScript(Path cartridge, PrintStream out) throws IOException {
+        Path groovy = cartridge.resolve("build.gradle");
+        Path kotlin = cartridge.resolve("build.gradle.kts");
+        if (Files.exists(kotlin)) {
+            return;
+        }
+        Files.writeString(kotlin, "plugins {\n    java\n    id(\"com.intershop.icm.cartridge.product\")\n}\n\n"
+            + "description = \"" + cartridge.getFileName() + "\"\n\ndependencies {\n}\n");
+        Files.deleteIfExists(groovy);
+        out.println("Wrote " + kotlin);
+    }
+
+    /**
+     * Moves {@code staticfiles/cartridge} below {@code src/main/resources/resources/<cartridge>},
+     * templates to {@code src/main/isml/<cartridge>}
+     */
+    private static void moveStaticFiles(Path cartridge, PrintStream out) throws IOException {
+        String name = cartridge.getFileName().toString();
+        Path staticfiles = cartridge.resolve("staticfiles");
+        Path files = staticfiles.resolve("cartridge");
+        if (!Files.isDirectory(files)) {
+            return;
+        }
+        Path target = cartridge.resolve("src/main/resources/resources").resolve(name);
+        if (Files.exists(target)) {
+            return;
+        }
+        Path templates = files.resolve("templates");
+        if (Files.isDirectory(templates)) {
+            Path templatesTarget = cartridge.resolve("src/main/isml").resolve(name);
+            Files.createDirectories(templatesTarget.getParent());
+            Files.move(templates, templatesTarget);
+            out.println("Moved " + templates + " to " + templatesTarget);
+        }
+        Files.createDirectories(target.getParent());
+        Files.move(files, target);
+        out.println("Moved " + files + " to " + target);
+
+        Path descriptor = staticfiles.resolve("share/system/config/cartridges/" + name + ".properties");
+        if (Files.exists(descriptor)) {
+            Path descriptorTarget = cartridge.resolve("src/main/resources/cartridges/" + name + ".properties");
+            Files.createDirectories(descriptorTarget.getParent());
+            Files.move(descriptor, descriptorTarget);
+        }
+        deleteEmptyDirectories(staticfiles);
+    }
+
+    private static void deleteEmptyDirectories(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path dir : paths.filter(Files::isDirectory).sorted(Comparator.reverseOrder()).toList()) {
+                try (Stream<Path> entries = Files.list(dir)) {
+                    if (entries.findAny().isEmpty()) {
+                        Files.delete(dir);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.intershop.mico.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An agent session, from creating the process until it exited
+ */
+@Name("com.intershop.mico.AgentProcess")
+@Label("Agent Process")
+@Category({"MiCo", "Agents"})
+@Description("Lifetime of an agent process")
+public class AgentProcessEvent extends MigrationEvent {
+
+    @Label("Agent")
+    public String agent;
+
+    @Label("Model")
+    public String model;
+
+    @Label("Attempt")
+    public int attempt;
+
+    @Label("Process ID")
+    public long pid;
+
+    @Label("Exit Code")
+    public int exitCode;
+
+    @Label("Killed")
+    @Description("Killed by the watchdog after a timeout")
+    public boolean killed;
+}
@@ -0,0 +1,25 @@
+package com.intershop.mico.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Native migration of a single Java file: read, rewrite and, if changed, write
+ */
+@Name("com.intershop.mico.FileMigration")
+@Label("File Migration")
+@Category({"MiCo", "Native"})
+public class FileMigrationEvent extends MigrationEvent {
+
+    @Label("File")
+    public String file;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+
+    @Label("Changed")
+    public boolean changed;
+}
@@ -0,0 +1,63 @@
+package com.intershop.mico.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * A Java Flight Recorder recording of the session, written to {@code mico-<start time>.jfr} in
+ * the session directory when it is closed or the JVM exits, so a resumed session keeps the
+ * recordings of earlier runs. Uses the JDK's {@code default} settings, which are meant for
+ * continuous use in production, plus all MiCo events.
+ */
+public class FlightRecording implements AutoCloseable {
+    private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Recording recording;
+    private final Path file;
+
+    private FlightRecording(Recording recording, Path file) {
+        this.recording = recording;
+        this.file = file;
+    }
+
+    /**
+     * Starts recording into the session directory
+     */
+    public static FlightRecording start(Path sessionLogDir) throws IOException {
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration("default");
+        } catch (ParseException e) {
+            throw new IOException("Cannot read JFR settings: " + e.getMessage(), e);
+        }
+        Recording recording = new Recording(configuration);
+        recording.setName("MiCo");
+        recording.enable(PhaseExecutionEvent.class);
+        recording.enable(AgentProcessEvent.class);
+        recording.enable(FileMigrationEvent.class);
+        recording.enable(SourceScanEvent.class);
+        Path file = sessionLogDir.resolve("mico-" + LocalDateTime.now().format(FILE_TIME_FORMAT) + ".jfr");
+        recording.setDestination(file);
+        recording.setDumpOnExit(true);
+        recording.start();
+        return new FlightRecording(recording, file);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Stops the recording and writes it to the file
+     */
+    @Override
+    public void close() {
+        recording.close();
+    }
+}
@@ -0,0 +1,16 @@
+package com.intershop.mico.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Base of the MiCo events, labelled with the cartridge and, where known, the phase they belong to
+ */
+public abstract class MigrationEvent extends Event {
+
+    @Label("Cartridge")
+    public String cartridge;
+
+    @Label("Phase")
+    public String phase;
+}
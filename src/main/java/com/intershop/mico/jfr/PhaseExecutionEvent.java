@@ -0,0 +1,23 @@
+package com.intershop.mico.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A phase of a cartridge, from the start until its outcome is known, including retries
+ */
+@Name("com.intershop.mico.PhaseExecution")
+@Label("Phase Execution")
+@Category({"MiCo", "Phases"})
+@Description("Execution of a migration phase for a cartridge")
+public class PhaseExecutionEvent extends MigrationEvent {
+
+    @Label("Resource")
+    @Description("agent or native")
+    public String resource;
+
+    @Label("Outcome")
+    public String outcome;
+}
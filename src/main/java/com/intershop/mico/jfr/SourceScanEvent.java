@@ -0,0 +1,29 @@
+package com.intershop.mico.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Indexing a cartridge, refreshing its index after a phase, or collecting its imports
+ */
+@Name("com.intershop.mico.SourceScan")
+@Label("Source Scan")
+@Category({"MiCo", "Native"})
+public class SourceScanEvent extends MigrationEvent {
+
+    @Label("Operation")
+    @Description("index, refresh or imports")
+    public String operation;
+
+    @Label("Files")
+    public int files;
+
+    @Label("Changed Files")
+    @Description("Files added, removed or changed since the last refresh")
+    public int changedFiles;
+
+    @Label("Imports")
+    public int imports;
+}
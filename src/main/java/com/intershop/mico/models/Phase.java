@@ -1,13 +1,25 @@
 package com.intershop.mico.models;
 
+import java.util.List;
 import java.util.Map;
 
 public class Phase {
+    /** Resource class of phases that talk to an AI agent */
+    public static final String RESOURCE_AGENT = "agent";
+    /** Resource class of phases that run Java code in-process */
+    public static final String RESOURCE_NATIVE = "native";
+
     private String name;
     private String instructions;
     private String id;
     private int order;
     private Map<String, String> inputs;
+    private List<String> dependsOn;
+    private String resource;
+    private int timeoutMinutes;
+    private int idleTimeoutMinutes;
+    private RetryPolicy retry;
+    private String skipIfEmpty;
 
     public Phase(String name, String instructions, String id, int order, Map<String, String> inputs) {
         this.name = name;
@@ -56,4 +68,71 @@ public class Phase {
     public void setInputs(Map<String, String> inputs) {
         this.inputs = inputs;
     }
+
+    /**
+     * Ids of the phases that must have completed for the same cartridge before this one starts
+     */
+    public List<String> getDependsOn() {
+        return dependsOn;
+    }
+
+    public void setDependsOn(List<String> dependsOn) {
+        this.dependsOn = dependsOn;
+    }
+
+    /**
+     * Resource class the phase occupies while running, {@link #RESOURCE_AGENT} if not configured
+     */
+    public String getResource() {
+        return resource != null ? resource : RESOURCE_AGENT;
+    }
+
+    public void setResource(String resource) {
+        this.resource = resource;
+    }
+
+    /**
+     * Minutes an agent process may run before it is killed, 0 for no limit
+     */
+    public int getTimeoutMinutes() {
+        return timeoutMinutes;
+    }
+
+    public void setTimeoutMinutes(int timeoutMinutes) {
+        this.timeoutMinutes = timeoutMinutes;
+    }
+
+    /**
+     * Minutes an agent process may run without writing any output before it is killed, 0 for no limit
+     */
+    public int getIdleTimeoutMinutes() {
+        return idleTimeoutMinutes;
+    }
+
+    public void setIdleTimeoutMinutes(int idleTimeoutMinutes) {
+        this.idleTimeoutMinutes = idleTimeoutMinutes;
+    }
+
+    /**
+     * Retry policy for failed agent attempts, {@link RetryPolicy#NONE} if not configured
+     */
+    public RetryPolicy getRetry() {
+        return retry != null ? retry : RetryPolicy.NONE;
+    }
+
+    public void setRetry(RetryPolicy retry) {
+        this.retry = retry;
+    }
+
+    /**
+     * Input that, when empty for a cartridge, means the phase has nothing to do and completes
+     * without running, e.g. {@code unresolved_imports}
+     */
+    public String getSkipIfEmpty() {
+        return skipIfEmpty;
+    }
+
+    public void setSkipIfEmpty(String skipIfEmpty) {
+        this.skipIfEmpty = skipIfEmpty;
+    }
 }
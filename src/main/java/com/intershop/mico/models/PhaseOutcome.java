@@ -0,0 +1,24 @@
+package com.intershop.mico.models;
+
+/**
+ * Result of running a phase for a cartridge
+ */
+public enum PhaseOutcome {
+    /** The phase ran and completed successfully */
+    SUCCEEDED,
+    /** The phase did not run because its inputs match a previous successful run */
+    UNCHANGED,
+    /** The phase ran and failed, either with a non-zero exit code or an error */
+    FAILED,
+    /** The phase was killed because it exceeded its timeout or stopped producing output */
+    TIMED_OUT,
+    /** The phase did not run because a phase it depends on did not succeed */
+    SKIPPED;
+
+    /**
+     * Whether phases depending on this one may run
+     */
+    public boolean isSuccessful() {
+        return this == SUCCEEDED || this == UNCHANGED;
+    }
+}
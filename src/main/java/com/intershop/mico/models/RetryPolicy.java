@@ -0,0 +1,66 @@
+package com.intershop.mico.models;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How often a failed agent phase is attempted again and how long to wait in between.
+ * The wait grows exponentially from {@code initialBackoffSeconds} up to {@code maxBackoffSeconds}
+ * and is varied by {@code jitter} (a fraction, e.g. 0.2 for ±20%) so parallel cartridges do not retry
+ * in lockstep.
+ */
+public class RetryPolicy {
+    /** A single attempt, no retries */
+    public static final RetryPolicy NONE = new RetryPolicy();
+
+    private int maxAttempts = 1;
+    private int initialBackoffSeconds = 30;
+    private int maxBackoffSeconds = 600;
+    private double jitter = 0.2;
+
+    public RetryPolicy() {
+    }
+
+    public int getMaxAttempts() {
+        return Math.max(1, maxAttempts);
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public int getInitialBackoffSeconds() {
+        return initialBackoffSeconds;
+    }
+
+    public void setInitialBackoffSeconds(int initialBackoffSeconds) {
+        this.initialBackoffSeconds = initialBackoffSeconds;
+    }
+
+    public int getMaxBackoffSeconds() {
+        return maxBackoffSeconds;
+    }
+
+    public void setMaxBackoffSeconds(int maxBackoffSeconds) {
+        this.maxBackoffSeconds = maxBackoffSeconds;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(double jitter) {
+        this.jitter = jitter;
+    }
+
+    /**
+     * Time to wait after the given failed attempt (starting at 1) before the next one
+     */
+    public Duration getBackoff(int failedAttempt) {
+        double seconds = Math.min(maxBackoffSeconds,
+            Math.max(0, initialBackoffSeconds) * Math.pow(2, Math.max(0, failedAttempt - 1)));
+        double spread = Math.min(1, Math.max(0, jitter));
+        seconds *= 1 + ThreadLocalRandom.current().nextDouble(-spread, Math.nextUp(spread));
+        return Duration.ofMillis(Math.round(Math.max(0, seconds) * 1000));
+    }
+}
@@ -9,11 +9,23 @@ import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class PhaseRepository {
+    /** Instructions for the repair pass that follows a failed agent attempt */
+    public static final String FIX_INSTRUCTIONS = "Fix.md";
+    /** Instructions whose mapping tables drive the native dependency resolution */
+    public static final String DEPENDENCY_MAPPINGS = "Phase_2.md";
+    /** Maps cartridge artifacts to the packages they provide */
+    public static final String CARTRIDGE_PACKAGES = "cartridge-packages.properties";
+
     private final Path configPath;
     private final Path instructionsPath;
     private final Gson gson;
@@ -24,6 +36,10 @@ public class PhaseRepository {
         this.gson = new Gson();
     }
 
+    /**
+     * Loads the phases sorted by order. Phases without {@code dependsOn} depend on the
+     * previous phase, which keeps configurations without explicit edges strictly ordered.
+     */
     public List<Phase> getPhases() {
         try {
             String json = Files.readString(configPath);
@@ -31,9 +47,18 @@ public class PhaseRepository {
             List<Phase> phases = gson.fromJson(json, listType);
 
             // Sort phases by order
-            return phases.stream()
+            List<Phase> sorted = phases.stream()
                     .sorted(Comparator.comparingInt(Phase::getOrder))
                     .collect(Collectors.toList());
+
+            for (int i = 0; i < sorted.size(); i++) {
+                Phase phase = sorted.get(i);
+                if (phase.getDependsOn() == null) {
+                    phase.setDependsOn(i == 0 ? List.of() : List.of(sorted.get(i - 1).getId()));
+                }
+            }
+            validateDependencies(sorted);
+            return sorted;
         } catch (IOException e) {
             throw new RuntimeException("Failed to load phases configuration", e);
         }
@@ -47,4 +72,69 @@ public class PhaseRepository {
             throw new RuntimeException("Failed to load instructions for phase: " + phase.getName(), e);
         }
     }
+
+    /**
+     * Loads the instructions of the repair pass run after a failed agent attempt
+     */
+    public String getFixInstructions() {
+        try {
+            return Files.readString(instructionsPath.resolve(FIX_INSTRUCTIONS));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load fix instructions: " + FIX_INSTRUCTIONS, e);
+        }
+    }
+
+    /**
+     * Loads the instructions containing the import to dependency mapping tables
+     */
+    public String getDependencyMappings() {
+        try {
+            return Files.readString(instructionsPath.resolve(DEPENDENCY_MAPPINGS));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load dependency mappings: " + DEPENDENCY_MAPPINGS, e);
+        }
+    }
+
+    public Path getCartridgePackagesFile() {
+        return instructionsPath.resolve(CARTRIDGE_PACKAGES);
+    }
+
+    /**
+     * Rejects duplicate ids, unknown {@code dependsOn} references and dependency cycles
+     */
+    private void validateDependencies(List<Phase> phases) {
+        Map<String, Phase> byId = new LinkedHashMap<>();
+        for (Phase phase : phases) {
+            if (byId.put(phase.getId(), phase) != null) {
+                throw new IllegalStateException("Duplicate phase id in " + configPath + ": " + phase.getId());
+            }
+        }
+        for (Phase phase : phases) {
+            for (String dependency : phase.getDependsOn()) {
+                if (!byId.containsKey(dependency)) {
+                    throw new IllegalStateException("Phase " + phase.getId() + " depends on unknown phase: " + dependency);
+                }
+            }
+        }
+
+        Set<String> visited = new HashSet<>();
+        for (Phase phase : phases) {
+            checkCycle(phase, byId, visited, new ArrayList<>());
+        }
+    }
+
+    private void checkCycle(Phase phase, Map<String, Phase> byId, Set<String> visited, List<String> path) {
+        if (path.contains(phase.getId())) {
+            path.add(phase.getId());
+            throw new IllegalStateException("Phase dependency cycle: " + String.join(" -> ", path));
+        }
+        if (!visited.add(phase.getId())) {
+            return;
+        }
+        path.add(phase.getId());
+        for (String dependency : phase.getDependsOn()) {
+            checkCycle(byId.get(dependency), byId, visited, path);
+        }
+        path.remove(path.size() - 1);
+    }
 }
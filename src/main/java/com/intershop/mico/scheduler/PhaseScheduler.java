@@ -0,0 +1,326 @@
+package com.intershop.mico.scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.intershop.mico.models.Cartridge;
+import com.intershop.mico.models.Phase;
+import com.intershop.mico.models.PhaseOutcome;
+
+/**
+ * Schedules (cartridge, phase) tasks over a phase dependency graph.
+ * <p>
+ * A task becomes ready once all phases it {@link Phase#getDependsOn() depends on} have succeeded
+ * for the same cartridge. Each task occupies one slot of its {@link Phase#getResource() resource class}
+ * while it runs, so a native phase of one cartridge can run on the CPU while another cartridge waits
+ * on an agent. Ready tasks are started in cartridge order, then phase order, so earlier cartridges
+ * finish first.
+ * <p>
+ * A phase that does not succeed only affects its own cartridge: the phases depending on it are
+ * skipped, all other work goes on.
+ * <p>
+ * A task may ask to run again after a delay, e.g. for the next attempt after a retry backoff. It
+ * gives up its slot while it waits, so other tasks can use it.
+ * <p>
+ * The dispatcher only does bookkeeping. Completed cartridges are handed to a thread of their own,
+ * so the work done when a cartridge completes never holds up the start of other tasks.
+ */
+public class PhaseScheduler {
+
+    /**
+     * Executes a single phase for a cartridge and receives cartridge lifecycle callbacks.
+     */
+    public interface PhaseRunner {
+        RunResult run(Cartridge cartridge, Phase phase) throws Exception;
+
+        /**
+         * Whether the phase already completed for the cartridge, e.g. in a resumed session.
+         * Completed phases are not run again.
+         */
+        default boolean isCompleted(Cartridge cartridge, Phase phase) {
+            return false;
+        }
+
+        default void phaseSkipped(Cartridge cartridge, Phase phase, Phase failedDependency) {
+            // Default implementation does nothing
+        }
+
+        default void cartridgeStarted(Cartridge cartridge) {
+            // Default implementation does nothing
+        }
+
+        /**
+         * Called once all phases of the cartridge have an outcome, also for a cartridge whose
+         * phases were all completed before and that was therefore never started. Runs on a
+         * completion thread, one cartridge after the other, and before {@link #run(List, List, PhaseRunner)}
+         * returns.
+         */
+        default void cartridgeCompleted(Cartridge cartridge, boolean successful) {
+            // Default implementation does nothing
+        }
+    }
+
+    /**
+     * Result of running a task once: its outcome, or the delay after which it wants to run again
+     */
+    public record RunResult(PhaseOutcome outcome, Duration retryAfter) {
+
+        public static RunResult finished(PhaseOutcome outcome) {
+            return new RunResult(outcome, null);
+        }
+
+        public static RunResult retryAfter(Duration delay) {
+            return new RunResult(null, delay);
+        }
+
+        public boolean isRetry() {
+            return retryAfter != null;
+        }
+    }
+
+    private enum State { PENDING, RUNNING, DONE }
+
+    private static final class Task {
+        private final Cartridge cartridge;
+        private final Phase phase;
+        private final List<Task> dependencies = new ArrayList<>();
+        private State state = State.PENDING;
+        private PhaseOutcome outcome;
+        /** {@link System#nanoTime()} before which a task waiting for a retry must not start, 0 if not waiting */
+        private long notBefore;
+
+        private Task(Cartridge cartridge, Phase phase) {
+            this.cartridge = cartridge;
+            this.phase = phase;
+        }
+
+        private boolean isReady(long now) {
+            return state == State.PENDING
+                    && (notBefore == 0 || now - notBefore >= 0)
+                    && dependencies.stream().allMatch(d -> d.state == State.DONE && d.outcome.isSuccessful());
+        }
+
+        private Task failedDependency() {
+            return dependencies.stream()
+                    .filter(d -> d.state == State.DONE && !d.outcome.isSuccessful())
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        private void finish(PhaseOutcome outcome) {
+            this.state = State.DONE;
+            this.outcome = outcome;
+        }
+    }
+
+    private record Completion(Task task, RunResult result) {}
+
+    private final Map<String, Integer> resourceSlots;
+
+    /**
+     * @param resourceSlots number of tasks that may run at the same time per resource class.
+     *                      Resource classes without an entry get a single slot.
+     */
+    public PhaseScheduler(Map<String, Integer> resourceSlots) {
+        this.resourceSlots = new HashMap<>(resourceSlots);
+    }
+
+    /**
+     * Maximum number of tasks that can run at once for the given phases
+     */
+    public int getMaxConcurrency(List<Phase> phases) {
+        return phases.stream()
+                .map(Phase::getResource)
+                .distinct()
+                .mapToInt(this::slotsFor)
+                .sum();
+    }
+
+    /**
+     * Runs all phases for all cartridges and blocks until every task has an outcome.
+     *
+     * @return number of tasks per outcome, excluding tasks that were already completed
+     */
+    public Map<PhaseOutcome, Integer> run(List<Cartridge> cartridges, List<Phase> phases, PhaseRunner runner) {
+        List<Task> tasks = createTasks(cartridges, phases);
+        Map<PhaseOutcome, Integer> outcomes = new LinkedHashMap<>();
+        Set<Cartridge> startedCartridges = new HashSet<>();
+        Map<Cartridge, Integer> openTasks = new HashMap<>();
+
+        for (Task task : tasks) {
+            if (runner.isCompleted(task.cartridge, task.phase)) {
+                task.finish(PhaseOutcome.SUCCEEDED);
+            } else {
+                openTasks.merge(task.cartridge, 1, Integer::sum);
+            }
+        }
+
+        Map<String, Integer> freeSlots = new HashMap<>();
+        phases.forEach(phase -> freeSlots.put(phase.getResource(), slotsFor(phase.getResource())));
+
+        BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, getMaxConcurrency(phases)));
+        ExecutorService cartridgeCompletions = Executors.newSingleThreadExecutor();
+        int running = 0;
+        int waiting = 0;
+
+        try {
+            // A resumed cartridge may have completed all phases before its completion was handled
+            for (Cartridge cartridge : cartridges) {
+                if (!phases.isEmpty() && !openTasks.containsKey(cartridge)) {
+                    cartridgeCompletions.execute(() -> completeSafely(runner, cartridge, true));
+                }
+            }
+
+            while (true) {
+                skipBlockedTasks(tasks, runner, outcomes, openTasks, cartridgeCompletions);
+
+                long now = System.nanoTime();
+                long nextRetry = Long.MAX_VALUE;
+                for (Task task : tasks) {
+                    String resource = task.phase.getResource();
+                    if (freeSlots.get(resource) > 0 && task.isReady(now)) {
+                        freeSlots.merge(resource, -1, Integer::sum);
+                        if (startedCartridges.add(task.cartridge)) {
+                            runner.cartridgeStarted(task.cartridge);
+                        }
+                        if (task.notBefore != 0) {
+                            task.notBefore = 0;
+                            waiting--;
+                        }
+                        task.state = State.RUNNING;
+                        running++;
+                        executor.execute(() -> completions.add(new Completion(task, runSafely(runner, task))));
+                    } else if (task.state == State.PENDING && task.notBefore != 0 && task.notBefore - now > 0) {
+                        // Due tasks that wait for a slot start on the next completion
+                        nextRetry = Math.min(nextRetry, task.notBefore - now);
+                    }
+                }
+
+                if (running == 0 && waiting == 0) {
+                    break;
+                }
+
+                Completion completion = nextRetry == Long.MAX_VALUE
+                        ? completions.take()
+                        : completions.poll(nextRetry, TimeUnit.NANOSECONDS);
+                if (completion == null) {
+                    // A waiting task is due
+                    continue;
+                }
+                running--;
+                freeSlots.merge(completion.task.phase.getResource(), 1, Integer::sum);
+                if (completion.result.isRetry()) {
+                    completion.task.state = State.PENDING;
+                    completion.task.notBefore = System.nanoTime() + Math.max(1, completion.result.retryAfter().toNanos());
+                    waiting++;
+                    continue;
+                }
+                completion.task.finish(completion.result.outcome());
+                outcomes.merge(completion.result.outcome(), 1, Integer::sum);
+                closeTask(completion.task, tasks, runner, openTasks, cartridgeCompletions);
+            }
+
+            cartridgeCompletions.shutdown();
+            cartridgeCompletions.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for phases", e);
+        } finally {
+            executor.shutdownNow();
+            cartridgeCompletions.shutdownNow();
+        }
+        return outcomes;
+    }
+
+    /**
+     * Marks pending tasks whose dependencies did not succeed as skipped, until nothing changes
+     */
+    private void skipBlockedTasks(List<Task> tasks, PhaseRunner runner, Map<PhaseOutcome, Integer> outcomes,
+                                  Map<Cartridge, Integer> openTasks, Executor cartridgeCompletions) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Task task : tasks) {
+                Task failedDependency = task.state == State.PENDING ? task.failedDependency() : null;
+                if (failedDependency != null) {
+                    task.finish(PhaseOutcome.SKIPPED);
+                    outcomes.merge(PhaseOutcome.SKIPPED, 1, Integer::sum);
+                    runner.phaseSkipped(task.cartridge, task.phase, failedDependency.phase);
+                    closeTask(task, tasks, runner, openTasks, cartridgeCompletions);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private void closeTask(Task task, List<Task> tasks, PhaseRunner runner, Map<Cartridge, Integer> openTasks,
+                           Executor cartridgeCompletions) {
+        if (openTasks.merge(task.cartridge, -1, Integer::sum) == 0) {
+            boolean successful = tasks.stream()
+                    .filter(other -> other.cartridge == task.cartridge)
+                    .allMatch(other -> other.outcome.isSuccessful());
+            cartridgeCompletions.execute(() -> completeSafely(runner, task.cartridge, successful));
+        }
+    }
+
+    /**
+     * Reports a completed cartridge. Anything the runner throws is logged, so the remaining
+     * cartridges are still reported.
+     */
+    private void completeSafely(PhaseRunner runner, Cartridge cartridge, boolean successful) {
+        try {
+            runner.cartridgeCompleted(cartridge, successful);
+        } catch (Throwable e) {
+            System.err.println("Unexpected error completing " + cartridge.getName() + ": " + e);
+        }
+    }
+
+    /**
+     * Runs a task and turns anything it throws into a failed outcome, so the dispatcher
+     * always receives a completion and never waits forever
+     */
+    private RunResult runSafely(PhaseRunner runner, Task task) {
+        try {
+            RunResult result = runner.run(task.cartridge, task.phase);
+            return result != null ? result : RunResult.finished(PhaseOutcome.FAILED);
+        } catch (Throwable e) {
+            System.err.println("Unexpected error in phase " + task.phase.getId() + " for " + task.cartridge.getName() + ": " + e);
+            return RunResult.finished(PhaseOutcome.FAILED);
+        }
+    }
+
+    private List<Task> createTasks(List<Cartridge> cartridges, List<Phase> phases) {
+        List<Task> tasks = new ArrayList<>();
+        for (Cartridge cartridge : cartridges) {
+            Map<String, Task> byPhaseId = new LinkedHashMap<>();
+            for (Phase phase : phases) {
+                Task task = new Task(cartridge, phase);
+                byPhaseId.put(phase.getId(), task);
+                tasks.add(task);
+            }
+            for (Task task : byPhaseId.values()) {
+                for (String dependency : task.phase.getDependsOn()) {
+                    task.dependencies.add(byPhaseId.get(dependency));
+                }
+            }
+        }
+        return tasks;
+    }
+
+    private int slotsFor(String resource) {
+        return Math.max(1, resourceSlots.getOrDefault(resource, 1));
+    }
+}
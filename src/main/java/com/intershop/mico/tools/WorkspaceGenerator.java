@@ -0,0 +1,415 @@
+package com.intershop.mico.tools;
+
+import com.intershop.mico.util.MigrationRuleSet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Generates a workspace of synthetic ICM 7.10 cartridges for load tests, so MiCo can be run at
+ * scale without customer code.
+ * <p>
+ * Every cartridge has a legacy {@code build.gradle}, Java sources and JUnit 5 / Mockito tests,
+ * and a {@code staticfiles} tree with pipelines, queries, ISML templates and properties. The
+ * imports are drawn from the ICM packages in {@code cartridge-packages.properties} and from the
+ * package and class keys of the migration rules, so the native phases and the pruning of the
+ * mapping tables have realistic work to do.
+ * <p>
+ * The content only depends on the seed and the size parameters. Each cartridge is derived from
+ * the seed and its index, so a larger workspace starts with the cartridges of a smaller one.
+ */
+public class WorkspaceGenerator {
+
+    public static final Path DEFAULT_CARTRIDGE_PACKAGES = Paths.get("phases/instructions/cartridge-packages.properties");
+
+    /** Statistics of a generated workspace */
+    public record Stats(int cartridges, int javaFiles, int otherFiles, long bytes) {}
+
+    private static final String[] CARTRIDGE_PREFIXES = {"app_sf_", "ac_", "bc_", "int_", "pf_"};
+    private static final String[] WORDS = {
+        "basket", "order", "customer", "catalog", "pricing", "promotion", "payment", "shipping",
+        "inventory", "search", "approval", "budget", "quote", "wishlist", "address", "dataexport",
+        "dataimport", "tax", "warehouse", "loyalty"
+    };
+    private static final String[] SUB_PACKAGES = {"capi", "internal", "pipelet", "rest", "dbinit"};
+    private static final String[] TYPE_NAMES = {
+        "Basket", "Product", "Customer", "PriceList", "Domain", "Request", "Money", "Quantity",
+        "Localization", "LineItem", "Catalog", "Promotion", "Address", "Payment", "Shipping",
+        "Order", "Repository", "Service", "Handler", "Provider", "Factory", "Mapper"
+    };
+    /** JUnit 5 classes every generated test uses, further ones are added at random */
+    private static final String[] TEST_ANNOTATIONS = {
+        "org.junit.jupiter.api.Test",
+        "org.junit.jupiter.api.BeforeEach",
+        "org.junit.jupiter.api.Assertions",
+        "org.junit.jupiter.api.extension.ExtendWith",
+    };
+    private static final String[] TEST_IMPORTS = {
+        "org.mockito.Mock",
+        "org.mockito.Mockito",
+        "org.mockito.MockitoAnnotations",
+        "org.mockito.junit.jupiter.MockitoExtension",
+    };
+
+    private final long seed;
+    private final List<String> icmPackages;
+    private final List<String> legacyPackages;
+    private final List<String> ruleClasses;
+    private int cartridges = 100;
+    private int javaFilesPerCartridge = 100;
+
+    /**
+     * @param seed seed of all random choices
+     * @param icmPackages ICM package names to import from, e.g. from {@link #loadPackages(Path)}
+     * @param rules rules whose package and class keys are imported
+     */
+    public WorkspaceGenerator(long seed, List<String> icmPackages, MigrationRuleSet rules) {
+        if (icmPackages.isEmpty()) {
+            throw new IllegalArgumentException("No ICM packages to import from");
+        }
+        this.seed = seed;
+        this.icmPackages = List.copyOf(icmPackages);
+        this.legacyPackages = rules.getPackagePrefixes().stream()
+            .map(prefix -> prefix.endsWith(".") ? prefix.substring(0, prefix.length() - 1) : prefix)
+            .toList();
+        this.ruleClasses = List.copyOf(rules.getClasses().keySet());
+    }
+
+    /**
+     * Sets the number of cartridges, 100 by default
+     */
+    public WorkspaceGenerator setCartridges(int cartridges) {
+        if (cartridges < 1) {
+            throw new IllegalArgumentException("Cartridges must be at least 1, was " + cartridges);
+        }
+        this.cartridges = cartridges;
+        return this;
+    }
+
+    /**
+     * Sets the average number of main Java files per cartridge, 100 by default. The actual
+     * number varies between half and one and a half times the average; tests come on top.
+     */
+    public WorkspaceGenerator setJavaFilesPerCartridge(int javaFilesPerCartridge) {
+        if (javaFilesPerCartridge < 1) {
+            throw new IllegalArgumentException("Java files per cartridge must be at least 1, was " + javaFilesPerCartridge);
+        }
+        this.javaFilesPerCartridge = javaFilesPerCartridge;
+        return this;
+    }
+
+    /**
+     * Reads the package names of {@code cartridge-packages.properties}
+     */
+    public static List<String> loadPackages(Path file) throws IOException {
+        Set<String> packages = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            int separator = trimmed.indexOf('=');
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("!") || separator < 0) {
+                continue;
+            }
+            packages.add(trimmed.substring(separator + 1).trim());
+        }
+        return List.copyOf(packages);
+    }
+
+    /**
+     * Generates the workspace, one directory per cartridge
+     *
+     * @param root empty or missing directory
+     * @throws IllegalArgumentException if the directory is not empty
+     */
+    public Stats generate(Path root) throws IOException {
+        if (Files.isDirectory(root)) {
+            try (Stream<Path> entries = Files.list(root)) {
+                if (entries.findAny().isPresent()) {
+                    throw new IllegalArgumentException("Workspace directory is not empty: " + root);
+                }
+            }
+        }
+        Files.createDirectories(root);
+        Stats total = new Stats(0, 0, 0, 0);
+        for (int i = 0; i < cartridges; i++) {
+            Stats stats = generateCartridge(root, i);
+            total = new Stats(total.cartridges() + 1, total.javaFiles() + stats.javaFiles(),
+                total.otherFiles() + stats.otherFiles(), total.bytes() + stats.bytes());
+        }
+        return total;
+    }
+
+    /**
+     * Generates a single cartridge below the root
+     *
+     * @param index position of the cartridge in the workspace, determines its content
+     */
+    public Stats generateCartridge(Path root, int index) throws IOException {
+        return new CartridgeWriter(new Random(seed * 31 + index), index).write(root);
+    }
+
+    private final class CartridgeWriter {
+        private final Random random;
+        private final String name;
+        private final String basePackage;
+        private int javaFiles;
+        private int otherFiles;
+        private long bytes;
+
+        private CartridgeWriter(Random random, int index) {
+            this.random = random;
+            String word = pick(WORDS);
+            this.name = pick(CARTRIDGE_PREFIXES) + word + "_" + String.format("%03d", index);
+            this.basePackage = "com.customer." + word + ".c" + index;
+        }
+
+        private Stats write(Path root) throws IOException {
+            Path cartridge = root.resolve(name);
+            write(cartridge.resolve("build.gradle"), buildFile());
+
+            int mainFiles = javaFilesPerCartridge / 2 + random.nextInt(javaFilesPerCartridge + 1);
+            for (int i = 0; i < mainFiles; i++) {
+                String pkg = basePackage + "." + pick(SUB_PACKAGES);
+                String className = pick(TYPE_NAMES) + pick(TYPE_NAMES) + i;
+                write(javaPath(cartridge.resolve("src/main/java"), pkg, className), mainClass(pkg, className));
+                javaFiles++;
+                if (random.nextInt(4) == 0) {
+                    write(javaPath(cartridge.resolve("src/test/java"), pkg, className + "Test"),
+                        testClass(pkg, className));
+                    javaFiles++;
+                }
+            }
+
+            Path staticfiles = cartridge.resolve("staticfiles/cartridge");
+            write(cartridge.resolve("staticfiles/share/system/config/cartridges/" + name + ".properties"),
+                "cartridge.name=" + name + "\ncartridge.displayName=" + name + "\n");
+            write(staticfiles.resolve("dbinit.properties"), "pre.Class0=" + basePackage + ".dbinit.PrepareDomain\n");
+            write(staticfiles.resolve("migration.properties"), "migration.version=7.10\n");
+            int resources = 2 + random.nextInt(Math.max(1, mainFiles / 4));
+            for (int i = 0; i < resources; i++) {
+                String type = pick(TYPE_NAMES);
+                write(staticfiles.resolve("pipelines/Process" + type + i + ".pipeline"), pipeline(type + i));
+                write(staticfiles.resolve("queries/" + type.toLowerCase() + "/Get" + type + i + ".query"), query(type));
+                write(staticfiles.resolve("templates/default/" + type.toLowerCase() + "/" + type + i + ".isml"), template(type));
+            }
+            return new Stats(1, javaFiles, otherFiles, bytes);
+        }
+
+        private String buildFile() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("apply plugin: 'java-cartridge'\n");
+            sb.append("apply plugin: 'static-cartridge'\n\n");
+            sb.append("intershop {\n    displayName = '").append(name).append("'\n}\n\n");
+            sb.append("dependencies {\n");
+            for (int i = 0; i < 3 + random.nextInt(6); i++) {
+                sb.append("    compile group: 'com.intershop.platform', name: '").append(pick(WORDS)).append("'\n");
+            }
+            sb.append("    compile 'javax.inject:javax.inject'\n");
+            sb.append("    testCompile 'org.junit.jupiter:junit-jupiter-api'\n");
+            sb.append("    testCompile 'org.mockito:mockito-core'\n");
+            sb.append("}\n");
+            return sb.toString();
+        }
+
+        private String mainClass(String pkg, String className) {
+            Set<String> imports = new LinkedHashSet<>();
+            int icmImports = 3 + random.nextInt(6);
+            // A few classes import far more, like generated REST resources
+            if (random.nextInt(20) == 0) {
+                icmImports += 40 + random.nextInt(120);
+            }
+            for (int i = 0; i < icmImports; i++) {
+                imports.add(pick(icmPackages) + "." + pick(TYPE_NAMES));
+            }
+            for (int i = random.nextInt(4); i > 0 && !legacyPackages.isEmpty(); i--) {
+                imports.add(pick(legacyPackages) + "." + pick(TYPE_NAMES));
+            }
+            if (random.nextInt(10) == 0 && !ruleClasses.isEmpty()) {
+                imports.add(pick(ruleClasses));
+            }
+            imports.add("java.util.List");
+
+            StringBuilder sb = header(pkg, imports);
+            sb.append("/**\n * Generated ").append(className).append("\n */\n");
+            sb.append("public class ").append(className).append(" {\n\n");
+            sb.append("    @Inject\n    private Provider<").append(pick(TYPE_NAMES)).append("> provider;\n\n");
+            int methods = 2 + random.nextInt(8);
+            if (random.nextInt(20) == 0) {
+                methods += 50 + random.nextInt(150);
+            }
+            for (int m = 0; m < methods; m++) {
+                String type = pick(TYPE_NAMES);
+                sb.append("    /**\n     * Returns the ").append(type.toLowerCase()).append(" for the key\n     */\n");
+                sb.append("    public String get").append(type).append(m).append("(String key) {\n");
+                sb.append("        if (StringUtils.isEmpty(key)) {\n            return null;\n        }\n");
+                for (int s = 1 + random.nextInt(8); s > 0; s--) {
+                    sb.append("        key = key + \"").append(type).append(s).append("\";\n");
+                }
+                sb.append("        return key;\n    }\n\n");
+            }
+            sb.append("}\n");
+            return sb.toString();
+        }
+
+        private String testClass(String pkg, String className) {
+            Set<String> imports = new LinkedHashSet<>(List.of(TEST_ANNOTATIONS));
+            for (String ruleClass : ruleClasses) {
+                if (ruleClass.startsWith("org.junit.jupiter.") && random.nextInt(3) > 0) {
+                    imports.add(ruleClass);
+                }
+            }
+            imports.addAll(List.of(TEST_IMPORTS));
+            imports.add(pick(icmPackages) + "." + pick(TYPE_NAMES));
+
+            StringBuilder sb = header(pkg, imports);
+            sb.append("@ExtendWith(MockitoExtension.class)\n");
+            sb.append("public class ").append(className).append("Test {\n\n");
+            sb.append("    @Mock\n    private ").append(pick(TYPE_NAMES)).append(" mock;\n\n");
+            sb.append("    @BeforeEach\n    public void setUp() {\n        MockitoAnnotations.initMocks(this);\n    }\n\n");
+            for (int m = 0; m < 2 + random.nextInt(10); m++) {
+                if (random.nextInt(6) == 0) {
+                    sb.append("    @Disabled(\"flaky\")\n");
+                }
+                sb.append("    @Test\n    public void test").append(pick(TYPE_NAMES)).append(m).append("() {\n");
+                sb.append("        Assertions.assertEquals(").append(m).append(", ").append(m).append(");\n");
+                sb.append("        Mockito.verifyZeroInteractions(mock);\n    }\n\n");
+            }
+            sb.append("}\n");
+            return sb.toString();
+        }
+
+        private StringBuilder header(String pkg, Set<String> imports) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("package ").append(pkg).append(";\n\n");
+            for (String imported : imports) {
+                // Rule keys may name a member, e.g. MatcherAssert.assertThat
+                String simpleName = imported.substring(imported.lastIndexOf('.') + 1);
+                boolean member = !simpleName.isEmpty() && Character.isLowerCase(simpleName.charAt(0));
+                sb.append(member ? "import static " : "import ").append(imported).append(";\n");
+            }
+            return sb.append('\n');
+        }
+
+        private String pipeline(String name) {
+            return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<pipeline:Pipeline xmlns:pipeline=\"http://www.intershop.de/pipeline/2010\" name=\"Process" + name
+                + "\" type=\"process\">\n"
+                + "  <nodes xsi:type=\"pipeline:PipeletNode\" nodeID=\"PipeletNode0\">\n"
+                + "    <pipelet href=\"enfinity:/" + this.name + "/pipelets/Process" + name + ".xml\"/>\n"
+                + "  </nodes>\n"
+                + "</pipeline:Pipeline>\n";
+        }
+
+        private String query(String type) {
+            return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<query description=\"Get " + type + "\">\n"
+                + "  <parameters>\n    <parameter name=\"Domain\" type=\"com.intershop.beehive.core.capi.domain.Domain\"/>\n"
+                + "  </parameters>\n  <processor name=\"OracleSQL\"/>\n"
+                + "  <template type=\"objects\">SELECT uuid FROM " + type.toLowerCase() + " WHERE domainid = <template-variable value=\"Domain:UUID\"/></template>\n"
+                + "</query>\n";
+        }
+
+        private String template(String type) {
+            return "<iscontent type=\"text/html\" charset=\"UTF-8\" compact=\"true\">\n"
+                + "<isinclude template=\"modules/Modules\">\n"
+                + "<div class=\"" + type.toLowerCase() + "\"><isprint value=\"#" + type + ":Name#\"></div>\n";
+        }
+
+        private Path javaPath(Path sourceRoot, String pkg, String className) {
+            return sourceRoot.resolve(pkg.replace('.', '/')).resolve(className + ".java");
+        }
+
+        private void write(Path file, String content) throws IOException {
+            Files.createDirectories(file.getParent());
+            byte[] data = content.getBytes(StandardCharsets.UTF_8);
+            Files.write(file, data);
+            bytes += data.length;
+            if (!file.getFileName().toString().endsWith(".java")) {
+                otherFiles++;
+            }
+        }
+
+        private <T> T pick(T[] values) {
+            return values[random.nextInt(values.length)];
+        }
+
+        private <T> T pick(List<T> values) {
+            return values.get(random.nextInt(values.size()));
+        }
+    }
+
+    public static void main(String[] args) {
+        Path output = null;
+        Path packagesFile = DEFAULT_CARTRIDGE_PACKAGES;
+        long seed = 1;
+        int cartridges = 100;
+        int javaFiles = 100;
+
+        for (int i = 0; i < args.length; i++) {
+            if ("-o".equals(args[i]) && i + 1 < args.length) {
+                output = Paths.get(args[++i]);
+            } else if ("--cartridges".equals(args[i]) && i + 1 < args.length) {
+                cartridges = parsePositiveInt(args[++i], "--cartridges");
+            } else if ("--files".equals(args[i]) && i + 1 < args.length) {
+                javaFiles = parsePositiveInt(args[++i], "--files");
+            } else if ("--seed".equals(args[i]) && i + 1 < args.length) {
+                try {
+                    seed = Long.parseLong(args[++i]);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid value for --seed: " + args[i]);
+                    System.exit(1);
+                }
+            } else if ("--packages".equals(args[i]) && i + 1 < args.length) {
+                packagesFile = Paths.get(args[++i]);
+            }
+        }
+
+        if (output == null) {
+            System.err.println("Usage: WorkspaceGenerator -o <dir> [--cartridges <n>] [--files <n>] [--seed <n>] [--packages <file>]");
+            System.err.println("  -o <dir>          : Empty directory for the workspace");
+            System.err.println("  --cartridges <n>  : Number of cartridges (optional, default 100)");
+            System.err.println("  --files <n>       : Average number of Java files per cartridge, tests not counted (optional, default 100)");
+            System.err.println("  --seed <n>        : Seed, the same seed and sizes generate the same workspace (optional, default 1)");
+            System.err.println("  --packages <file> : ICM packages to import from (optional, default " + DEFAULT_CARTRIDGE_PACKAGES + ")");
+            System.exit(1);
+        }
+
+        try {
+            WorkspaceGenerator generator = new WorkspaceGenerator(seed, loadPackages(packagesFile), MigrationRuleSet.defaults())
+                .setCartridges(cartridges)
+                .setJavaFilesPerCartridge(javaFiles);
+            long start = System.nanoTime();
+            Stats stats = generator.generate(output);
+            System.out.printf("🏭 Generated %d cartridges with %d Java files and %d other files (%.1f MB) in %s, %d ms%n",
+                stats.cartridges(), stats.javaFiles(), stats.otherFiles(), stats.bytes() / (1024.0 * 1024),
+                output.toAbsolutePath(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Failed to generate workspace: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static int parsePositiveInt(String value, String flag) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        System.err.println("Invalid value for " + flag + ": " + value + " (expected a positive number)");
+        System.exit(1);
+        return 0;
+    }
+}
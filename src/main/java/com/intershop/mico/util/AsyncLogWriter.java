@@ -0,0 +1,259 @@
+package com.intershop.mico.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends text to log files on a background thread.
+ * <p>
+ * Callers only put their text into a bounded queue, and wait only when it is full. A single
+ * writer thread drains the queue in batches and keeps the files open, so every file receives its
+ * lines in the order they were appended. Files are flushed when the unflushed text reaches
+ * {@value #FLUSH_SIZE} characters, {@value #FLUSH_INTERVAL_MILLIS} ms after the last flush, on
+ * {@link #flush()} and on {@link #close()}. A file that receives no more text can be closed
+ * early with {@link #close(Path)}. Text appended after closing is written directly.
+ * <p>
+ * A failing entry is reported and skipped, the writer thread keeps running. Should it die
+ * anyway, text is written directly as well, and {@link #flush()} and {@link #close()} wait at
+ * most {@value #WAIT_TIMEOUT_SECONDS} seconds for it.
+ */
+public class AsyncLogWriter implements AutoCloseable {
+
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final int FLUSH_SIZE = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 200;
+    private static final long WAIT_TIMEOUT_SECONDS = 30;
+
+    private record Entry(Path file, String text, CountDownLatch flushed) {}
+
+    private static final Entry SHUTDOWN = new Entry(null, null, null);
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Map<Path, BufferedWriter> writers = new HashMap<>();
+    private final Thread thread;
+    private boolean closed;
+    /** Characters written since the last flush, only used by the writer thread */
+    private long unflushed;
+    /** {@link System#nanoTime()} of the last flush, only used by the writer thread */
+    private long lastFlush = System.nanoTime();
+
+    public AsyncLogWriter() {
+        thread = new Thread(this::run, "mico-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues text to be appended to a file, creating the file if needed
+     */
+    public synchronized void append(Path file, String text) {
+        if (closed || !thread.isAlive()) {
+            writeDirectly(file, text);
+            return;
+        }
+        enqueue(new Entry(file, text, null));
+    }
+
+    /**
+     * Queues closing a file once the text appended to it so far is written, so it does not stay
+     * open until the end of the session. Text appended later opens it again.
+     */
+    public synchronized void close(Path file) {
+        if (!closed && thread.isAlive()) {
+            enqueue(new Entry(file, null, null));
+        }
+    }
+
+    /**
+     * Waits until everything appended so far is written to the files, or the writer thread
+     * stopped, or the wait timed out
+     */
+    public void flush() {
+        CountDownLatch flushed = new CountDownLatch(1);
+        synchronized (this) {
+            if (closed || !thread.isAlive()) {
+                return;
+            }
+            enqueue(new Entry(null, null, flushed));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WAIT_TIMEOUT_SECONDS);
+        try {
+            while (!flushed.await(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!thread.isAlive() || System.nanoTime() - deadline >= 0) {
+                    System.err.println("Log files were not flushed, the log writer does not respond");
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes all queued text, closes the files and stops the writer thread
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        enqueue(SHUTDOWN);
+        try {
+            // Appends wait meanwhile, so they cannot overtake the queued text
+            thread.join(TimeUnit.SECONDS.toMillis(WAIT_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        try {
+            while (!queue.offer(entry, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!thread.isAlive()) {
+                    // Nobody drains the queue anymore
+                    writeDirectly(entry);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Do not lose the line, write it on the caller's thread instead
+            Thread.currentThread().interrupt();
+            writeDirectly(entry);
+        }
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>();
+        while (true) {
+            Entry first;
+            try {
+                first = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Only close() stops the writer
+                continue;
+            }
+            if (first != null) {
+                batch.add(first);
+                queue.drainTo(batch);
+            }
+            for (Entry entry : batch) {
+                if (entry == SHUTDOWN) {
+                    try {
+                        flushAll();
+                        closeAll();
+                    } catch (RuntimeException e) {
+                        System.err.println("Failed to close log files: " + e);
+                    }
+                    return;
+                }
+                try {
+                    process(entry);
+                } catch (RuntimeException e) {
+                    // Skip the entry rather than stop the thread and block every caller
+                    System.err.println("Failed to write to " + entry.file() + ": " + e);
+                } finally {
+                    if (entry.flushed() != null) {
+                        entry.flushed().countDown();
+                    }
+                }
+            }
+            batch.clear();
+            try {
+                long now = System.nanoTime();
+                if (unflushed > 0 && (unflushed >= FLUSH_SIZE
+                        || now - lastFlush >= TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS))) {
+                    flushAll();
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Failed to flush log files: " + e);
+            }
+        }
+    }
+
+    private void process(Entry entry) {
+        if (entry.flushed() != null) {
+            flushAll();
+        } else if (entry.text() == null) {
+            closeWriter(entry.file());
+        } else {
+            write(entry.file(), entry.text());
+            unflushed += entry.text().length();
+        }
+    }
+
+    private void write(Path file, String text) {
+        try {
+            BufferedWriter writer = writers.get(file);
+            if (writer == null) {
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                writers.put(file, writer);
+            }
+            writer.write(text);
+        } catch (IOException e) {
+            System.err.println("Failed to write to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void flushAll() {
+        unflushed = 0;
+        lastFlush = System.nanoTime();
+        for (Map.Entry<Path, BufferedWriter> writer : writers.entrySet()) {
+            try {
+                writer.getValue().flush();
+            } catch (IOException e) {
+                System.err.println("Failed to write to " + writer.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void closeWriter(Path file) {
+        BufferedWriter writer = writers.remove(file);
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void closeAll() {
+        for (Map.Entry<Path, BufferedWriter> writer : writers.entrySet()) {
+            try {
+                writer.getValue().close();
+            } catch (IOException e) {
+                System.err.println("Failed to close " + writer.getKey() + ": " + e.getMessage());
+            }
+        }
+        writers.clear();
+    }
+
+    private static void writeDirectly(Entry entry) {
+        if (entry.file() != null && entry.text() != null) {
+            writeDirectly(entry.file(), entry.text());
+        }
+    }
+
+    private static void writeDirectly(Path file, String text) {
+        try {
+            Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Failed to write to " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.intershop.mico.util;
+
+import com.intershop.mico.jfr.SourceScanEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * The files of a cartridge, with size, modification time and, for Java files, the package and
+ * imports of the file header.
+ * <p>
+ * The index walks the cartridge once and is then shared by all phases of the cartridge.
+ * {@link #refresh()} brings it up to date after a phase changed files: only directories whose
+ * modification time changed are listed again, and only files whose size or modification time
+ * changed are read again. Files excluded by the {@link SourceFilter} are not indexed.
+ */
+public class CartridgeSourceIndex {
+
+    /**
+     * An indexed file. Package and imports are only set for Java files.
+     */
+    public record SourceFile(Path path, long size, FileTime lastModified, String packageName, List<String> imports) {
+
+        public boolean isJava() {
+            return path.toString().endsWith(".java");
+        }
+    }
+
+    private final Path root;
+    private final SourceFilter filter;
+    private final JavaImportScanner.HeaderScanner headerScanner = new JavaImportScanner.HeaderScanner();
+    private final Map<Path, FileTime> directories = new HashMap<>();
+    private final TreeMap<Path, SourceFile> files = new TreeMap<>();
+    /** Files rejected by the filter when they had this modification time, so they warn only once */
+    private final Map<Path, FileTime> rejected = new HashMap<>();
+    /** Hash of the indexed files, null until computed or after the index changed */
+    private String treeHash;
+
+    /**
+     * Walks the cartridge with the default {@link SourceFilter}
+     *
+     * @throws UncheckedIOException if the cartridge cannot be walked
+     */
+    public CartridgeSourceIndex(Path root) {
+        this(root, SourceFilter.defaults());
+    }
+
+    /**
+     * Walks the cartridge and reads the headers of all Java files the filter accepts
+     *
+     * @throws UncheckedIOException if the cartridge cannot be walked
+     */
+    public CartridgeSourceIndex(Path root, SourceFilter filter) {
+        this.root = root;
+        this.filter = filter;
+        SourceScanEvent event = new SourceScanEvent();
+        event.begin();
+        try {
+            walk(root);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot index " + root, e);
+        }
+        commit(event, "index", 0);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * All indexed files in path order
+     */
+    public synchronized List<Path> getFiles() {
+        return List.copyOf(files.keySet());
+    }
+
+    /**
+     * SHA-256 over the paths and contents of the indexed files, see
+     * {@link SourceTreeHasher#hashFiles(Path, List)}. Computed once per state of the index and
+     * reused until {@link #refresh()} finds a change.
+     */
+    public synchronized String getTreeHash() throws IOException {
+        if (treeHash == null) {
+            treeHash = SourceTreeHasher.hashFiles(root, List.copyOf(files.keySet()));
+        }
+        return treeHash;
+    }
+
+    /**
+     * All Java files in path order
+     */
+    public synchronized List<Path> getJavaFiles() {
+        return files.values().stream().filter(SourceFile::isJava).map(SourceFile::path).toList();
+    }
+
+    /**
+     * Unique imports of all Java files, without those below one of the excluded packages. A
+     * prefix ending with a dot ({@code com.intershop.}) excludes everything below the package,
+     * a prefix without ({@code java.lang}) also excludes the name itself.
+     */
+    public synchronized Set<String> getImports(Set<String> exclusionPrefixes) {
+        // Value is whether the name itself is excluded, too
+        PackageTrie<Boolean> excluded = new PackageTrie<>();
+        for (String prefix : exclusionPrefixes) {
+            if (prefix.endsWith(".")) {
+                excluded.computeIfAbsent(prefix.substring(0, prefix.length() - 1), name -> false);
+            } else {
+                excluded.put(prefix, true);
+            }
+        }
+        Set<String> imports = new HashSet<>();
+        for (SourceFile file : files.values()) {
+            for (String importStatement : file.imports()) {
+                if (excluded.isEmpty() || !isExcluded(importStatement, excluded)) {
+                    imports.add(importStatement);
+                }
+            }
+        }
+        return imports;
+    }
+
+    /**
+     * Packages declared by the Java files
+     */
+    public synchronized Set<String> getPackages() {
+        Set<String> packages = new HashSet<>();
+        for (SourceFile file : files.values()) {
+            if (file.packageName() != null) {
+                packages.add(file.packageName());
+            }
+        }
+        return packages;
+    }
+
+    /**
+     * Updates the index after files were added, removed or edited
+     *
+     * @return the number of files added, removed or changed
+     */
+    public synchronized int refresh() {
+        SourceScanEvent event = new SourceScanEvent();
+        event.begin();
+        int changed = 0;
+        try {
+            for (Path directory : new ArrayList<>(directories.keySet())) {
+                if (!directories.containsKey(directory)) {
+                    // Removed together with a parent in this loop
+                    continue;
+                }
+                BasicFileAttributes attributes = SourceFilter.readAttributes(directory);
+                if (attributes == null || !attributes.isDirectory()) {
+                    changed += removeDirectory(directory);
+                } else if (!attributes.lastModifiedTime().equals(directories.get(directory))) {
+                    directories.put(directory, attributes.lastModifiedTime());
+                    changed += listAgain(directory);
+                }
+            }
+            for (SourceFile file : new ArrayList<>(files.values())) {
+                BasicFileAttributes attributes = SourceFilter.readAttributes(file.path());
+                if (attributes == null || !attributes.isRegularFile()) {
+                    files.remove(file.path());
+                    changed++;
+                } else if (attributes.size() != file.size() || !attributes.lastModifiedTime().equals(file.lastModified())) {
+                    files.remove(file.path());
+                    addIfAccepted(file.path(), attributes);
+                    changed++;
+                }
+            }
+            for (Map.Entry<Path, FileTime> file : new ArrayList<>(rejected.entrySet())) {
+                BasicFileAttributes attributes = SourceFilter.readAttributes(file.getKey());
+                if (attributes == null || !attributes.isRegularFile()) {
+                    rejected.remove(file.getKey());
+                } else if (!attributes.lastModifiedTime().equals(file.getValue())
+                        && addIfAccepted(file.getKey(), attributes)) {
+                    changed++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot refresh index of " + root, e);
+        }
+        if (changed > 0) {
+            treeHash = null;
+        }
+        commit(event, "refresh", changed);
+        return changed;
+    }
+
+    private void commit(SourceScanEvent event, String operation, int changed) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.cartridge = root.toString();
+            event.operation = operation;
+            event.files = files.size();
+            event.changedFiles = changed;
+            event.commit();
+        }
+    }
+
+    private void walk(Path start) throws IOException {
+        filter.walk(root, start,
+            (dir, attrs) -> directories.put(dir, attrs.lastModifiedTime()),
+            this::addIfAccepted);
+    }
+
+    /**
+     * Compares the entries of a changed directory with the index
+     */
+    private int listAgain(Path directory) throws IOException {
+        int changed = 0;
+        Set<Path> present = new HashSet<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            for (Path entry : entries.toList()) {
+                present.add(entry);
+                BasicFileAttributes attributes = SourceFilter.readAttributes(entry);
+                if (attributes == null) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    if (!directories.containsKey(entry) && !filter.isExcluded(root, entry)) {
+                        int before = files.size();
+                        walk(entry);
+                        changed += files.size() - before;
+                    }
+                } else if (attributes.isRegularFile() && !files.containsKey(entry)
+                        && !attributes.lastModifiedTime().equals(rejected.get(entry))
+                        && addIfAccepted(entry, attributes)) {
+                    changed++;
+                }
+            }
+        }
+        for (Path child : new ArrayList<>(directories.keySet())) {
+            if (directory.equals(child.getParent()) && !present.contains(child)) {
+                changed += removeDirectory(child);
+            }
+        }
+        List<Path> removedFiles = files.keySet().stream()
+            .filter(file -> directory.equals(file.getParent()) && !present.contains(file))
+            .toList();
+        removedFiles.forEach(files::remove);
+        rejected.keySet().removeIf(file -> directory.equals(file.getParent()) && !present.contains(file));
+        return changed + removedFiles.size();
+    }
+
+    private int removeDirectory(Path directory) {
+        directories.keySet().removeIf(path -> path.startsWith(directory));
+        rejected.keySet().removeIf(path -> path.startsWith(directory));
+        List<Path> removedFiles = files.keySet().stream().filter(file -> file.startsWith(directory)).toList();
+        removedFiles.forEach(files::remove);
+        return removedFiles.size();
+    }
+
+    private boolean addIfAccepted(Path file, BasicFileAttributes attributes) {
+        if (!filter.accepts(root, file, attributes.size())) {
+            rejected.put(file, attributes.lastModifiedTime());
+            return false;
+        }
+        rejected.remove(file);
+        add(file, attributes);
+        return true;
+    }
+
+    private void add(Path file, BasicFileAttributes attributes) {
+        String packageName = null;
+        List<String> imports = List.of();
+        if (file.toString().endsWith(".java")) {
+            List<String> found = new ArrayList<>();
+            try {
+                packageName = headerScanner.scan(file, found::add);
+            } catch (IOException e) {
+                System.err.println("Error reading file: " + file + " - " + e.getMessage());
+            }
+            imports = List.copyOf(found);
+        }
+        files.put(file, new SourceFile(file, attributes.size(), attributes.lastModifiedTime(), packageName, imports));
+    }
+
+    private static boolean isExcluded(String importStatement, PackageTrie<Boolean> excluded) {
+        boolean[] found = new boolean[1];
+        excluded.forEachPrefix(importStatement,
+            (prefix, includesSelf) -> found[0] |= includesSelf || prefix.length() < importStatement.length());
+        return found[0];
+    }
+}
@@ -1,16 +1,22 @@
 package com.intershop.mico.util;
 
+import com.intershop.mico.jfr.FileMigrationEvent;
+
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
 
 /**
  * Custom CodeMigrator that performs Java source code transformations
@@ -22,222 +28,295 @@ import java.util.stream.Stream;
  * - REST Assured package changes
  * - Intershop-specific class changes
  * - Import cleanup and organization
+ * The rules come from a {@link MigrationRuleSet}, all patterns are compiled once per rule set.
  */
 public class CodeMigrator {
 
-    // ============================================================================
-    // PACKAGE MIGRATIONS
-    // ============================================================================
-
-    private static final Map<Pattern, String> PACKAGE_MIGRATIONS = Map.ofEntries(
-        // javax → jakarta (most common EE packages)
-        Map.entry(Pattern.compile("import javax\\.inject\\."), "import jakarta.inject."),
-        Map.entry(Pattern.compile("import javax\\.ws\\.rs\\."), "import jakarta.ws.rs."),
-        Map.entry(Pattern.compile("import javax\\.xml\\.bind\\."), "import jakarta.xml.bind."),
-        Map.entry(Pattern.compile("import javax\\.annotation\\."), "import jakarta.annotation."),
-        Map.entry(Pattern.compile("import javax\\.servlet\\."), "import jakarta.servlet."),
-
-        // Apache Commons
-        Map.entry(Pattern.compile("import org\\.apache\\.commons\\.lang\\."), "import org.apache.commons.lang3."),
-        Map.entry(Pattern.compile("import org\\.apache\\.commons\\.collections\\."), "import org.apache.commons.collections4."),
-
-        // REST Assured
-        Map.entry(Pattern.compile("import com\\.jayway\\.restassured\\."), "import io.restassured."),
-
-        // Intershop ObjectGraph
-        Map.entry(Pattern.compile("import com\\.intershop\\.beehive\\.objectgraph\\.guice\\.test\\."),
-                  "import com.intershop.platform.objectgraph.testrule.")
-    );
-
-    // ============================================================================
-    // FULLY QUALIFIED CLASS NAME MIGRATIONS
-    // ============================================================================
-
-    private static final Map<String, String> CLASS_MIGRATIONS = Map.ofEntries(
-        // JUnit 5 → JUnit 4 - Annotations
-        Map.entry("org.junit.jupiter.api.Test", "org.junit.Test"),
-        Map.entry("org.junit.jupiter.api.BeforeEach", "org.junit.Before"),
-        Map.entry("org.junit.jupiter.api.AfterEach", "org.junit.After"),
-        Map.entry("org.junit.jupiter.api.BeforeAll", "org.junit.BeforeClass"),
-        Map.entry("org.junit.jupiter.api.AfterAll", "org.junit.AfterClass"),
-        Map.entry("org.junit.jupiter.api.Disabled", "org.junit.Ignore"),
-        Map.entry("org.junit.jupiter.api.extension.ExtendWith", "org.junit.runner.RunWith"),
-        Map.entry("org.junit.jupiter.api.extension.RegisterExtension", "org.junit.rules.TestName"),
-
-        // JUnit 5 → JUnit 4 - Assertions & Assumptions
-        Map.entry("org.junit.jupiter.api.Assertions", "org.junit.Assert"),
-        Map.entry("org.junit.jupiter.api.Assumptions", "org.junit.Assume"),
-        Map.entry("org.hamcrest.MatcherAssert.assertThat", "org.junit.Assert.assertThat"),
-
-        // Mockito
-        Map.entry("org.mockito.runners.MockitoJUnitRunner", "org.mockito.junit.jupiter.MockitoExtension"),
-        Map.entry("org.mockito.junit.MockitoJUnitRunner", "org.mockito.junit.jupiter.MockitoExtension"),
-        Map.entry("org.mockito.MockitoAnnotations", "org.mockito.MockitoAnnotations"), // Keep as-is but usage changes
-        Map.entry("org.mockito.Mock", "org.mockito.Mock"),
-        Map.entry("org.mockito.InjectMocks", "org.mockito.InjectMocks"),
-
-        // Intershop-specific
-        Map.entry("com.intershop.sellside.rest.common.patch.PATCH", "jakarta.ws.rs.PATCH"),
-        Map.entry("com.intershop.sellside.rest.common.v1.capi.resourceobject.common.MoneyRO",
-                  "com.intershop.component.rest.resources.v1.capi.resourceobject.MoneyRO"),
-        Map.entry("com.intershop.soennecken.sellside.rest.basket.v1.capi.request.basket.BasketItemGetRequest",
-                  "com.intershop.sellside.rest.basket.v1.capi.request.basket.BasketItemGetRequest"),
-        Map.entry("com.intershop.beehive.orm.internal.jdbc.JDBCConnection",
-                  "com.intershop.beehive.orm.capi.jdbc.JDBCConnection"),
-        Map.entry("com.intershop.beehive.core.internal.process.xml.Chain",
-                  "com.intershop.xsd.processchain.v1.Chain")
-    );
-
-    // ============================================================================
-    // ANNOTATION MIGRATIONS (simple name replacements)
-    // ============================================================================
-
-    private static final Map<String, String> ANNOTATION_MIGRATIONS = Map.ofEntries(
-        Map.entry("@BeforeEach", "@Before"),
-        Map.entry("@AfterEach", "@After"),
-        Map.entry("@BeforeAll", "@BeforeClass"),
-        Map.entry("@AfterAll", "@AfterClass"),
-        Map.entry("@Disabled", "@Ignore"),
-        Map.entry("@ExtendWith", "@RunWith"),
-        Map.entry("@RegisterExtension", "@Rule")
-    );
-
-    // ============================================================================
-    // STATIC IMPORT MIGRATIONS
-    // ============================================================================
-
-    private static final Map<Pattern, String> STATIC_IMPORT_MIGRATIONS = Map.ofEntries(
-        // JUnit 5 Assertions static imports → JUnit 4 Assert
-        Map.entry(Pattern.compile("^import static\\s+org\\.junit\\.jupiter\\.api\\.Assertions\\."), "import static org.junit.Assert."),
-        Map.entry(Pattern.compile("^import static\\s+org\\.junit\\.jupiter\\.api\\.Assumptions\\."), "import static org.junit.Assume.")
-    );
-
-    // ============================================================================
-    // METHOD CALL MIGRATIONS
-    // ============================================================================
-
-    private static final Map<Pattern, String> METHOD_MIGRATIONS = Map.ofEntries(
-        // Mockito (keeping these as-is since Mockito 1→4 is different from JUnit 5→4)
-        Map.entry(Pattern.compile("\\bverifyZeroInteractions\\s*\\("), "verifyNoInteractions("),
-        Map.entry(Pattern.compile("\\bMockitoAnnotations\\.initMocks\\("), "MockitoAnnotations.openMocks("),
-
-        // JUnit 5 → JUnit 4 method calls
-        Map.entry(Pattern.compile("\\bAssertions\\.assert"), "Assert.assert"),
-        Map.entry(Pattern.compile("\\bAssumptions\\.assume"), "Assume.assume")
-    );
-
-    // ============================================================================
-    // PATTERNS TO EXCLUDE FROM IMPORTS (standard Java/Jakarta that shouldn't be explicitly imported)
-    // ============================================================================
-
-    private static final Set<String> EXCLUDED_IMPORTS = Set.of(
-        "java.lang.",
-        "java.util.",
-        "java.io.",
-        "java.nio.",
-        "java.net.",
-        "java.time.",
-        "java.math.",
-        "java.text.",
-        "java.util.function.",
-        "java.util.stream.",
-        "jakarta.annotation.", // Generated annotations
-        "jakarta.inject.",     // Generated annotations
-        "org.junit.jupiter.api.Assertions.", // Static imports handled separately
-        "org.junit.jupiter.api.Assumptions."
-    );
+    private static final Pattern IMPORT_LINE = Pattern.compile("^import.*$", Pattern.MULTILINE);
+    private static final Pattern IMPORT_STATEMENT = Pattern.compile("^import\\s+([^;]+);", Pattern.MULTILINE);
+    private static final Pattern IMPORT_WITH_WHITESPACE = Pattern.compile("(?m)^import\\s+[^;]+;\\s*");
+    private static final Pattern PACKAGE_DECLARATION = Pattern.compile("^(package\\s+[^;]+;)\\s*", Pattern.MULTILINE);
 
     private final Path cartridgePath;
+    private final PrintStream out;
+    private final MigrationRuleSet rules;
     private final List<String> processedFiles;
     private final List<String> errors;
+    private int parallelism = 1;
+    private List<Path> javaFiles;
+    private String phase;
 
     public CodeMigrator(String cartridgePath) {
+        this(cartridgePath, System.out);
+    }
+
+    /**
+     * Creates a migrator that writes its progress output to the given stream
+     * instead of the console, so several cartridges can be migrated at once.
+     */
+    public CodeMigrator(String cartridgePath, PrintStream out) {
+        this(cartridgePath, out, MigrationRuleSet.defaults());
+    }
+
+    /**
+     * Creates a migrator that applies the given rules, e.g. the defaults plus project specific rules
+     */
+    public CodeMigrator(String cartridgePath, PrintStream out, MigrationRuleSet rules) {
         this.cartridgePath = Paths.get(cartridgePath);
+        this.out = out;
+        this.rules = rules;
         this.processedFiles = new ArrayList<>();
         this.errors = new ArrayList<>();
     }
 
+    /**
+     * Sets how many files are migrated at the same time, 1 (default) migrates them one by one.
+     * The output stays in file order either way.
+     */
+    public CodeMigrator setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, was " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the Java files to migrate, e.g. from a {@link CartridgeSourceIndex}, so the cartridge
+     * is not walked again. By default all Java files below the cartridge path that the default
+     * {@link SourceFilter} accepts are migrated.
+     */
+    public CodeMigrator setJavaFiles(List<Path> javaFiles) {
+        this.javaFiles = List.copyOf(javaFiles);
+        return this;
+    }
+
+    /**
+     * Sets the phase running the migration, only used to label the flight recorder events
+     */
+    public CodeMigrator setPhase(String phase) {
+        this.phase = phase;
+        return this;
+    }
+
     /**
      * Main entry point - migrates all Java files in the cartridge
      */
     public void migrate() {
-        System.out.println("Starting code migration for: " + cartridgePath);
+        out.println("Starting code migration for: " + cartridgePath);
 
-        try (Stream<Path> paths = Files.walk(cartridgePath)) {
-            paths.filter(Files::isRegularFile)
-                 .filter(p -> p.toString().endsWith(".java"))
-                 .forEach(this::migrateFile);
-        } catch (IOException e) {
-            errors.add("Failed to walk directory tree: " + e.getMessage());
+        List<Path> javaFiles = this.javaFiles != null ? this.javaFiles : findJavaFiles();
+
+        if (parallelism > 1 && javaFiles.size() > 1) {
+            migrateInParallel(javaFiles);
+        } else {
+            javaFiles.forEach(javaFile -> report(migrateFile(javaFile)));
         }
 
-        System.out.println("Migration complete. Processed " + processedFiles.size() + " files.");
+        out.println("Migration complete. Processed " + processedFiles.size() + " files.");
         if (!errors.isEmpty()) {
-            System.err.println("Errors encountered: " + errors.size());
-            errors.forEach(System.err::println);
+            out.println("Errors encountered: " + errors.size());
+            errors.forEach(out::println);
+        }
+    }
+
+    private List<Path> findJavaFiles() {
+        SourceFilter filter = SourceFilter.defaults();
+        List<Path> javaFiles = new ArrayList<>();
+        try {
+            filter.walk(cartridgePath, cartridgePath, (dir, attrs) -> { }, (file, attrs) -> {
+                if (file.toString().endsWith(".java") && filter.accepts(cartridgePath, file, attrs.size())) {
+                    javaFiles.add(file);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            errors.add("Failed to walk directory tree: " + e.getMessage());
+        }
+        return javaFiles;
+    }
+
+    /**
+     * Migrates batches of files on a thread pool. Results are reported as soon as all files
+     * before them are done, so the output is the same as in sequential mode.
+     */
+    private void migrateInParallel(List<Path> javaFiles) {
+        FileResult[] results = new FileResult[javaFiles.size()];
+        int[] nextToReport = {0};
+        int batchSize = Math.max(1, Math.min(64, javaFiles.size() / (parallelism * 4)));
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "code-migration-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> batches = new ArrayList<>();
+            for (int start = 0; start < javaFiles.size(); start += batchSize) {
+                int from = start;
+                int to = Math.min(javaFiles.size(), start + batchSize);
+                batches.add(executor.submit(() -> {
+                    for (int i = from; i < to; i++) {
+                        FileResult result = migrateFile(javaFiles.get(i));
+                        synchronized (results) {
+                            results[i] = result;
+                            while (nextToReport[0] < results.length && results[nextToReport[0]] != null) {
+                                report(results[nextToReport[0]]);
+                                results[nextToReport[0]++] = null;
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errors.add("Code migration interrupted");
+        } catch (ExecutionException e) {
+            errors.add("Code migration failed: " + e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
     }
 
     /**
      * Migrates a single Java file
      */
-    private void migrateFile(Path javaFile) {
+    private FileResult migrateFile(Path javaFile) {
+        FileMigrationEvent event = new FileMigrationEvent();
+        event.begin();
         try {
             String originalContent = Files.readString(javaFile);
             String migratedContent = migrateContent(originalContent);
+            if (event.isEnabled()) {
+                event.size = Files.size(javaFile);
+            }
 
             // Only write if content changed
             if (!originalContent.equals(migratedContent)) {
                 Files.writeString(javaFile, migratedContent);
-                System.out.println("  ✓ Migrated: " + cartridgePath.relativize(javaFile));
-            } else {
-                System.out.println("  - No changes: " + cartridgePath.relativize(javaFile));
+                event.changed = true;
+                return new FileResult(javaFile, "  ✓ Migrated: " + cartridgePath.relativize(javaFile), null);
             }
+            return new FileResult(javaFile, "  - No changes: " + cartridgePath.relativize(javaFile), null);
 
-            processedFiles.add(javaFile.toString());
-
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
             String error = "Failed to migrate " + javaFile + ": " + e.getMessage();
-            errors.add(error);
-            System.err.println("  ✗ " + error);
+            return new FileResult(javaFile, "  ✗ " + error, error);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.cartridge = cartridgePath.toString();
+                event.phase = phase;
+                event.file = cartridgePath.relativize(javaFile).toString();
+                event.commit();
+            }
         }
     }
 
     /**
-     * Performs all transformations on file content
+     * Prints the result of a file and adds it to the statistics, always in file order
      */
-    private String migrateContent(String content) {
-        String result = content;
+    private synchronized void report(FileResult result) {
+        out.println(result.message());
+        if (result.error() == null) {
+            processedFiles.add(result.file().toString());
+        } else {
+            errors.add(result.error());
+        }
+    }
+
+    private record FileResult(Path file, String message, String error) {}
+
+    /**
+     * Performs all transformations on file content. The import stages only work on the header
+     * (package declaration and imports), the body is copied unchanged. Package-private for the
+     * benchmarks.
+     */
+    String migrateContent(String content) {
+        int headerEnd = findHeaderEnd(content);
+        String header = content.substring(0, headerEnd);
 
         // 1. Package migrations
-        result = migratePackages(result);
+        header = migratePackages(header);
 
         // 1.5. Static import migrations
-        result = migrateStaticImports(result);
+        header = migrateStaticImports(header);
 
         // 2. Class name migrations in imports
-        result = migrateImportedClasses(result);
+        header = migrateImportedClasses(header);
 
-        // 3. Annotation replacements (outside comments/strings)
-        result = migrateAnnotations(result);
+        String result = headerEnd == 0 ? content : header + content.substring(headerEnd);
 
-        // 4. Method call migrations
-        result = migrateMethodCalls(result);
+        // 3. Annotation replacements and 4. method call migrations, both outside comments and literals
+        if (rules.getCodeRewriter() != null) {
+            result = rules.getCodeRewriter().rewrite(result);
+        } else {
+            result = migrateAnnotations(result);
+            result = migrateMethodCalls(result);
+        }
 
         // 5. Remove unused imports and organize
-        result = cleanupImports(result);
+        headerEnd = findHeaderEnd(result);
+        if (headerEnd > 0) {
+            result = cleanupImports(result.substring(0, headerEnd)) + result.substring(headerEnd);
+        }
 
         return result;
     }
 
+    /**
+     * End of the file header: the package declaration and the import statements, including
+     * the comments between them and the whitespace after the last one. Only scans the header.
+     */
+    private static int findHeaderEnd(String content) {
+        JavaLexer lexer = new JavaLexer();
+        int end = 0;
+        boolean inStatement = false;
+        for (int i = 0; i < content.length(); i++) {
+            boolean code = lexer.next(content, i) == JavaLexer.Region.CODE;
+            char c = content.charAt(i);
+            if (inStatement) {
+                if (code && c == ';') {
+                    inStatement = false;
+                    end = i + 1;
+                }
+            } else if (!code || Character.isWhitespace(c)) {
+                // Whitespace right after a statement belongs to the header, like in IMPORT_WITH_WHITESPACE
+                if (code && end == i && isRegexSpace(c)) {
+                    end = i + 1;
+                }
+            } else if (startsStatement(content, i, "import") || startsStatement(content, i, "package")) {
+                inStatement = true;
+            } else {
+                break;
+            }
+        }
+        return end;
+    }
+
+    private static boolean startsStatement(String content, int index, String keyword) {
+        int next = index + keyword.length();
+        return content.startsWith(keyword, index) && next < content.length() && isRegexSpace(content.charAt(next));
+    }
+
+    /** {@code \s} of {@link Pattern} */
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
     /**
      * Migrates package declarations in imports
      */
     private String migratePackages(String content) {
+        if (rules.getPackageRewriter() != null) {
+            return rules.getPackageRewriter().rewrite(content);
+        }
         String result = content;
 
-        for (Map.Entry<Pattern, String> entry : PACKAGE_MIGRATIONS.entrySet()) {
-            result = entry.getKey().matcher(result).replaceAll(entry.getValue());
+        for (MigrationRuleSet.Replacement rule : rules.getPackages()) {
+            result = rule.pattern().matcher(result).replaceAll(rule.replacement());
         }
 
         return result;
@@ -249,13 +328,13 @@ public class CodeMigrator {
     private String migrateStaticImports(String content) {
         String result = content;
 
-        for (Map.Entry<Pattern, String> entry : STATIC_IMPORT_MIGRATIONS.entrySet()) {
-            Pattern pattern = entry.getKey();
-            String replacement = entry.getValue();
+        for (MigrationRuleSet.Replacement rule : rules.getStaticImports()) {
+            Pattern pattern = rule.pattern();
+            String replacement = rule.replacement();
 
             // Only apply the pattern if it's for JUnit 5 → JUnit 4 migration
             // Skip if the line already contains JUnit 4 (plain org.junit, not jupiter)
-            Matcher lineMatcher = Pattern.compile("^import.*$", Pattern.MULTILINE).matcher(result);
+            Matcher lineMatcher = IMPORT_LINE.matcher(result);
             StringBuffer sb = new StringBuffer();
 
             while (lineMatcher.find()) {
@@ -279,13 +358,11 @@ public class CodeMigrator {
      */
     private String migrateImportedClasses(String content) {
         // Extract import statements
-        Pattern importPattern = Pattern.compile("^import\\s+([^;]+);", Pattern.MULTILINE);
-        Matcher matcher = importPattern.matcher(content);
+        Matcher matcher = IMPORT_STATEMENT.matcher(content);
         StringBuilder sb = new StringBuilder();
 
         while (matcher.find()) {
             String fullClassName = matcher.group(1).trim();
-            String migrated = fullClassName;
 
             // Skip if already using JUnit 4 (plain org.junit) - don't migrate JUnit 4 to JUnit 4
             // Also skip jakarta imports
@@ -295,22 +372,9 @@ public class CodeMigrator {
                 continue;
             }
 
-            // Check if this import needs migration (JUnit 5 → JUnit 4)
-            // Use exact match first, then prefix match for inner classes
-            for (Map.Entry<String, String> entry : CLASS_MIGRATIONS.entrySet()) {
-                String key = entry.getKey();
-
-                // Exact match
-                if (fullClassName.equals(key)) {
-                    migrated = entry.getValue();
-                    break;
-                }
-                // Prefix match for inner classes (e.g., org.junit.jupiter.api.Assertions.* → org.junit.Assert.*)
-                else if (fullClassName.startsWith(key + ".")) {
-                    migrated = entry.getValue() + fullClassName.substring(key.length());
-                    break;
-                }
-            }
+            // Check if this import needs migration (JUnit 5 → JUnit 4), exact or for inner classes
+            // (e.g., org.junit.jupiter.api.Assertions.* → org.junit.Assert.*)
+            String migrated = rules.migrateClassName(fullClassName);
 
             matcher.appendReplacement(sb, "import " + migrated + ";");
         }
@@ -325,10 +389,9 @@ public class CodeMigrator {
     private String migrateAnnotations(String content) {
         String result = content;
 
-        for (Map.Entry<String, String> entry : ANNOTATION_MIGRATIONS.entrySet()) {
-            // Only replace annotations at the beginning of lines or after whitespace
-            Pattern pattern = Pattern.compile("(\\s)" + Pattern.quote(entry.getKey()) + "(\\s|\\()");
-            result = pattern.matcher(result).replaceAll("$1" + entry.getValue() + "$2");
+        // Only replaces annotations at the beginning of lines or after whitespace
+        for (MigrationRuleSet.Replacement rule : rules.getAnnotations()) {
+            result = replaceInCode(result, rule);
         }
 
         return result;
@@ -340,21 +403,37 @@ public class CodeMigrator {
     private String migrateMethodCalls(String content) {
         String result = content;
 
-        for (Map.Entry<Pattern, String> entry : METHOD_MIGRATIONS.entrySet()) {
-            result = entry.getKey().matcher(result).replaceAll(entry.getValue());
+        for (MigrationRuleSet.Replacement rule : rules.getMethods()) {
+            result = replaceInCode(result, rule);
         }
 
         return result;
     }
 
+    /**
+     * Applies a rule to each code region on its own, so it does not touch comments and literals.
+     * A code region is always surrounded by delimiters or the file bounds, so {@code \b} behaves
+     * as it would on the whole file.
+     */
+    private static String replaceInCode(String content, MigrationRuleSet.Replacement rule) {
+        int[] regions = JavaLexer.codeRegions(content);
+        StringBuilder result = new StringBuilder(content.length() + 64);
+        int copied = 0;
+        for (int r = 0; r < regions.length; r += 2) {
+            result.append(content, copied, regions[r]);
+            result.append(rule.pattern().matcher(content.subSequence(regions[r], regions[r + 1])).replaceAll(rule.replacement()));
+            copied = regions[r + 1];
+        }
+        return result.append(content, copied, content.length()).toString();
+    }
+
     /**
      * Removes unused imports and organizes them alphabetically
      */
     private String cleanupImports(String content) {
         // Extract all imports
         List<String> imports = new ArrayList<>();
-        Pattern importPattern = Pattern.compile("^import\\s+([^;]+);", Pattern.MULTILINE);
-        Matcher matcher = importPattern.matcher(content);
+        Matcher matcher = IMPORT_STATEMENT.matcher(content);
 
         while (matcher.find()) {
             imports.add(matcher.group(0));
@@ -365,7 +444,7 @@ public class CodeMigrator {
         }
 
         // Remove import statements and surrounding blank lines from content
-        String withoutImports = content.replaceAll("(?m)^import\\s+[^;]+;\\s*", "");
+        String withoutImports = IMPORT_WITH_WHITESPACE.matcher(content).replaceAll("");
 
         // Sort imports
         imports.sort(String::compareTo);
@@ -406,8 +485,7 @@ public class CodeMigrator {
         String importBlock = String.join("\n", importLines);
 
         // Find the package declaration and insert imports after it
-        Pattern packagePattern = Pattern.compile("^(package\\s+[^;]+;)\\s*", Pattern.MULTILINE);
-        Matcher packageMatcher = packagePattern.matcher(withoutImports);
+        Matcher packageMatcher = PACKAGE_DECLARATION.matcher(withoutImports);
 
         if (packageMatcher.find()) {
             return packageMatcher.replaceFirst("$1\n\n" + importBlock + "\n");
@@ -430,7 +508,7 @@ public class CodeMigrator {
     /**
      * Get migration statistics
      */
-    public MigrationStats getStats() {
+    public synchronized MigrationStats getStats() {
         return new MigrationStats(processedFiles.size(), errors.size());
     }
 
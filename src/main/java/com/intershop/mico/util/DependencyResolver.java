@@ -0,0 +1,366 @@
+package com.intershop.mico.util;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves Java imports to Gradle dependencies without an agent.
+ * <p>
+ * The index is built from the mapping tables of the dependency resolution instructions and from
+ * {@code cartridge-packages.properties}. An import resolves to the dependencies of its longest
+ * matching package prefix. If that prefix maps to several dependencies, the import stays unresolved,
+ * unless one of them follows the Beehive rule ({@code com.intershop.beehive.{segment}} is provided
+ * by {@code com.intershop.platform:{segment}}). Imports without any match are resolved by the
+ * Beehive rule if possible, all others are left for the agent.
+ */
+public class DependencyResolver {
+    private static final String BEEHIVE_PREFIX = "com.intershop.beehive.";
+    private static final String PLATFORM_GROUP = "com.intershop.platform";
+    private static final String PIPELINE_NODE = "com.intershop.beehive.pipeline.capi.annotation.PipelineNode";
+    private static final String CORE_LOGGER = "com.intershop.beehive.core.capi.log.Logger";
+
+    private static final Pattern CODE_SPAN = Pattern.compile("`([^`]+)`");
+    private static final Pattern TABLE_DECLARATION = Pattern.compile("^(\\w+)\\(\"([^\"]+)\"\\)$");
+    private static final Pattern SCRIPT_DECLARATION = Pattern.compile("^(\\w+)\\((\"[^\"]+\"|project\\(\"[^\"]+\"\\))\\)\\s*(?://.*)?$");
+    private static final Pattern DEPENDENCIES_BLOCK = Pattern.compile("(?m)^dependencies\\s*\\{");
+    private static final Set<String> SECTION_COMMENTS = Set.of(
+        "// Project dependencies", "// Platform dependencies", "// Business dependencies",
+        "// External dependencies", "// Test dependencies");
+    private static final Comparator<Dependency> DECLARATION_ORDER = Comparator
+        .comparing(Dependency::notation)
+        .thenComparing(d -> d.configuration().equals("annotationProcessor"))
+        .thenComparing(Dependency::configuration);
+
+    /**
+     * A dependency declaration like {@code cartridge("com.intershop.platform:core")}
+     *
+     * @param notation the argument as written in the build script, e.g. {@code "group:name"} or {@code project(":x")}
+     */
+    public record Dependency(String configuration, String notation) {
+        public static Dependency of(String configuration, String coordinate) {
+            return new Dependency(configuration, "\"" + coordinate + "\"");
+        }
+
+        @Override
+        public String toString() {
+            return configuration + "(" + notation + ")";
+        }
+    }
+
+    /**
+     * @param dependencies dependencies required by the resolved imports and the mandatory rules
+     * @param unresolved   imports no dependency could be determined for
+     */
+    public record Resolution(Set<Dependency> dependencies, Set<String> unresolved) {}
+
+    private final PackageTrie<Set<Dependency>> index = new PackageTrie<>();
+    private final String version;
+
+    /**
+     * @param mappingInstructions instructions containing mapping tables with rows like
+     *                            {@code | `com.intershop.beehive.core.*` | `cartridge("com.intershop.platform:core")` |}
+     * @param cartridgePackages   properties mapping {@code group:artifact} keys to package prefixes
+     */
+    public DependencyResolver(String mappingInstructions, Path cartridgePackages) {
+        indexTables(mappingInstructions);
+        String properties = indexProperties(cartridgePackages);
+        version = SourceTreeHasher.hashText(mappingInstructions + "\n" + properties);
+    }
+
+    /**
+     * SHA-256 of the mapping tables and the cartridge packages. Changes whenever a mapping is
+     * added, removed or edited.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Resolves imports. JDK imports and imports of the cartridge's own packages need no dependency.
+     *
+     * @param ownPackages packages declared by the cartridge sources
+     */
+    public Resolution resolve(Collection<String> imports, Collection<String> ownPackages) {
+        Set<Dependency> dependencies = new TreeSet<>(Comparator.comparing(Dependency::toString));
+        Set<String> unresolved = new TreeSet<>();
+        Set<String> own = Set.copyOf(ownPackages);
+
+        dependencies.add(Dependency.of("cartridge", PLATFORM_GROUP + ":pf_common"));
+        for (String importStatement : imports) {
+            if (importStatement.startsWith("java.") || isOwn(importStatement, own)) {
+                continue;
+            }
+            if (importStatement.equals(PIPELINE_NODE)) {
+                dependencies.add(Dependency.of("cartridge", PLATFORM_GROUP + ":pipeline"));
+                dependencies.add(Dependency.of("annotationProcessor", PLATFORM_GROUP + ":pipeline"));
+            }
+            if (importStatement.equals(CORE_LOGGER)) {
+                dependencies.add(Dependency.of("implementation", "org.slf4j:slf4j-api"));
+            }
+            Dependency dependency = lookup(importStatement);
+            if (dependency != null) {
+                dependencies.add(dependency);
+            } else {
+                unresolved.add(importStatement);
+            }
+        }
+        return new Resolution(dependencies, unresolved);
+    }
+
+    /**
+     * Adds the dependencies to the top level {@code dependencies} block of a build script. Existing
+     * lines stay where they are; new declarations are inserted sorted after the last declaration
+     * of their group, or as a new group with its comment. The file is only written if it changes.
+     *
+     * @return number of dependencies that were not declared before
+     */
+    public static int updateBuildScript(Path buildScript, Collection<Dependency> dependencies, PrintStream out) throws IOException {
+        String content = Files.readString(buildScript, StandardCharsets.UTF_8);
+        Matcher block = DEPENDENCIES_BLOCK.matcher(content);
+        int bodyStart;
+        int bodyEnd;
+        if (block.find()) {
+            bodyStart = block.end();
+            bodyEnd = findClosingBrace(content, bodyStart);
+            if (bodyEnd < 0) {
+                throw new IOException("Unbalanced dependencies block in " + buildScript);
+            }
+        } else {
+            content = content + (content.endsWith("\n") ? "" : "\n") + "\ndependencies {\n}\n";
+            bodyStart = content.lastIndexOf('{') + 1;
+            bodyEnd = content.lastIndexOf('}');
+        }
+
+        String[] lines = content.substring(bodyStart, bodyEnd).split("\n", -1);
+        Set<Dependency> declared = new HashSet<>();
+        // Index of the last declaration of each section
+        TreeMap<Integer, Integer> sectionEnds = new TreeMap<>();
+        int firstDeclaration = -1;
+        boolean hasContent = false;
+        String indent = null;
+        int depth = 0;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            String trimmed = line.trim();
+            hasContent |= !trimmed.isEmpty();
+            // Nested blocks like constraints { } are kept as they are
+            boolean nested = depth > 0;
+            depth += (int) (trimmed.chars().filter(c -> c == '{').count() - trimmed.chars().filter(c -> c == '}').count());
+            Matcher declaration = SCRIPT_DECLARATION.matcher(trimmed);
+            if (!nested && declaration.matches()) {
+                Dependency dependency = new Dependency(declaration.group(1), declaration.group(2));
+                declared.add(dependency);
+                sectionEnds.put(section(dependency), i);
+                if (firstDeclaration < 0) {
+                    firstDeclaration = i;
+                    indent = line.substring(0, line.indexOf(trimmed));
+                }
+            }
+        }
+        indent = indent != null ? indent : "    ";
+
+        TreeMap<Integer, Set<Dependency>> missing = new TreeMap<>();
+        for (Dependency dependency : dependencies) {
+            if (!declared.contains(dependency)) {
+                missing.computeIfAbsent(section(dependency), k -> new TreeSet<>(DECLARATION_ORDER)).add(dependency);
+            }
+        }
+
+        // Lines to insert before the line with the given index
+        Map<Integer, List<String>> inserts = new HashMap<>();
+        int added = 0;
+        for (Map.Entry<Integer, Set<Dependency>> entry : missing.entrySet()) {
+            int section = entry.getKey();
+            List<String> declarations = new ArrayList<>();
+            for (Dependency dependency : entry.getValue()) {
+                declarations.add(indent + dependency);
+            }
+            added += declarations.size();
+
+            Integer sectionEnd = sectionEnds.get(section);
+            if (sectionEnd != null) {
+                inserts.computeIfAbsent(sectionEnd + 1, k -> new ArrayList<>()).addAll(declarations);
+                continue;
+            }
+            List<String> group = new ArrayList<>();
+            group.add(indent + sectionComment(section));
+            group.addAll(declarations);
+            Map.Entry<Integer, Integer> previous = sectionEnds.lowerEntry(section);
+            int position;
+            if (previous != null) {
+                position = previous.getValue() + 1;
+                group.add(0, "");
+            } else if (firstDeclaration >= 0) {
+                boolean commented = firstDeclaration > 0 && SECTION_COMMENTS.contains(lines[firstDeclaration - 1].trim());
+                position = commented ? firstDeclaration - 1 : firstDeclaration;
+                group.add("");
+            } else {
+                position = lines.length - 1;
+                if (hasContent || inserts.containsKey(position)) {
+                    group.add(0, "");
+                }
+            }
+            inserts.computeIfAbsent(position, k -> new ArrayList<>()).addAll(group);
+        }
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            for (String insert : inserts.getOrDefault(i, List.of())) {
+                body.append(insert).append('\n');
+            }
+            body.append(lines[i]);
+            if (i < lines.length - 1) {
+                body.append('\n');
+            }
+        }
+
+        String updated = content.substring(0, bodyStart) + body + content.substring(bodyEnd);
+        if (!updated.equals(Files.readString(buildScript, StandardCharsets.UTF_8))) {
+            Files.writeString(buildScript, updated, StandardCharsets.UTF_8);
+            out.println("Updated " + buildScript + ": " + added + " dependencies added");
+        } else {
+            out.println(buildScript + " is up to date");
+        }
+        return added;
+    }
+
+    private Dependency lookup(String importStatement) {
+        PackageTrie.Match<Set<Dependency>> match = index.longestPrefix(importStatement);
+        if (match == null) {
+            return beehiveDependency(importStatement);
+        }
+        Set<Dependency> candidates = match.value();
+        if (candidates.size() == 1) {
+            return candidates.iterator().next();
+        }
+        Dependency beehive = beehiveDependency(importStatement);
+        return beehive != null && candidates.contains(beehive) ? beehive : null;
+    }
+
+    /**
+     * {@code com.intershop.beehive.{segment}.*} is provided by {@code com.intershop.platform:{segment}}
+     */
+    private static Dependency beehiveDependency(String importStatement) {
+        if (!importStatement.startsWith(BEEHIVE_PREFIX)) {
+            return null;
+        }
+        String rest = importStatement.substring(BEEHIVE_PREFIX.length());
+        int dot = rest.indexOf('.');
+        return dot > 0 ? Dependency.of("cartridge", PLATFORM_GROUP + ":" + rest.substring(0, dot)) : null;
+    }
+
+    private static boolean isOwn(String importStatement, Set<String> ownPackages) {
+        for (int dot = importStatement.lastIndexOf('.'); dot > 0; dot = importStatement.lastIndexOf('.', dot - 1)) {
+            if (ownPackages.contains(importStatement.substring(0, dot))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void indexTables(String instructions) {
+        for (String line : instructions.split("\n")) {
+            String[] cells = line.trim().split("\\|");
+            if (cells.length < 3 || !line.trim().startsWith("|")) {
+                continue;
+            }
+            Matcher declarationSpan = CODE_SPAN.matcher(cells[2]);
+            Matcher declaration = declarationSpan.find() ? TABLE_DECLARATION.matcher(declarationSpan.group(1).trim()) : null;
+            if (declaration == null || !declaration.matches()) {
+                continue;
+            }
+            Dependency dependency = Dependency.of(declaration.group(1), declaration.group(2));
+            Matcher patterns = CODE_SPAN.matcher(cells[1]);
+            while (patterns.find()) {
+                String pattern = patterns.group(1).trim();
+                String prefix = pattern.endsWith(".*") ? pattern.substring(0, pattern.length() - 2) : pattern;
+                if (prefix.contains(".") && !prefix.contains("*") && !prefix.contains(":")) {
+                    index.computeIfAbsent(prefix, k -> new LinkedHashSet<>()).add(dependency);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keys are {@code group:artifact} or {@code group:assembly:artifact} below {@code com.intershop}
+     *
+     * @return the content of the file, empty if it cannot be read
+     */
+    private String indexProperties(Path file) {
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            for (String line : content.split("\\R")) {
+                String trimmed = line.trim();
+                int separator = trimmed.indexOf('=');
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("!") || separator < 0) {
+                    continue;
+                }
+                String key = trimmed.substring(0, separator).trim();
+                String group = key.substring(0, key.indexOf(':') < 0 ? key.length() : key.indexOf(':'));
+                String artifact = key.substring(key.lastIndexOf(':') + 1);
+                Dependency dependency = Dependency.of("cartridge", "com.intershop." + group + ":" + artifact);
+                index.computeIfAbsent(trimmed.substring(separator + 1).trim(), k -> new LinkedHashSet<>()).add(dependency);
+            }
+            return content;
+        } catch (IOException e) {
+            System.err.println("Cannot read cartridge packages " + file + ": " + e.getMessage());
+            return "";
+        }
+    }
+
+    private static int section(Dependency dependency) {
+        String notation = dependency.notation();
+        if (dependency.configuration().startsWith("test")) {
+            return 4;
+        }
+        if (notation.startsWith("project(")) {
+            return 0;
+        }
+        if (notation.startsWith("\"" + PLATFORM_GROUP + ":")) {
+            return 1;
+        }
+        if (notation.startsWith("\"com.intershop.")) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private static String sectionComment(int section) {
+        return switch (section) {
+            case 0 -> "// Project dependencies";
+            case 1 -> "// Platform dependencies";
+            case 2 -> "// Business dependencies";
+            case 3 -> "// External dependencies";
+            default -> "// Test dependencies";
+        };
+    }
+
+    private static int findClosingBrace(String content, int from) {
+        int depth = 1;
+        for (int i = from; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -2,20 +2,35 @@ package com.intershop.mico.util;
 
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Stream;
+import java.util.function.Consumer;
 
+import com.intershop.mico.jfr.SourceScanEvent;
 import com.intershop.mico.models.Cartridge;
 
+/**
+ * Collects the imports and packages of the Java files of a cartridge.
+ * <p>
+ * Only the file header is read: the scan stops at the first token that is neither a package
+ * declaration, an import nor a comment, i.e. at the first type declaration or its annotations.
+ * Files are read byte by byte through one small buffer per scan, no line strings are created.
+ * The scans are done by {@link CartridgeSourceIndex}.
+ */
 public class JavaImportScanner {
 
-    private static final Pattern IMPORT_PATTERN = Pattern.compile("^import\\s+(?:static\\s+)?([\\w.]+);");
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final byte[] PACKAGE = "package".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IMPORT = "import".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] STATIC = "static".getBytes(StandardCharsets.US_ASCII);
 
     /**
      * Scans all Java files in the cartridge and collects unique import statements.
@@ -37,65 +52,213 @@ public class JavaImportScanner {
      * @return a set of unique import statements (excluding those matching the prefixes)
      */
     public static Set<String> scanImports(Cartridge cartridge, Set<String> exclusionPrefixes) {
-        Set<String> importSet = new HashSet<>();
-        Path cartridgePath = Path.of(cartridge.getPath());
-        int fileCount = 0;
-        try (Stream<Path> paths = Files.walk(cartridgePath)) {
-            for (Path javaFile : (Iterable<Path>) paths
-                    .filter(Files::isRegularFile)
-                    .filter(path -> path.toString().endsWith(".java"))::iterator) {
-                fileCount++;
-                try {
-                    extractImportsFromFile(javaFile, importSet, exclusionPrefixes);
-                } catch (IOException e) {
-                    System.err.println("Error reading file: " + javaFile + " - " + e.getMessage());
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error walking through cartridge path: " + cartridgePath + " - " + e.getMessage());
+        SourceScanEvent event = new SourceScanEvent();
+        event.begin();
+        CartridgeSourceIndex index = index(cartridge);
+        if (index == null) {
+            return new HashSet<>();
         }
-
-        System.out.println("Scanned " + fileCount + " Java files, found " + importSet.size() + " unique imports");
+        Set<String> importSet = index.getImports(exclusionPrefixes);
+        event.end();
+        if (event.shouldCommit()) {
+            event.cartridge = cartridge.getName();
+            event.operation = "imports";
+            event.files = index.getJavaFiles().size();
+            event.imports = importSet.size();
+            event.commit();
+        }
+        System.out.println("Scanned " + index.getJavaFiles().size() + " Java files, found " + importSet.size() + " unique imports");
         return importSet;
     }
 
     /**
-     * Extracts import statements from a single Java file and adds them to the set.
-     * Filters out imports matching any of the exclusion prefixes.
+     * Collects the packages declared by the Java files of the cartridge
      *
-     * @param javaFile the Java file to read
-     * @param importSet the set to add imports to
-     * @param exclusionPrefixes prefixes to exclude from the results
-     * @throws IOException if the file cannot be read
+     * @param cartridge the cartridge to scan
+     * @return a set of unique package names
      */
-    private static void extractImportsFromFile(Path javaFile, Set<String> importSet, Set<String> exclusionPrefixes) throws IOException {
-        try (Stream<String> lines = Files.lines(javaFile)) {
-            lines.forEach(line -> {
-                String trimmedLine = line.trim();
-                Matcher matcher = IMPORT_PATTERN.matcher(trimmedLine);
-                if (matcher.find()) {
-                    String importStatement = matcher.group(1);
-                    if (!isExcluded(importStatement, exclusionPrefixes)) {
-                        importSet.add(importStatement);
-                    }
-                }
-            });
+    public static Set<String> scanPackages(Cartridge cartridge) {
+        CartridgeSourceIndex index = index(cartridge);
+        return index != null ? index.getPackages() : new HashSet<>();
+    }
+
+    /**
+     * Indexes the cartridge for a single scan. Callers that scan several times should keep a
+     * {@link CartridgeSourceIndex} instead.
+     */
+    private static CartridgeSourceIndex index(Cartridge cartridge) {
+        try {
+            return new CartridgeSourceIndex(Path.of(cartridge.getPath()));
+        } catch (UncheckedIOException e) {
+            System.err.println("Error walking through cartridge path: " + cartridge.getPath() + " - " + e.getMessage());
+            return null;
         }
     }
 
     /**
-     * Checks if an import statement starts with any of the exclusion prefixes.
-     *
-     * @param importStatement the import statement to check
-     * @param exclusionPrefixes the set of prefixes to check against
-     * @return true if the import should be excluded, false otherwise
+     * Reads the header of Java files. Not thread safe, the buffers are reused for every file.
+     * Imports are reported like {@code import [static] name;} with a name of word characters and
+     * dots, other imports (e.g. wildcards) are skipped.
      */
-    private static boolean isExcluded(String importStatement, Set<String> exclusionPrefixes) {
-        for (String prefix : exclusionPrefixes) {
-            if (importStatement.startsWith(prefix)) {
-                return true;
+    static final class HeaderScanner {
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private byte[] word = new byte[256];
+        private FileChannel channel;
+        private int pushback = -1;
+
+        /**
+         * Reports the imports of the file and returns its package, or null if it has none
+         */
+        String scan(Path javaFile, Consumer<String> imports) throws IOException {
+            String packageName = null;
+            try (FileChannel fileChannel = FileChannel.open(javaFile, StandardOpenOption.READ)) {
+                channel = fileChannel;
+                buffer.clear().flip();
+                pushback = -1;
+                skipByteOrderMark();
+                while (true) {
+                    int c = skipWhitespaceAndComments();
+                    if (c == ';') {
+                        continue;
+                    }
+                    if (!isWordByte(c)) {
+                        break;
+                    }
+                    int length = readWord(c);
+                    if (equals(length, PACKAGE)) {
+                        String name = readName();
+                        if (name != null && packageName == null) {
+                            packageName = name;
+                        }
+                    } else if (equals(length, IMPORT)) {
+                        String name = readName();
+                        if (name != null) {
+                            imports.accept(name);
+                        }
+                    } else {
+                        // First type declaration, no more imports can follow
+                        break;
+                    }
+                }
+            } finally {
+                channel = null;
+            }
+            return packageName;
+        }
+
+        /**
+         * Reads {@code [static] name;} after the keyword. Returns null and skips to the end of
+         * the statement if it has another form.
+         */
+        private String readName() throws IOException {
+            int c = next();
+            if (!isWhitespace(c)) {
+                return skipStatement(c);
+            }
+            int length = readWord(skipWhitespace());
+            c = next();
+            if (equals(length, STATIC) && isWhitespace(c)) {
+                length = readWord(skipWhitespace());
+                c = next();
             }
+            if (c != ';' || length == 0) {
+                return skipStatement(c);
+            }
+            return new String(word, 0, length, StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * Reads word characters and dots, starting with {@code c}. The byte after them is pushed back.
+         */
+        private int readWord(int c) throws IOException {
+            int length = 0;
+            while (isWordByte(c) || c == '.') {
+                if (length == word.length) {
+                    word = Arrays.copyOf(word, word.length * 2);
+                }
+                word[length++] = (byte) c;
+                c = next();
+            }
+            pushback = c;
+            return length;
+        }
+
+        private String skipStatement(int c) throws IOException {
+            while (c != ';' && c != -1) {
+                c = next();
+            }
+            return null;
+        }
+
+        private int skipWhitespaceAndComments() throws IOException {
+            while (true) {
+                int c = skipWhitespace();
+                if (c != '/') {
+                    return c;
+                }
+                int second = next();
+                if (second == '/') {
+                    while (c != '\n' && c != -1) {
+                        c = next();
+                    }
+                } else if (second == '*') {
+                    int previous = 0;
+                    c = next();
+                    while (c != -1 && !(previous == '*' && c == '/')) {
+                        previous = c;
+                        c = next();
+                    }
+                } else {
+                    return '/';
+                }
+            }
+        }
+
+        private int skipWhitespace() throws IOException {
+            int c = next();
+            while (isWhitespace(c)) {
+                c = next();
+            }
+            return c;
+        }
+
+        private void skipByteOrderMark() throws IOException {
+            int c = next();
+            if (c == 0xEF && next() == 0xBB && next() == 0xBF) {
+                return;
+            }
+            // No byte order mark, start again at the first byte
+            buffer.position(0);
+            pushback = -1;
+        }
+
+        private int next() throws IOException {
+            if (pushback >= 0) {
+                int c = pushback;
+                pushback = -1;
+                return c;
+            }
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int read = channel.read(buffer);
+                buffer.flip();
+                if (read <= 0) {
+                    return -1;
+                }
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        private boolean equals(int length, byte[] keyword) {
+            return length == keyword.length && Arrays.equals(word, 0, length, keyword, 0, length);
+        }
+
+        private static boolean isWordByte(int c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+        }
+
+        private static boolean isWhitespace(int c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
         }
-        return false;
     }
 }
@@ -0,0 +1,147 @@
+package com.intershop.mico.util;
+
+import java.util.Arrays;
+
+/**
+ * Streaming lexer that tells code apart from comments, string and character literals and text
+ * blocks in Java sources.
+ * <p>
+ * {@link #next(CharSequence, int)} is called once for every character, in order, and returns the
+ * region the character belongs to. Delimiters belong to the region they open or close, the line
+ * break that ends a line comment is code. The lexer never looks back and allocates nothing while
+ * scanning, so rewrites can ask it for every character of a file they scan anyway.
+ */
+public final class JavaLexer {
+
+    public enum Region {
+        CODE, LINE_COMMENT, BLOCK_COMMENT, STRING, CHARACTER, TEXT_BLOCK
+    }
+
+    private Region region = Region.CODE;
+    private int codeStart;
+    private int skip;
+    private boolean closing;
+
+    /**
+     * Returns the region of the character at {@code index}. Must be called for the indexes
+     * 0, 1, 2, ... of the same text.
+     */
+    public Region next(CharSequence text, int index) {
+        Region current = region;
+        if (skip > 0) {
+            // Second or third character of a delimiter, or an escaped character
+            if (--skip == 0 && closing) {
+                closing = false;
+                enterCode(index + 1);
+            }
+            return current;
+        }
+        char c = text.charAt(index);
+        switch (current) {
+            case CODE -> {
+                if (c == '/' && peek(text, index + 1) == '/') {
+                    region = Region.LINE_COMMENT;
+                } else if (c == '/' && peek(text, index + 1) == '*') {
+                    // Skip the '*' so "/*/" does not close the comment
+                    region = Region.BLOCK_COMMENT;
+                    skip = 1;
+                } else if (c == '"' && peek(text, index + 1) == '"' && peek(text, index + 2) == '"') {
+                    region = Region.TEXT_BLOCK;
+                    skip = 2;
+                } else if (c == '"') {
+                    region = Region.STRING;
+                } else if (c == '\'') {
+                    region = Region.CHARACTER;
+                }
+                return region;
+            }
+            case LINE_COMMENT -> {
+                if (c == '\n' || c == '\r') {
+                    enterCode(index);
+                    return Region.CODE;
+                }
+            }
+            case BLOCK_COMMENT -> {
+                if (c == '*' && peek(text, index + 1) == '/') {
+                    close(1, index);
+                }
+            }
+            case STRING, CHARACTER -> {
+                if (c == '\\') {
+                    skip = 1;
+                } else if (c == (current == Region.STRING ? '"' : '\'')) {
+                    close(0, index);
+                } else if (c == '\n' || c == '\r') {
+                    // Unterminated literal, do not let it swallow the rest of the file
+                    enterCode(index);
+                    return Region.CODE;
+                }
+            }
+            case TEXT_BLOCK -> {
+                if (c == '\\') {
+                    skip = 1;
+                } else if (c == '"' && peek(text, index + 1) == '"' && peek(text, index + 2) == '"'
+                        && peek(text, index + 3) != '"') {
+                    // The last three quotes of a longer run close the block, the others are content
+                    close(2, index);
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Index where the current code region started. Only meaningful while {@link #next} returns
+     * {@link Region#CODE}.
+     */
+    public int codeStart() {
+        return codeStart;
+    }
+
+    /**
+     * Start and end indexes of all code regions of the text, as {@code [start0, end0, start1, end1, ...]}
+     */
+    public static int[] codeRegions(CharSequence text) {
+        JavaLexer lexer = new JavaLexer();
+        int[] regions = new int[16];
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i < text.length(); i++) {
+            boolean code = lexer.next(text, i) == Region.CODE;
+            if (code && start < 0) {
+                start = i;
+            } else if (!code && start >= 0) {
+                if (count + 2 > regions.length) {
+                    regions = Arrays.copyOf(regions, regions.length * 2);
+                }
+                regions[count++] = start;
+                regions[count++] = i;
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            regions = Arrays.copyOf(regions, count + 2);
+            regions[count++] = start;
+            regions[count++] = text.length();
+        }
+        return Arrays.copyOf(regions, count);
+    }
+
+    private void close(int remaining, int index) {
+        if (remaining == 0) {
+            enterCode(index + 1);
+        } else {
+            skip = remaining;
+            closing = true;
+        }
+    }
+
+    private void enterCode(int index) {
+        region = Region.CODE;
+        codeStart = index;
+    }
+
+    private static char peek(CharSequence text, int index) {
+        return index < text.length() ? text.charAt(index) : '\0';
+    }
+}
@@ -0,0 +1,454 @@
+package com.intershop.mico.util;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies a list of literal rewrite rules in a single scan of the text.
+ * <p>
+ * All rule keys are matched at once with an Aho-Corasick automaton and the result is spliced
+ * together in one {@link StringBuilder}. The result is the same as applying the rules one after
+ * another with {@link Matcher#replaceAll(String)}. {@link #compile(List)} only builds a rewriter
+ * if that holds for the given rules, i.e. no rule can match inside or across the text another rule
+ * matched or produced. Otherwise it returns null and the rules have to be applied one by one.
+ */
+public final class LiteralRewriter {
+    private static final Pattern WORD_BOUNDARY = Pattern.compile("\\b");
+    private static final String REGEX_META = "\\^$.|?*+()[]{}";
+    /** Characters that could open or close a comment or literal */
+    private static final String LEXER_DELIMITERS = "\"'/*\\";
+
+    /**
+     * A rule: literal segments, optionally separated by whitespace ({@code \s*}), and the
+     * conditions the regular expression of the rule puts on the surrounding text
+     */
+    public static final class Rule {
+        private final List<String> segments;
+        private final String replacement;
+        private final boolean wordBoundary;
+        private final boolean whitespaceBefore;
+        private final boolean whitespaceOrParenthesisAfter;
+
+        private Rule(List<String> segments, String replacement, boolean wordBoundary,
+                     boolean whitespaceBefore, boolean whitespaceOrParenthesisAfter) {
+            this.segments = List.copyOf(segments);
+            this.replacement = replacement;
+            this.wordBoundary = wordBoundary;
+            this.whitespaceBefore = whitespaceBefore;
+            this.whitespaceOrParenthesisAfter = whitespaceOrParenthesisAfter;
+        }
+
+        /**
+         * Same as {@code Pattern.compile(Pattern.quote(from)).matcher(text).replaceAll(Matcher.quoteReplacement(to))}
+         */
+        public static Rule literal(String from, String to) {
+            return new Rule(List.of(from), to, false, false, false);
+        }
+
+        /**
+         * Same as {@code Pattern.compile("(\\s)" + Pattern.quote(from) + "(\\s|\\()")} replaced by
+         * {@code "$1" + to + "$2"}
+         */
+        public static Rule annotation(String from, String to) {
+            return new Rule(List.of(from), to, false, true, true);
+        }
+
+        /**
+         * Converts a regular expression rule, or returns null if the expression is more than
+         * an optional leading {@code \b} and literals separated by {@code \s*}, or the replacement
+         * refers to groups
+         */
+        public static Rule regex(String regex, String replacement) {
+            if (replacement.indexOf('$') >= 0 || replacement.indexOf('\\') >= 0) {
+                return null;
+            }
+            boolean wordBoundary = regex.startsWith("\\b");
+            List<String> segments = new ArrayList<>();
+            StringBuilder segment = new StringBuilder();
+            for (int i = wordBoundary ? 2 : 0; i < regex.length(); i++) {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    if (i + 1 >= regex.length()) {
+                        return null;
+                    }
+                    char escaped = regex.charAt(++i);
+                    if (escaped == 's' && i + 1 < regex.length() && regex.charAt(i + 1) == '*') {
+                        // A gap needs literals on both sides that do not start with whitespace
+                        if (segment.isEmpty()) {
+                            return null;
+                        }
+                        segments.add(segment.toString());
+                        segment.setLength(0);
+                        i++;
+                    } else if (!Character.isLetterOrDigit(escaped) && escaped < 128) {
+                        segment.append(escaped);
+                    } else {
+                        return null;
+                    }
+                } else if (REGEX_META.indexOf(c) >= 0) {
+                    return null;
+                } else {
+                    segment.append(c);
+                }
+            }
+            if (segment.isEmpty() || (!segments.isEmpty() && isSpace(segment.charAt(0)))) {
+                return null;
+            }
+            segments.add(segment.toString());
+            for (String s : segments.subList(1, segments.size())) {
+                if (isSpace(s.charAt(0))) {
+                    return null;
+                }
+            }
+            return new Rule(segments, replacement, wordBoundary, false, false);
+        }
+
+        private boolean hasGaps() {
+            return segments.size() > 1;
+        }
+    }
+
+    private final Rule[] rules;
+    private final char[] charClasses;
+    private final int width;
+    private final int[] transitions;
+    private final int[][] outputs;
+    private final boolean needsBoundary;
+    private final boolean codeOnly;
+
+    private LiteralRewriter(Rule[] rules, boolean codeOnly) {
+        this.rules = rules;
+        this.codeOnly = codeOnly;
+
+        char maxChar = 0;
+        for (Rule rule : rules) {
+            for (char c : rule.segments.get(0).toCharArray()) {
+                maxChar = (char) Math.max(maxChar, c);
+            }
+        }
+        // Class 0 stands for all characters that do not occur in any key
+        charClasses = new char[maxChar + 1];
+        int classes = 1;
+        for (Rule rule : rules) {
+            for (char c : rule.segments.get(0).toCharArray()) {
+                if (charClasses[c] == 0) {
+                    charClasses[c] = (char) classes++;
+                }
+            }
+        }
+        width = classes;
+
+        // Trie of the first segments
+        List<int[]> gotos = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        gotos.add(newRow());
+        ends.add(new ArrayList<>());
+        for (int r = 0; r < rules.length; r++) {
+            int state = 0;
+            for (char c : rules[r].segments.get(0).toCharArray()) {
+                int next = gotos.get(state)[charClasses[c]];
+                if (next < 0) {
+                    next = gotos.size();
+                    gotos.get(state)[charClasses[c]] = next;
+                    gotos.add(newRow());
+                    ends.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            ends.get(state).add(r);
+        }
+
+        // Breadth first: failure links, complete transitions and inherited outputs
+        int states = gotos.size();
+        transitions = new int[states * width];
+        outputs = new int[states][];
+        int[] failure = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < width; c++) {
+            int next = gotos.get(0)[c];
+            transitions[c] = Math.max(0, next);
+            if (next > 0) {
+                queue.add(next);
+            }
+        }
+        outputs[0] = new int[0];
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            List<Integer> out = new ArrayList<>(ends.get(state));
+            for (int inherited : outputs[failure[state]]) {
+                out.add(inherited);
+            }
+            outputs[state] = out.stream().mapToInt(Integer::intValue).toArray();
+            for (int c = 0; c < width; c++) {
+                int next = gotos.get(state)[c];
+                if (next >= 0) {
+                    failure[next] = transitions[failure[state] * width + c];
+                    transitions[state * width + c] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * width + c] = transitions[failure[state] * width + c];
+                }
+            }
+        }
+        needsBoundary = Arrays.stream(rules).anyMatch(rule -> rule.wordBoundary);
+    }
+
+    /**
+     * Builds a rewriter for the rules, in the order they would be applied one by one, or returns
+     * null if a single scan could give a different result
+     */
+    public static LiteralRewriter compile(List<Rule> rules) {
+        return compile(rules, false);
+    }
+
+    /**
+     * Builds a rewriter that only rewrites Java code, not comments, string and character literals
+     * or text blocks. The result is the same as applying each rule to the code regions
+     * ({@link JavaLexer#codeRegions(CharSequence)}) one after another.
+     */
+    public static LiteralRewriter compile(List<Rule> rules, boolean codeOnly) {
+        if (rules.isEmpty() || rules.stream().anyMatch(Objects::isNull)) {
+            return null;
+        }
+        // Rules must not change where comments and literals are
+        if (codeOnly && rules.stream().anyMatch(rule -> containsAny(rule.replacement, LEXER_DELIMITERS)
+                || rule.segments.stream().anyMatch(segment -> containsAny(segment, LEXER_DELIMITERS)))) {
+            return null;
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = rules.get(i);
+            if (rule.replacement.isEmpty() || rule.segments.stream().anyMatch(String::isEmpty)) {
+                return null;
+            }
+            for (int j = 0; j < rules.size(); j++) {
+                if (i != j && !independent(rule, j > i ? rules.get(j) : null, rules.get(j))) {
+                    return null;
+                }
+            }
+        }
+        return new LiteralRewriter(rules.toArray(Rule[]::new), codeOnly);
+    }
+
+    /**
+     * Applies all rules. Returns the text itself if no rule matched.
+     */
+    public String rewrite(String text) {
+        int n = text.length();
+        int[] lastEnd = new int[rules.length];
+        Matcher boundary = needsBoundary ? WORD_BOUNDARY.matcher(text).useTransparentBounds(true) : null;
+        JavaLexer lexer = codeOnly ? new JavaLexer() : null;
+        StringBuilder result = null;
+        int copied = 0;
+        int state = 0;
+        for (int i = 0; i < n; i++) {
+            if (lexer != null && lexer.next(text, i) != JavaLexer.Region.CODE) {
+                state = 0;
+                continue;
+            }
+            char c = text.charAt(i);
+            state = transitions[state * width + (c < charClasses.length ? charClasses[c] : 0)];
+            for (int r : outputs[state]) {
+                Rule rule = rules[r];
+                int start = i + 1 - rule.segments.get(0).length();
+                int from = lexer != null ? Math.max(lastEnd[r], lexer.codeStart()) : lastEnd[r];
+                int end = matchEnd(rule, text, start, i + 1, from, boundary);
+                if (end < 0) {
+                    continue;
+                }
+                lastEnd[r] = rule.whitespaceOrParenthesisAfter ? end + 1 : end;
+                if (result == null) {
+                    result = new StringBuilder(n + 64);
+                }
+                result.append(text, copied, start).append(rule.replacement);
+                copied = end;
+            }
+        }
+        if (result == null) {
+            return text;
+        }
+        return result.append(text, copied, n).toString();
+    }
+
+    /**
+     * End of the replaced region if the rule matches with its first segment at {@code start},
+     * otherwise -1
+     */
+    private static int matchEnd(Rule rule, String text, int start, int firstEnd, int lastEnd, Matcher boundary) {
+        if (rule.whitespaceBefore) {
+            if (start - 1 < lastEnd || !isSpace(text.charAt(start - 1))) {
+                return -1;
+            }
+        } else if (start < lastEnd) {
+            return -1;
+        }
+        if (rule.wordBoundary && !boundary.region(start, text.length()).lookingAt()) {
+            return -1;
+        }
+        int end = firstEnd;
+        for (int s = 1; s < rule.segments.size(); s++) {
+            while (end < text.length() && isSpace(text.charAt(end))) {
+                end++;
+            }
+            if (!text.startsWith(rule.segments.get(s), end)) {
+                return -1;
+            }
+            end += rule.segments.get(s).length();
+        }
+        if (rule.whitespaceOrParenthesisAfter) {
+            if (end >= text.length() || !isSpaceOrParenthesis(text.charAt(end))) {
+                return -1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Whether {@code other} can be applied in the same scan as {@code rule}. {@code later} is
+     * {@code other} if it runs after {@code rule}, so it also must not match in what
+     * {@code rule} produces.
+     */
+    private static boolean independent(Rule rule, Rule later, Rule other) {
+        for (Region mine : regions(rule)) {
+            for (Region theirs : regions(other)) {
+                if (overlaps(mine, theirs)) {
+                    return false;
+                }
+            }
+        }
+        // \s* gaps must not run into the keys or output of another rule
+        if (rule.hasGaps() && (other.segments.stream().anyMatch(LiteralRewriter::containsSpace)
+                || containsSpace(other.replacement))) {
+            return false;
+        }
+        if (later == null) {
+            return true;
+        }
+        Region output = new Region(rule.replacement, rule.whitespaceBefore ? Context.SPACE : Context.ANY,
+            rule.whitespaceOrParenthesisAfter ? Context.SPACE_OR_PARENTHESIS : Context.ANY);
+        for (Region theirs : regions(later)) {
+            if (overlaps(output, theirs)) {
+                return false;
+            }
+        }
+        // Later rules look at the characters around the replacement, their class must not change
+        String from = rule.segments.get(0);
+        String last = rule.segments.get(rule.segments.size() - 1);
+        return sameClass(from.charAt(0), rule.replacement.charAt(0))
+            && sameClass(last.charAt(last.length() - 1), rule.replacement.charAt(rule.replacement.length() - 1));
+    }
+
+    /**
+     * What the text around a region of a match must look like
+     */
+    private enum Context {
+        ANY, SPACE, SPACE_OR_PARENTHESIS;
+
+        private boolean allows(char c) {
+            return switch (this) {
+                case ANY -> true;
+                case SPACE -> isSpace(c);
+                case SPACE_OR_PARENTHESIS -> isSpaceOrParenthesis(c);
+            };
+        }
+    }
+
+    private record Region(String text, Context before, Context after) {}
+
+    /**
+     * The whitespace free parts a match of the rule can consist of. Segments separated by an
+     * empty gap form one region, a non-empty gap puts whitespace around the regions.
+     */
+    private static List<Region> regions(Rule rule) {
+        List<Region> regions = new ArrayList<>();
+        int last = rule.segments.size() - 1;
+        for (int i = 0; i <= last; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = i; j <= last; j++) {
+                text.append(rule.segments.get(j));
+                Context before = i > 0 || rule.whitespaceBefore ? Context.SPACE : Context.ANY;
+                Context after = j < last ? Context.SPACE
+                    : rule.whitespaceOrParenthesisAfter ? Context.SPACE_OR_PARENTHESIS : Context.ANY;
+                regions.add(new Region(text.toString(), before, after));
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Whether the two regions can share a character in some text, respecting the context both
+     * require around them
+     */
+    private static boolean overlaps(Region a, Region b) {
+        String x = a.text();
+        String y = b.text();
+        for (int offset = 1 - y.length(); offset < x.length(); offset++) {
+            boolean consistent = true;
+            for (int p = Math.min(0, offset) - 1; p <= Math.max(x.length(), offset + y.length()) && consistent; p++) {
+                int q = p - offset;
+                boolean inX = p >= 0 && p < x.length();
+                boolean inY = q >= 0 && q < y.length();
+                if (inX && inY) {
+                    consistent = x.charAt(p) == y.charAt(q);
+                } else if (inY) {
+                    consistent = p == -1 ? a.before().allows(y.charAt(q))
+                        : p != x.length() || a.after().allows(y.charAt(q));
+                } else if (inX) {
+                    consistent = q == -1 ? b.before().allows(x.charAt(p))
+                        : q != y.length() || b.after().allows(x.charAt(p));
+                }
+            }
+            if (consistent) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean sameClass(char a, char b) {
+        if (Character.getType(a) == Character.NON_SPACING_MARK || Character.getType(b) == Character.NON_SPACING_MARK
+            || Character.isSurrogate(a) || Character.isSurrogate(b)) {
+            return false;
+        }
+        return isSpace(a) == isSpace(b)
+            && (a == '(') == (b == '(')
+            && isUnicodeWord(a) == isUnicodeWord(b)
+            && isAsciiWord(a) == isAsciiWord(b);
+    }
+
+    /** {@code \s} without {@link Pattern#UNICODE_CHARACTER_CLASS} */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static boolean isSpaceOrParenthesis(char c) {
+        return isSpace(c) || c == '(';
+    }
+
+    private static boolean containsAny(String text, String chars) {
+        return text.chars().anyMatch(c -> chars.indexOf(c) >= 0);
+    }
+
+    private static boolean containsSpace(String text) {
+        return text.chars().anyMatch(c -> isSpace((char) c));
+    }
+
+    private static boolean isUnicodeWord(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isAsciiWord(char c) {
+        return c == '_' || (c < 128 && Character.isLetterOrDigit(c));
+    }
+
+    private int[] newRow() {
+        int[] row = new int[width];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
@@ -0,0 +1,129 @@
+package com.intershop.mico.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically prints the progress of running agent sessions: the last line of output, the
+ * output rate and the elapsed time of each session.
+ * <p>
+ * Sessions are registered with {@link #start(String)} and report their output to the returned
+ * {@link Task}. Only the last line is kept per session, so memory use does not depend on the
+ * amount of output.
+ */
+public class LiveConsoleView implements AutoCloseable {
+
+    private static final long DEFAULT_INTERVAL_SECONDS = 10;
+    private static final int MAX_LINE_LENGTH = 120;
+
+    private final Map<Task, Boolean> tasks = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mico-live-view");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LiveConsoleView() {
+        this(DEFAULT_INTERVAL_SECONDS);
+    }
+
+    public LiveConsoleView(long intervalSeconds) {
+        executor.scheduleAtFixedRate(this::print, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A running session. Updated by the thread copying its output, read by the view.
+     */
+    public final class Task implements AutoCloseable {
+        private final String label;
+        private final long startNanos = System.nanoTime();
+        private volatile long bytes;
+        private volatile String lastLine = "";
+        private long printedBytes;
+        private long printedNanos = startNanos;
+
+        private Task(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Adds output that was copied to the log
+         */
+        public void output(int count) {
+            bytes += count;
+        }
+
+        /**
+         * Sets the last complete line of output
+         */
+        public void line(String line) {
+            lastLine = line;
+        }
+
+        /**
+         * Removes the session from the view
+         */
+        @Override
+        public void close() {
+            tasks.remove(this);
+        }
+
+        private String status(long now) {
+            long total = bytes;
+            double seconds = Math.max(1e-3, (now - printedNanos) / 1e9);
+            long rate = Math.round((total - printedBytes) / seconds);
+            printedBytes = total;
+            printedNanos = now;
+            String line = lastLine;
+            if (line.length() > MAX_LINE_LENGTH) {
+                line = line.substring(0, MAX_LINE_LENGTH - 1) + "…";
+            }
+            return "    ⏳ " + label + " " + formatElapsed(now - startNanos) + ", " + formatBytes(total) + ", "
+                + formatBytes(rate) + "/s" + (line.isEmpty() ? "" : " | " + line);
+        }
+    }
+
+    /**
+     * Registers a running session
+     *
+     * @param label shown in front of the status, e.g. cartridge and phase
+     */
+    public Task start(String label) {
+        Task task = new Task(label);
+        tasks.put(task, Boolean.TRUE);
+        return task;
+    }
+
+    /**
+     * Stops printing
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void print() {
+        long now = System.nanoTime();
+        for (Task task : tasks.keySet()) {
+            System.out.println(task.status(now));
+        }
+    }
+
+    private static String formatElapsed(long nanos) {
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+}
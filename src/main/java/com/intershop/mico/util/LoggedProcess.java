@@ -0,0 +1,194 @@
+package com.intershop.mico.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A process whose combined stdout and stderr are copied into its log file by a pump thread.
+ * <p>
+ * The output is appended behind the log header through one reusable buffer, so memory use does
+ * not depend on the amount of output. Each chunk is written as soon as it is read, so the log
+ * grows while the process runs. If a {@link LiveConsoleView.Task} is given, it receives the
+ * number of bytes and the last line of output.
+ * <p>
+ * The output streams of this process are empty, like for a process redirected to a file.
+ * Call {@link #awaitOutput(Duration)} after the process exited to be sure all output is logged.
+ */
+public class LoggedProcess extends Process {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_LINE_LENGTH = 512;
+
+    private final Process process;
+    private final Path logFile;
+    private final LiveConsoleView.Task task;
+    private final Thread pump;
+
+    /**
+     * Starts the process and the pump
+     *
+     * @param task progress of the process in the live view, may be null
+     */
+    public static LoggedProcess start(ProcessBuilder pb, Path logFile, LiveConsoleView.Task task) throws IOException {
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
+        return new LoggedProcess(pb.start(), logFile, task);
+    }
+
+    private LoggedProcess(Process process, Path logFile, LiveConsoleView.Task task) {
+        this.process = process;
+        this.logFile = logFile;
+        this.task = task;
+        this.pump = new Thread(this::pump, "mico-output-" + process.pid());
+        pump.setDaemon(true);
+        pump.start();
+    }
+
+    /**
+     * Waits until the output is completely logged. Descendants that inherited the output and
+     * outlive the process may keep it open, so the wait is limited.
+     *
+     * @return true if all output was logged
+     */
+    public boolean awaitOutput(Duration timeout) throws InterruptedException {
+        pump.join(Math.max(1, timeout.toMillis()));
+        return !pump.isAlive();
+    }
+
+    private void pump() {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] line = new byte[MAX_LINE_LENGTH];
+        int lineLength = 0;
+        try (ReadableByteChannel in = Channels.newChannel(process.getInputStream());
+             FileChannel out = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.APPEND)) {
+            boolean writable = true;
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                if (task != null) {
+                    task.output(buffer.remaining());
+                    for (int i = buffer.position(); i < buffer.limit(); i++) {
+                        byte b = buffer.get(i);
+                        if (b == '\n' || b == '\r') {
+                            if (lineLength > 0) {
+                                task.line(new String(line, 0, lineLength, StandardCharsets.UTF_8).strip());
+                            }
+                            lineLength = 0;
+                        } else if (lineLength < line.length) {
+                            line[lineLength++] = b;
+                        }
+                    }
+                }
+                try {
+                    while (writable && buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                } catch (IOException e) {
+                    // Keep draining, a full pipe would block the process
+                    System.err.println("Failed to write to " + logFile + ": " + e.getMessage());
+                    writable = false;
+                }
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read output for " + logFile + ": " + e.getMessage());
+        } finally {
+            if (task != null) {
+                task.close();
+            }
+        }
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return process.getOutputStream();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return InputStream.nullInputStream();
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return InputStream.nullInputStream();
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+        return process.waitFor();
+    }
+
+    @Override
+    public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+        return process.waitFor(timeout, unit);
+    }
+
+    @Override
+    public int exitValue() {
+        return process.exitValue();
+    }
+
+    @Override
+    public void destroy() {
+        process.destroy();
+    }
+
+    @Override
+    public Process destroyForcibly() {
+        process.destroyForcibly();
+        return this;
+    }
+
+    @Override
+    public boolean supportsNormalTermination() {
+        return process.supportsNormalTermination();
+    }
+
+    @Override
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    @Override
+    public long pid() {
+        return process.pid();
+    }
+
+    @Override
+    public CompletableFuture<Process> onExit() {
+        return process.onExit().thenApply(exited -> this);
+    }
+
+    @Override
+    public ProcessHandle toHandle() {
+        return process.toHandle();
+    }
+
+    @Override
+    public ProcessHandle.Info info() {
+        return process.info();
+    }
+
+    @Override
+    public Stream<ProcessHandle> children() {
+        return process.children();
+    }
+
+    @Override
+    public Stream<ProcessHandle> descendants() {
+        return process.descendants();
+    }
+}
@@ -2,20 +2,36 @@ package com.intershop.mico.util;
 
 import com.intershop.mico.models.Cartridge;
 import com.intershop.mico.models.Phase;
+import com.intershop.mico.models.PhaseOutcome;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
 
-public class MigrationLogger {
+/**
+ * Writes the logs of a migration session. Master and cartridge summary messages are appended by
+ * an {@link AsyncLogWriter}, call {@link #close()} at the end of the session to write them all.
+ */
+public class MigrationLogger implements AutoCloseable {
     private static final Path LOGS_DIR = Paths.get("logs");
     private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final DateTimeFormatter MESSAGE_TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final int SLOWEST_CARTRIDGES = 5;
 
     private final String sessionId;
     private final Path sessionLogDir;
+    private final AsyncLogWriter writer = new AsyncLogWriter();
+    // Messages still queued when the JVM exits, e.g. on System.exit, are written as well
+    private final Thread shutdownHook = registerShutdownHook(writer);
 
     public MigrationLogger() {
         this.sessionId = LocalDateTime.now().format(TIMESTAMP_FORMAT);
@@ -29,18 +45,64 @@ public class MigrationLogger {
         }
     }
 
+    /**
+     * Continues logging into the directory of an existing session
+     */
+    public MigrationLogger(Path sessionLogDir) {
+        if (!Files.isDirectory(sessionLogDir)) {
+            throw new IllegalArgumentException("Session directory does not exist: " + sessionLogDir);
+        }
+        String dirName = sessionLogDir.getFileName().toString();
+        this.sessionId = dirName.startsWith("session_") ? dirName.substring("session_".length()) : dirName;
+        this.sessionLogDir = sessionLogDir;
+        System.out.println("📝 Resuming session, logging to: " + sessionLogDir.toAbsolutePath());
+    }
+
+    /**
+     * Resolves a session given either as a directory path or as a session id
+     * like {@code 2026-01-27_14-30-45} below the logs directory
+     */
+    public static Path resolveSessionDir(String session) {
+        Path asPath = Paths.get(session);
+        if (Files.isDirectory(asPath)) {
+            return asPath;
+        }
+        Path byId = LOGS_DIR.resolve(session.startsWith("session_") ? session : "session_" + session);
+        if (Files.isDirectory(byId)) {
+            return byId;
+        }
+        throw new IllegalArgumentException("Session not found: " + session);
+    }
+
     /**
      * Gets the log file path for a specific cartridge and phase
      */
     public Path getLogFile(Cartridge cartridge, Phase phase) {
+        return getLogFile(cartridge, phase, 1);
+    }
+
+    /**
+     * Gets the log file path for an attempt of a phase. The first attempt uses the plain phase log,
+     * retries get their own log file each.
+     */
+    public Path getLogFile(Cartridge cartridge, Phase phase, int attempt) {
         String sanitizedName = sanitizeFileName(cartridge.getName());
-        String fileName = String.format("%s_phase_%d_%s.log",
+        String fileName = String.format("%s_phase_%d_%s%s.log",
             sanitizedName,
             phase.getOrder(),
-            phase.getId());
+            phase.getId(),
+            attempt > 1 ? "_attempt_" + attempt : "");
         return sessionLogDir.resolve(fileName);
     }
 
+    /**
+     * Gets the log file path for the fix pass that runs before an attempt of a phase
+     */
+    public Path getFixLogFile(Cartridge cartridge, Phase phase, int attempt) {
+        String fileName = getLogFile(cartridge, phase, attempt).getFileName().toString();
+        return sessionLogDir.resolve(fileName.replaceFirst("\\.log$", "_fix.log"));
+    }
+
     /**
      * Gets the summary log file path for a cartridge (all phases combined)
      */
@@ -57,20 +119,20 @@ public class MigrationLogger {
     }
 
     /**
-     * Creates a process that redirects output to a log file while also displaying to console
+     * Starts a process whose output is appended to the log file, behind its header
      */
-    public Process executeWithLogging(ProcessBuilder pb, Path logFile) throws IOException {
-        // Create log file parent directories if needed
-        Files.createDirectories(logFile.getParent());
-
-        // Create the log file writer
-        FileOutputStream logStream = new FileOutputStream(logFile.toFile());
-
-        // Instead of inheritIO, we'll redirect to the log file
-        pb.redirectOutput(ProcessBuilder.Redirect.appendTo(logFile.toFile()));
-        pb.redirectError(ProcessBuilder.Redirect.appendTo(logFile.toFile()));
+    public LoggedProcess executeWithLogging(ProcessBuilder pb, Path logFile) throws IOException {
+        return executeWithLogging(pb, logFile, null);
+    }
 
-        return pb.start();
+    /**
+     * Starts a process whose output is appended to the log file and reported to a live view
+     *
+     * @param task progress of the process in the live view, may be null
+     */
+    public LoggedProcess executeWithLogging(ProcessBuilder pb, Path logFile, LiveConsoleView.Task task) throws IOException {
+        Files.createDirectories(logFile.getParent());
+        return LoggedProcess.start(pb, logFile, task);
     }
 
     /**
@@ -91,39 +153,59 @@ public class MigrationLogger {
     }
 
     /**
-     * Appends a message to the master log
+     * Appends a message to the master log. Cartridges running in parallel share the master log,
+     * messages are written in the order they are logged.
      */
     public void logToMaster(String message) {
-        try {
-            Path masterLog = getMasterLogFile();
-            String timestampedMessage = String.format("[%s] %s\n",
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")),
-                message);
-            Files.writeString(masterLog, timestampedMessage,
-                java.nio.file.StandardOpenOption.CREATE,
-                java.nio.file.StandardOpenOption.APPEND);
-        } catch (IOException e) {
-            System.err.println("Failed to write to master log: " + e.getMessage());
-        }
+        writer.append(getMasterLogFile(), timestamped(message));
     }
 
     /**
      * Appends a message to the cartridge summary log
      */
     public void logToCartridgeSummary(Cartridge cartridge, String message) {
+        writer.append(getCartridgeSummaryLog(cartridge), timestamped(message));
+    }
+
+    /**
+     * Closes the cartridge summary log once its messages are written. Call it when the cartridge
+     * is done, so large sessions do not keep a file open per cartridge.
+     */
+    public void closeCartridgeSummary(Cartridge cartridge) {
+        writer.close(getCartridgeSummaryLog(cartridge));
+    }
+
+    /**
+     * Waits until all logged messages are written to the log files
+     */
+    public void flush() {
+        writer.flush();
+    }
+
+    /**
+     * Writes all logged messages and closes the log files. Messages logged afterwards are
+     * written directly.
+     */
+    @Override
+    public void close() {
+        writer.close();
         try {
-            Path summaryLog = getCartridgeSummaryLog(cartridge);
-            String timestampedMessage = String.format("[%s] %s\n",
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")),
-                message);
-            Files.writeString(summaryLog, timestampedMessage,
-                java.nio.file.StandardOpenOption.CREATE,
-                java.nio.file.StandardOpenOption.APPEND);
-        } catch (IOException e) {
-            System.err.println("Failed to write to cartridge summary log: " + e.getMessage());
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Closed by the hook itself while the JVM shuts down
         }
     }
 
+    private static Thread registerShutdownHook(AsyncLogWriter writer) {
+        Thread hook = new Thread(writer::close, "mico-log-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+        return hook;
+    }
+
+    private static String timestamped(String message) {
+        return "[" + LocalTime.now().format(MESSAGE_TIME_FORMAT) + "] " + message + "\n";
+    }
+
     /**
      * Reads and returns the content of a log file
      */
@@ -134,6 +216,25 @@ public class MigrationLogger {
         return "";
     }
 
+    /**
+     * Reads at most the last {@code maxBytes} bytes of a log file, or an empty string if it
+     * cannot be read
+     */
+    public static String readLogTail(Path logFile, int maxBytes) {
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, maxBytes));
+            channel.position(size - buffer.capacity());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read until the tail is complete
+            }
+            buffer.flip();
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
     /**
      * Sanitizes a file name to remove invalid characters
      */
@@ -146,6 +247,22 @@ public class MigrationLogger {
      * Creates a summary report at the end of migration
      */
     public void createSummaryReport(int totalCartridges, int totalPhases, long durationMillis) {
+        createSummaryReport(totalCartridges, totalPhases, durationMillis, Map.of());
+    }
+
+    /**
+     * Creates a summary report at the end of migration, including how many phases ended with each outcome
+     */
+    public void createSummaryReport(int totalCartridges, int totalPhases, long durationMillis, Map<PhaseOutcome, Integer> outcomes) {
+        createSummaryReport(totalCartridges, totalPhases, durationMillis, outcomes, null);
+    }
+
+    /**
+     * Creates a summary report at the end of migration, including the phase outcomes and, if
+     * metrics are given, the phase durations and the slowest cartridges
+     */
+    public void createSummaryReport(int totalCartridges, int totalPhases, long durationMillis, Map<PhaseOutcome, Integer> outcomes,
+                                    SessionMetrics metrics) {
         try {
             Path summaryFile = sessionLogDir.resolve("SUMMARY.txt");
             try (BufferedWriter writer = Files.newBufferedWriter(summaryFile)) {
@@ -156,8 +273,14 @@ public class MigrationLogger {
                 writer.write("Total Cartridges: " + totalCartridges + "\n");
                 writer.write("Total Phases: " + totalPhases + "\n");
                 writer.write("Duration: " + formatDuration(durationMillis) + "\n");
+                for (Map.Entry<PhaseOutcome, Integer> outcome : outcomes.entrySet()) {
+                    writer.write("Phases " + outcome.getKey().name().toLowerCase() + ": " + outcome.getValue() + "\n");
+                }
                 writer.write("Completed: " + LocalDateTime.now() + "\n");
                 writer.write("=".repeat(80) + "\n");
+                if (metrics != null) {
+                    writeMetrics(writer, metrics);
+                }
                 writer.write("\nDetailed logs available in: " + sessionLogDir.toAbsolutePath() + "\n");
             }
             System.out.println("\n📊 Summary report created: " + summaryFile.toAbsolutePath());
@@ -166,7 +289,29 @@ public class MigrationLogger {
         }
     }
 
+    private void writeMetrics(BufferedWriter writer, SessionMetrics metrics) throws IOException {
+        Map<String, SessionMetrics.Durations> durations = metrics.getPhaseDurations();
+        if (durations.isEmpty()) {
+            return;
+        }
+        writer.write("\nPhase durations (runs, p50 / p95 / max):\n");
+        for (Map.Entry<String, SessionMetrics.Durations> phase : durations.entrySet()) {
+            SessionMetrics.Durations d = phase.getValue();
+            writer.write("  " + phase.getKey() + ": " + d.count() + ", " + formatDuration(d.p50Millis()) + " / "
+                + formatDuration(d.p95Millis()) + " / " + formatDuration(d.maxMillis()) + "\n");
+        }
+        writer.write("\nSlowest cartridges:\n");
+        int rank = 1;
+        for (Map.Entry<String, Long> cartridge : metrics.getSlowestCartridges(SLOWEST_CARTRIDGES)) {
+            writer.write("  " + rank++ + ". " + cartridge.getKey() + ": " + formatDuration(cartridge.getValue()) + "\n");
+        }
+        writer.write("\nPhase events: " + metrics.getEventsFile().getFileName() + "\n");
+    }
+
     private String formatDuration(long millis) {
+        if (millis < 1000) {
+            return millis + " ms";
+        }
         long seconds = millis / 1000;
         long minutes = seconds / 60;
         seconds = seconds % 60;
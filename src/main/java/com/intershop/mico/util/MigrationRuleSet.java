@@ -0,0 +1,280 @@
+package com.intershop.mico.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * The compiled rules of the {@link CodeMigrator}.
+ * <p>
+ * Rules are defined in JSON files with the sections {@code packages}, {@code staticImports},
+ * {@code classes}, {@code annotations} and {@code methods}. The bundled default rules are always
+ * loaded first, project specific rule files (e.g. for a customer) are added in file name order.
+ * Within a section, rules apply in the order they are listed.
+ * <pre>
+ * {
+ *   "name": "customer",
+ *   "packages": [ { "from": "javax.inject.", "to": "jakarta.inject." } ],
+ *   "classes": [ { "from": "com.customer.OldName", "to": "com.customer.NewName" } ],
+ *   "annotations": [ { "from": "@Disabled", "to": "@Ignore" } ],
+ *   "methods": [ { "pattern": "\\bverifyZeroInteractions\\s*\\(", "replacement": "verifyNoInteractions(" } ]
+ * }
+ * </pre>
+ * All patterns are compiled once when the rule set is loaded. Where possible, the rules of a stage
+ * are also compiled into a {@link LiteralRewriter} that applies them in a single scan. A rule set
+ * is immutable and can be shared by all cartridges and threads.
+ */
+public final class MigrationRuleSet {
+    private static final String DEFAULT_RULES = "/com/intershop/mico/rules/default-rules.json";
+
+    /** A compiled pattern and its replacement, ready for {@link Matcher#replaceAll(String)} */
+    public record Replacement(Pattern pattern, String replacement) {}
+
+    private record RuleFile(String name, List<Rule> packages, List<Rule> staticImports, List<Rule> classes,
+                            List<Rule> annotations, List<Rule> methods) {}
+
+    private record Rule(String from, String to, String pattern, String replacement) {}
+
+    /** Replacement of a class rule and its position in {@link #getClasses()} */
+    private record ClassRule(String to, int order) {}
+
+    private static MigrationRuleSet defaults;
+
+    private final List<String> names;
+    private final List<Replacement> packages;
+    private final List<String> packagePrefixes;
+    private final List<Replacement> staticImports;
+    private final Map<String, String> classes;
+    private final PackageTrie<ClassRule> classTrie = new PackageTrie<>();
+    private final List<Replacement> annotations;
+    private final List<Replacement> methods;
+    private final LiteralRewriter packageRewriter;
+    private final LiteralRewriter codeRewriter;
+    private final String version;
+
+    private MigrationRuleSet(List<String> names, List<RuleFile> files, String sources) {
+        List<Replacement> packageReplacements = new ArrayList<>();
+        List<String> packageSources = new ArrayList<>();
+        List<Replacement> staticImportReplacements = new ArrayList<>();
+        Map<String, String> classMigrations = new LinkedHashMap<>();
+        List<Replacement> annotationReplacements = new ArrayList<>();
+        List<Replacement> methodReplacements = new ArrayList<>();
+        List<LiteralRewriter.Rule> packageRules = new ArrayList<>();
+        List<LiteralRewriter.Rule> codeRules = new ArrayList<>();
+
+        for (RuleFile file : files) {
+            for (Rule rule : nonNull(file.packages())) {
+                packageReplacements.add(new Replacement(
+                    Pattern.compile("import " + Pattern.quote(rule.from())),
+                    Matcher.quoteReplacement("import " + rule.to())));
+                packageRules.add(LiteralRewriter.Rule.literal("import " + rule.from(), "import " + rule.to()));
+                packageSources.add(rule.from());
+            }
+            for (Rule rule : nonNull(file.staticImports())) {
+                staticImportReplacements.add(new Replacement(
+                    Pattern.compile("^import static\\s+" + Pattern.quote(rule.from())),
+                    Matcher.quoteReplacement("import static " + rule.to())));
+            }
+            for (Rule rule : nonNull(file.classes())) {
+                classMigrations.putIfAbsent(rule.from(), rule.to());
+            }
+            for (Rule rule : nonNull(file.annotations())) {
+                // Only annotations after whitespace and followed by whitespace or arguments
+                annotationReplacements.add(new Replacement(
+                    Pattern.compile("(\\s)" + Pattern.quote(rule.from()) + "(\\s|\\()"),
+                    "$1" + Matcher.quoteReplacement(rule.to()) + "$2"));
+            }
+            for (Rule rule : nonNull(file.methods())) {
+                methodReplacements.add(new Replacement(Pattern.compile(rule.pattern()), rule.replacement()));
+            }
+        }
+        // Annotations are applied before methods, so both stages can share one scan
+        files.forEach(file -> nonNull(file.annotations())
+            .forEach(rule -> codeRules.add(LiteralRewriter.Rule.annotation(rule.from(), rule.to()))));
+        files.forEach(file -> nonNull(file.methods())
+            .forEach(rule -> codeRules.add(LiteralRewriter.Rule.regex(rule.pattern(), rule.replacement()))));
+
+        this.names = List.copyOf(names);
+        this.packages = List.copyOf(packageReplacements);
+        this.packagePrefixes = List.copyOf(packageSources);
+        this.staticImports = List.copyOf(staticImportReplacements);
+        this.classes = Collections.unmodifiableMap(classMigrations);
+        classMigrations.forEach((from, to) -> classTrie.put(from, new ClassRule(to, classTrie.size())));
+        this.annotations = List.copyOf(annotationReplacements);
+        this.methods = List.copyOf(methodReplacements);
+        this.packageRewriter = LiteralRewriter.compile(packageRules);
+        this.codeRewriter = LiteralRewriter.compile(codeRules, true);
+        this.version = SourceTreeHasher.hashText(sources);
+    }
+
+    /**
+     * The bundled default rules
+     */
+    public static synchronized MigrationRuleSet defaults() {
+        if (defaults == null) {
+            defaults = load(null);
+        }
+        return defaults;
+    }
+
+    /**
+     * Loads the default rules and all {@code *.json} rule files of a directory
+     *
+     * @param rulesDirectory directory with project specific rules, may be null or missing
+     */
+    public static MigrationRuleSet load(Path rulesDirectory) {
+        List<String> names = new ArrayList<>();
+        List<RuleFile> files = new ArrayList<>();
+        StringBuilder sources = new StringBuilder();
+
+        String defaultRules = readDefaultRules();
+        files.add(parse(defaultRules, DEFAULT_RULES));
+        sources.append(defaultRules);
+
+        if (rulesDirectory != null && Files.isDirectory(rulesDirectory)) {
+            try (Stream<Path> paths = Files.list(rulesDirectory)) {
+                for (Path file : paths.filter(p -> p.toString().endsWith(".json")).sorted().toList()) {
+                    String json = Files.readString(file, StandardCharsets.UTF_8);
+                    files.add(parse(json, file.toString()));
+                    sources.append('\0').append(json);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read migration rules from " + rulesDirectory, e);
+            }
+        }
+        files.forEach(file -> names.add(file.name() != null ? file.name() : "unnamed"));
+        return new MigrationRuleSet(names, files, sources.toString());
+    }
+
+    /**
+     * SHA-256 of all rule files. Changes whenever a rule is added, removed or edited.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Names of the loaded rule files, defaults first
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    public List<Replacement> getPackages() {
+        return packages;
+    }
+
+    /**
+     * Package prefixes the package rules migrate from, e.g. {@code javax.inject.}, in rule order
+     */
+    public List<String> getPackagePrefixes() {
+        return packagePrefixes;
+    }
+
+    public List<Replacement> getStaticImports() {
+        return staticImports;
+    }
+
+    /**
+     * Fully qualified class names and their replacements, in rule order
+     */
+    public Map<String, String> getClasses() {
+        return classes;
+    }
+
+    /**
+     * Applies the class rules to a fully qualified name. The first rule whose class is the name or
+     * encloses it (e.g. {@code Assertions} for {@code Assertions.assertEquals}) wins.
+     *
+     * @return the migrated name, or the name itself if no rule applies
+     */
+    public String migrateClassName(String className) {
+        ClassRule[] first = new ClassRule[1];
+        String[] firstPrefix = new String[1];
+        classTrie.forEachPrefix(className, (prefix, rule) -> {
+            if (first[0] == null || rule.order() < first[0].order()) {
+                first[0] = rule;
+                firstPrefix[0] = prefix;
+            }
+        });
+        return first[0] != null ? first[0].to() + className.substring(firstPrefix[0].length()) : className;
+    }
+
+    public List<Replacement> getAnnotations() {
+        return annotations;
+    }
+
+    public List<Replacement> getMethods() {
+        return methods;
+    }
+
+    /**
+     * Single scan rewriter for the package rules, or null if they have to be applied one by one
+     */
+    public LiteralRewriter getPackageRewriter() {
+        return packageRewriter;
+    }
+
+    /**
+     * Single scan rewriter for the annotation and method rules that leaves comments and literals
+     * alone, or null if the rules have to be applied one by one
+     */
+    public LiteralRewriter getCodeRewriter() {
+        return codeRewriter;
+    }
+
+    private static RuleFile parse(String json, String source) {
+        try {
+            RuleFile file = new Gson().fromJson(json, RuleFile.class);
+            if (file == null) {
+                throw new IllegalArgumentException("Empty migration rule file: " + source);
+            }
+            for (Rule rule : nonNull(file.methods())) {
+                if (rule.pattern() == null || rule.replacement() == null) {
+                    throw new IllegalArgumentException("Method rules need pattern and replacement: " + source);
+                }
+                Pattern.compile(rule.pattern());
+            }
+            Stream.of(file.packages(), file.staticImports(), file.classes(), file.annotations())
+                .flatMap(rules -> nonNull(rules).stream())
+                .filter(rule -> rule.from() == null || rule.to() == null)
+                .findFirst()
+                .ifPresent(rule -> {
+                    throw new IllegalArgumentException("Rules need from and to: " + source);
+                });
+            return file;
+        } catch (JsonParseException | PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid migration rule file " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String readDefaultRules() {
+        try (InputStream in = MigrationRuleSet.class.getResourceAsStream(DEFAULT_RULES)) {
+            if (in == null) {
+                throw new IllegalStateException("Default migration rules not found: " + DEFAULT_RULES);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read default migration rules", e);
+        }
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return list != null ? list : List.of();
+    }
+}
@@ -0,0 +1,180 @@
+package com.intershop.mico.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Map from dotted names (packages, classes, imports) to values that finds the entries for all
+ * prefixes of a name.
+ * <p>
+ * A key is a prefix of a name if it is equal to the name or followed by a {@code .} in it, so
+ * {@code com.intershop} is a prefix of {@code com.intershop.beehive.Foo}, but not of
+ * {@code com.intershopx.Foo}. Lookups walk the segments of the name, one hash lookup each, so
+ * their cost does not depend on the number of entries. Values must not be null. Not thread safe
+ * while it is modified.
+ *
+ * @param <V> type of the values
+ */
+public final class PackageTrie<V> {
+
+    /**
+     * An entry whose key is a prefix of the name that was looked up
+     */
+    public record Match<V>(String prefix, V value) {}
+
+    private static final class Node<V> {
+        private Map<String, Node<V>> children;
+        private V value;
+    }
+
+    private final Node<V> root = new Node<>();
+    private int size;
+
+    /**
+     * Associates the value with the name, replacing any previous value
+     */
+    public void put(String name, V value) {
+        Objects.requireNonNull(value, "value");
+        Node<V> node = node(name);
+        if (node.value == null) {
+            size++;
+        }
+        node.value = value;
+    }
+
+    /**
+     * Returns the value of the name, computing and adding it first if there is none
+     */
+    public V computeIfAbsent(String name, Function<String, V> mappingFunction) {
+        Node<V> node = node(name);
+        if (node.value == null) {
+            node.value = Objects.requireNonNull(mappingFunction.apply(name), "value");
+            size++;
+        }
+        return node.value;
+    }
+
+    /**
+     * Value of exactly this name, or null
+     */
+    public V get(String name) {
+        Node<V> node = root;
+        int start = 0;
+        while (node != null) {
+            int dot = name.indexOf('.', start);
+            node = child(node, name.substring(start, dot < 0 ? name.length() : dot));
+            if (dot < 0) {
+                return node != null ? node.value : null;
+            }
+            start = dot + 1;
+        }
+        return null;
+    }
+
+    /**
+     * The entry with the longest key that is a prefix of the name, or null
+     */
+    public Match<V> longestPrefix(String name) {
+        Node<V> node = root;
+        Node<V> longest = null;
+        int longestEnd = 0;
+        int start = 0;
+        while (true) {
+            int dot = name.indexOf('.', start);
+            int end = dot < 0 ? name.length() : dot;
+            node = child(node, name.substring(start, end));
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                longest = node;
+                longestEnd = end;
+            }
+            if (dot < 0) {
+                break;
+            }
+            start = dot + 1;
+        }
+        return longest != null ? new Match<>(name.substring(0, longestEnd), longest.value) : null;
+    }
+
+    /**
+     * Checks if any key is a prefix of the name
+     */
+    public boolean containsPrefixOf(String name) {
+        return longestPrefix(name) != null;
+    }
+
+    /**
+     * Checks if the name is a prefix of any key, i.e. equal to a key or followed by a {@code .} in it
+     */
+    public boolean isPrefixOfAnyKey(String name) {
+        Node<V> node = root;
+        int start = 0;
+        while (node != null) {
+            int dot = name.indexOf('.', start);
+            node = child(node, name.substring(start, dot < 0 ? name.length() : dot));
+            if (dot < 0) {
+                // Nodes are only created on the path of a key
+                return node != null;
+            }
+            start = dot + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Calls the action for every entry whose key is a prefix of the name, shortest key first
+     */
+    public void forEachPrefix(String name, BiConsumer<String, V> action) {
+        Node<V> node = root;
+        int start = 0;
+        while (true) {
+            int dot = name.indexOf('.', start);
+            int end = dot < 0 ? name.length() : dot;
+            node = child(node, name.substring(start, end));
+            if (node == null) {
+                return;
+            }
+            if (node.value != null) {
+                action.accept(name.substring(0, end), node.value);
+            }
+            if (dot < 0) {
+                return;
+            }
+            start = dot + 1;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private Node<V> node(String name) {
+        Node<V> node = root;
+        int start = 0;
+        while (true) {
+            int dot = name.indexOf('.', start);
+            String segment = name.substring(start, dot < 0 ? name.length() : dot);
+            if (node.children == null) {
+                node.children = new HashMap<>();
+            }
+            node = node.children.computeIfAbsent(segment, key -> new Node<>());
+            if (dot < 0) {
+                return node;
+            }
+            start = dot + 1;
+        }
+    }
+
+    private static <V> Node<V> child(Node<V> node, String segment) {
+        return node.children != null ? node.children.get(segment) : null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.intershop.mico.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.intershop.mico.models.Cartridge;
+import com.intershop.mico.models.Phase;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Remembers, across sessions, the fingerprints of phases that completed successfully.
+ * <p>
+ * A fingerprint combines the source tree hash of a cartridge, the hash of the rendered phase
+ * prompt and the agent and model. Fingerprints are stored for the tree as it was when the cartridge
+ * finished, so a later run on an untouched cartridge computes the same fingerprints and can skip
+ * the phases. The store is a JSON file shared by all sessions.
+ */
+public class PhaseFingerprintStore {
+    public static final Path DEFAULT_FILE = Paths.get("logs", "phase-fingerprints.json");
+
+    private static final Type STORE_TYPE = new TypeToken<TreeMap<String, TreeMap<String, String>>>(){}.getType();
+
+    private final Path storeFile;
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final Map<String, TreeMap<String, String>> fingerprints;
+
+    public PhaseFingerprintStore(Path storeFile) {
+        this.storeFile = storeFile;
+        this.fingerprints = load();
+    }
+
+    /**
+     * Whether the phase succeeded before on a cartridge with exactly this fingerprint
+     */
+    public synchronized boolean matches(Cartridge cartridge, Phase phase, String fingerprint) {
+        return fingerprint.equals(fingerprints.getOrDefault(key(cartridge), new TreeMap<>()).get(phase.getId()));
+    }
+
+    public synchronized void put(Cartridge cartridge, Phase phase, String fingerprint) {
+        fingerprints.computeIfAbsent(key(cartridge), k -> new TreeMap<>()).put(phase.getId(), fingerprint);
+    }
+
+    public synchronized void remove(Cartridge cartridge, Phase phase) {
+        fingerprints.getOrDefault(key(cartridge), new TreeMap<>()).remove(phase.getId());
+    }
+
+    /**
+     * Writes the store through a temporary file, so a crash never leaves a half-written store behind
+     */
+    public synchronized void save() {
+        try {
+            Files.createDirectories(storeFile.toAbsolutePath().getParent());
+            Path tempFile = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+            Files.writeString(tempFile, gson.toJson(fingerprints, STORE_TYPE), StandardCharsets.UTF_8);
+            Files.move(tempFile, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to save phase fingerprints: " + e.getMessage());
+        }
+    }
+
+    private Map<String, TreeMap<String, String>> load() {
+        if (!Files.exists(storeFile)) {
+            return new TreeMap<>();
+        }
+        try {
+            Map<String, TreeMap<String, String>> loaded = gson.fromJson(Files.readString(storeFile, StandardCharsets.UTF_8), STORE_TYPE);
+            return loaded != null ? loaded : new TreeMap<>();
+        } catch (IOException | JsonParseException e) {
+            System.err.println("Ignoring unreadable phase fingerprints " + storeFile + ": " + e.getMessage());
+            return new TreeMap<>();
+        }
+    }
+
+    private String key(Cartridge cartridge) {
+        return Paths.get(cartridge.getPath()).toAbsolutePath().normalize().toString();
+    }
+}
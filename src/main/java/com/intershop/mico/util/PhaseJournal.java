@@ -0,0 +1,167 @@
+package com.intershop.mico.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.intershop.mico.models.Cartridge;
+import com.intershop.mico.models.Phase;
+import com.intershop.mico.models.PhaseOutcome;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-ahead journal of phase executions, stored as JSON lines in the session directory.
+ * <p>
+ * A {@code start} entry is written before a phase runs and an {@code end} entry with the
+ * outcome after it finished. Every entry is forced to disk before the call returns, so after
+ * a crash the journal tells exactly which phases completed. A phase with a {@code start} but
+ * no {@code end} entry was interrupted and runs again on resume.
+ * <p>
+ * Entries are keyed by the absolute, normalized cartridge path, so a resumed session finds
+ * them however the cartridge path was spelled on the command line.
+ */
+public class PhaseJournal {
+    public static final String FILE_NAME = "journal.jsonl";
+
+    private static final String EVENT_START = "start";
+    private static final String EVENT_END = "end";
+
+    private final Path journalFile;
+    private final Gson gson = new Gson();
+    private final Map<String, Map<String, PhaseOutcome>> outcomes = new HashMap<>();
+    private FileChannel channel;
+    private boolean tornTail;
+
+    private record Entry(String event, String cartridge, String phase, PhaseOutcome outcome, String timestamp) {}
+
+    public PhaseJournal(Path sessionLogDir) {
+        this.journalFile = sessionLogDir.resolve(FILE_NAME);
+        load();
+    }
+
+    /**
+     * Records that a phase is about to run
+     */
+    public synchronized void phaseStarted(Cartridge cartridge, Phase phase) {
+        append(new Entry(EVENT_START, key(cartridge), phase.getId(), null, LocalDateTime.now().toString()));
+    }
+
+    /**
+     * Records the outcome of a phase
+     */
+    public synchronized void phaseFinished(Cartridge cartridge, Phase phase, PhaseOutcome outcome) {
+        append(new Entry(EVENT_END, key(cartridge), phase.getId(), outcome, LocalDateTime.now().toString()));
+        outcomes.computeIfAbsent(key(cartridge), k -> new HashMap<>()).put(phase.getId(), outcome);
+    }
+
+    /**
+     * Last recorded outcome of a phase, or null if it never finished
+     */
+    public synchronized PhaseOutcome getOutcome(Cartridge cartridge, Phase phase) {
+        return outcomes.getOrDefault(key(cartridge), Collections.emptyMap()).get(phase.getId());
+    }
+
+    public synchronized boolean isCompleted(Cartridge cartridge, Phase phase) {
+        PhaseOutcome outcome = getOutcome(cartridge, phase);
+        return outcome != null && outcome.isSuccessful();
+    }
+
+    /**
+     * Whether the journal has recorded any outcome
+     */
+    public synchronized boolean hasOutcomes() {
+        return !outcomes.isEmpty();
+    }
+
+    /**
+     * Whether the journal has recorded an outcome for any of the given cartridges
+     */
+    public synchronized boolean hasOutcomes(Collection<Cartridge> cartridges) {
+        return cartridges.stream().anyMatch(cartridge -> outcomes.containsKey(key(cartridge)));
+    }
+
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close journal: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    public Path getJournalFile() {
+        return journalFile;
+    }
+
+    private static String key(Cartridge cartridge) {
+        return Paths.get(cartridge.getPath()).toAbsolutePath().normalize().toString();
+    }
+
+    private void append(Entry entry) {
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(journalFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            // Terminate a line left incomplete by a crash so the new entry starts on its own line
+            String prefix = tornTail ? "\n" : "";
+            tornTail = false;
+            ByteBuffer line = ByteBuffer.wrap((prefix + gson.toJson(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("Failed to write to journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays an existing journal. A torn last line from a crash is ignored.
+     */
+    private void load() {
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+        List<String> lines;
+        try {
+            // Decoded leniently, a crash can cut a multi-byte character in half
+            String content = new String(Files.readAllBytes(journalFile), StandardCharsets.UTF_8);
+            tornTail = !content.isEmpty() && !content.endsWith("\n");
+            lines = content.lines().toList();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read journal: " + journalFile, e);
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                entries.add(gson.fromJson(line, Entry.class));
+            } catch (JsonParseException e) {
+                System.err.println("Ignoring unreadable journal entry: " + line);
+            }
+        }
+        for (Entry entry : entries) {
+            if (EVENT_END.equals(entry.event()) && entry.outcome() != null) {
+                outcomes.computeIfAbsent(entry.cartridge(), k -> new HashMap<>()).put(entry.phase(), entry.outcome());
+            }
+        }
+    }
+}
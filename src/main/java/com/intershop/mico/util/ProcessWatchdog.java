@@ -0,0 +1,133 @@
+package com.intershop.mico.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kills agent processes that run too long or stop producing output.
+ * <p>
+ * Every watched process is checked periodically against a wall-clock timeout and an idle
+ * timeout. The idle time is measured by the growth of the process log file. When a timeout
+ * is exceeded, the process and all of its descendants are destroyed forcibly, so a hung
+ * agent cannot block the session.
+ */
+public class ProcessWatchdog implements AutoCloseable {
+
+    /**
+     * Why a watched process was killed
+     */
+    public enum Reason { TIMEOUT, IDLE_TIMEOUT }
+
+    private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mico-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A single watched process
+     */
+    public final class Watch {
+        private final Process process;
+        private final Path logFile;
+        private final long deadline;
+        private final long idleNanos;
+        private long lastSize = -1;
+        private long lastGrowth = System.nanoTime();
+        private volatile Reason reason;
+        private ScheduledFuture<?> future;
+
+        private Watch(Process process, Path logFile, Duration timeout, Duration idleTimeout) {
+            this.process = process;
+            this.logFile = logFile;
+            this.deadline = isSet(timeout) ? System.nanoTime() + timeout.toNanos() : Long.MAX_VALUE;
+            this.idleNanos = isSet(idleTimeout) ? idleTimeout.toNanos() : Long.MAX_VALUE;
+        }
+
+        /**
+         * Stops watching, to be called once the process has exited
+         */
+        public void cancel() {
+            future.cancel(false);
+        }
+
+        /**
+         * Why the process was killed, or null if it was not
+         */
+        public Reason getReason() {
+            return reason;
+        }
+
+        public boolean isKilled() {
+            return reason != null;
+        }
+
+        private void check() {
+            if (!process.isAlive()) {
+                future.cancel(false);
+                return;
+            }
+            long now = System.nanoTime();
+            long size = logSize();
+            if (size != lastSize) {
+                lastSize = size;
+                lastGrowth = now;
+            }
+            if (now - deadline >= 0) {
+                kill(Reason.TIMEOUT);
+            } else if (now - lastGrowth >= idleNanos) {
+                kill(Reason.IDLE_TIMEOUT);
+            }
+        }
+
+        private void kill(Reason reason) {
+            this.reason = reason;
+            future.cancel(false);
+            // Agents start helper processes (node, MCP servers), which would keep running otherwise
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+
+        private long logSize() {
+            try {
+                return Files.size(logFile);
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Starts watching a process. A null or zero timeout disables the respective check.
+     *
+     * @param logFile file the process writes its output to
+     */
+    public Watch watch(Process process, Path logFile, Duration timeout, Duration idleTimeout) {
+        Watch watch = new Watch(process, logFile, timeout, idleTimeout);
+        synchronized (watch) {
+            watch.future = executor.scheduleWithFixedDelay(() -> {
+                synchronized (watch) {
+                    watch.check();
+                }
+            }, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return watch;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static boolean isSet(Duration duration) {
+        return duration != null && !duration.isZero() && !duration.isNegative();
+    }
+}
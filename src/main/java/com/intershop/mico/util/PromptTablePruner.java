@@ -0,0 +1,166 @@
+package com.intershop.mico.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Removes the rows of import mapping tables that do not apply to a cartridge.
+ * <p>
+ * Phase instructions mark their mapping tables like this:
+ * <pre>
+ * &lt;!-- mico:prune-by-imports --&gt;
+ * | Import Pattern | Dependency |
+ * |----------------|------------|
+ * | `com.intershop.beehive.core.*` | `cartridge("com.intershop.platform:core")` |
+ * &lt;!-- mico:end --&gt;
+ * </pre>
+ * Within a marked section, a row is kept if one of the imports of the cartridge starts with one
+ * of the row's patterns, or with one of the packages that {@code cartridge-packages.properties}
+ * lists for the row's artifact. All other lines of the section are kept, the markers are removed.
+ */
+public class PromptTablePruner {
+    public static final String SECTION_START = "<!-- mico:prune-by-imports -->";
+    public static final String SECTION_END = "<!-- mico:end -->";
+
+    private static final Pattern CODE_SPAN = Pattern.compile("`([^`]+)`");
+    private static final Pattern COORDINATE = Pattern.compile("\\(\"[^\":]+:([^\":]+)(?::[^\"]*)?\"\\)");
+
+    private final Map<String, List<String>> packagesByArtifact;
+
+    /**
+     * Pruned text and the number of mapping rows kept and removed
+     */
+    public record Result(String text, int keptRows, int removedRows) {}
+
+    /**
+     * @param cartridgePackages properties file mapping {@code group:artifact} keys to package prefixes,
+     *                          the same key may occur several times
+     */
+    public PromptTablePruner(Path cartridgePackages) {
+        this.packagesByArtifact = loadPackages(cartridgePackages);
+    }
+
+    /**
+     * Whether the text contains sections to prune
+     */
+    public static boolean hasSections(String text) {
+        return text.contains(SECTION_START);
+    }
+
+    /**
+     * Prunes all marked sections of the text for the given imports
+     */
+    public Result prune(String text, Collection<String> imports) {
+        if (!hasSections(text)) {
+            return new Result(text, 0, 0);
+        }
+        PackageTrie<Boolean> importTrie = new PackageTrie<>();
+        for (String importStatement : imports) {
+            importTrie.put(importStatement, Boolean.TRUE);
+        }
+        StringBuilder result = new StringBuilder(text.length());
+        boolean inSection = false;
+        int keptRows = 0;
+        int removedRows = 0;
+        for (String line : text.split("\n", -1)) {
+            String trimmed = line.trim();
+            if (trimmed.equals(SECTION_START)) {
+                inSection = true;
+                continue;
+            }
+            if (trimmed.equals(SECTION_END)) {
+                inSection = false;
+                continue;
+            }
+            if (inSection) {
+                List<String> prefixes = rowPrefixes(trimmed);
+                if (!prefixes.isEmpty()) {
+                    if (!matchesAny(prefixes, importTrie)) {
+                        removedRows++;
+                        continue;
+                    }
+                    keptRows++;
+                }
+            }
+            result.append(line).append('\n');
+        }
+        // split() with limit -1 yields a trailing empty element, drop its newline again
+        result.setLength(result.length() - 1);
+        return new Result(result.toString(), keptRows, removedRows);
+    }
+
+    /**
+     * Package prefixes of a mapping table row, or an empty list for lines that are not mapping rows
+     */
+    private List<String> rowPrefixes(String line) {
+        if (!line.startsWith("|")) {
+            return List.of();
+        }
+        String[] cells = line.split("\\|");
+        if (cells.length < 3) {
+            return List.of();
+        }
+        List<String> prefixes = new ArrayList<>();
+        Matcher patterns = CODE_SPAN.matcher(cells[1]);
+        while (patterns.find()) {
+            String pattern = patterns.group(1).trim();
+            prefixes.add(pattern.endsWith(".*") ? pattern.substring(0, pattern.length() - 2) : pattern);
+        }
+        if (prefixes.isEmpty()) {
+            return prefixes;
+        }
+        Matcher coordinate = COORDINATE.matcher(cells[2]);
+        if (coordinate.find()) {
+            prefixes.addAll(packagesByArtifact.getOrDefault(coordinate.group(1), List.of()));
+        }
+        return prefixes;
+    }
+
+    /**
+     * Checks if one of the prefixes is a prefix of an import, one trie walk per prefix
+     */
+    private static boolean matchesAny(List<String> prefixes, PackageTrie<Boolean> importTrie) {
+        for (String prefix : prefixes) {
+            if (importTrie.isPrefixOfAnyKey(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the properties by hand, {@link java.util.Properties} would keep only the last value
+     * of keys that occur several times
+     */
+    private static Map<String, List<String>> loadPackages(Path file) {
+        Map<String, Set<String>> packages = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String trimmed = line.trim();
+                int separator = trimmed.indexOf('=');
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("!") || separator < 0) {
+                    continue;
+                }
+                String key = trimmed.substring(0, separator).trim();
+                String artifact = key.substring(key.lastIndexOf(':') + 1);
+                packages.computeIfAbsent(artifact, k -> new LinkedHashSet<>()).add(trimmed.substring(separator + 1).trim());
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot read cartridge packages " + file + ": " + e.getMessage());
+        }
+        Map<String, List<String>> result = new HashMap<>();
+        packages.forEach((artifact, prefixes) -> result.put(artifact, List.copyOf(prefixes)));
+        return result;
+    }
+}
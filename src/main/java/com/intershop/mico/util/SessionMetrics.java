@@ -0,0 +1,246 @@
+package com.intershop.mico.util;
+
+import com.google.gson.Gson;
+import com.intershop.mico.models.Cartridge;
+import com.intershop.mico.models.Phase;
+import com.intershop.mico.models.PhaseOutcome;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Machine readable metrics of a session, written as JSON lines to {@value #FILE_NAME} in the
+ * session directory.
+ * <p>
+ * Every phase writes a {@code phase_start} and a {@code phase_end} event, agent phases also a
+ * {@code retry} event per failed attempt and a {@code timeout} event per killed attempt. Events
+ * carry the cartridge, phase, agent and model and, where known, the prompt size, exit code,
+ * wall time and the number of files the phase added, removed or changed. The wall time of a
+ * {@code phase_end} event leaves out the time the phase waited for retries, which is reported as
+ * its backoff. The durations of the finished phases are kept for the percentiles of the summary report.
+ */
+public class SessionMetrics {
+    public static final String FILE_NAME = "events.jsonl";
+
+    private static final String NATIVE_AGENT = "native";
+
+    private record Event(String event, String timestamp, String cartridge, String phase, String agent, String model,
+                         Integer attempt, Long promptBytes, Integer exitCode, Long wallMillis, Integer filesTouched,
+                         PhaseOutcome outcome, String reason, Long backoffMillis) {}
+
+    private record Finished(String cartridge, String phase, long wallMillis) {}
+
+    /**
+     * Duration statistics of one phase over all cartridges
+     */
+    public record Durations(int count, long p50Millis, long p95Millis, long maxMillis) {}
+
+    /**
+     * A running phase. Filled in while the phase runs, by the thread running it.
+     */
+    public static final class PhaseRun {
+        private final String cartridge;
+        private final String phase;
+        private final String agent;
+        private final String model;
+        private final long startNanos = System.nanoTime();
+        private long waitStartNanos;
+        private long waitNanos;
+        private Long promptBytes;
+        private Integer exitCode;
+        private int attempts = 1;
+        private Integer filesTouched;
+
+        private PhaseRun(String cartridge, String phase, String agent, String model) {
+            this.cartridge = cartridge;
+            this.phase = phase;
+            this.agent = agent;
+            this.model = model;
+        }
+
+        /**
+         * Records the size of the prompt sent to the agent. Native phases send no prompt, their
+         * prompt size stays unset.
+         */
+        public void setPrompt(String prompt) {
+            if (!NATIVE_AGENT.equals(agent)) {
+                this.promptBytes = (long) prompt.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+
+        public void setExitCode(int exitCode) {
+            this.exitCode = exitCode;
+        }
+
+        public void setAttempts(int attempts) {
+            this.attempts = attempts;
+        }
+
+        /**
+         * @param filesTouched files added, removed or changed, negative if unknown
+         */
+        public void setFilesTouched(int filesTouched) {
+            this.filesTouched = filesTouched >= 0 ? filesTouched : null;
+        }
+
+        /**
+         * The phase waits for its next attempt. The wait does not count as phase time.
+         */
+        public void retryWaitStarted() {
+            waitStartNanos = System.nanoTime();
+        }
+
+        public void retryWaitEnded() {
+            waitNanos += System.nanoTime() - waitStartNanos;
+        }
+
+        private long elapsedMillis() {
+            return (System.nanoTime() - startNanos - waitNanos) / 1_000_000;
+        }
+    }
+
+    private final Path eventsFile;
+    private final Gson gson = new Gson();
+    private final List<Finished> finished = new ArrayList<>();
+    private FileChannel channel;
+
+    public SessionMetrics(Path sessionLogDir) {
+        this.eventsFile = sessionLogDir.resolve(FILE_NAME);
+    }
+
+    /**
+     * Creates the record of an agent phase
+     *
+     * @param agentType agent running the phase
+     * @param model model of the agent, may be null
+     */
+    public PhaseRun agentPhase(Cartridge cartridge, Phase phase, String agentType, String model) {
+        return new PhaseRun(cartridge.getName(), phase.getId(), agentType, model);
+    }
+
+    /**
+     * Creates the record of a phase implemented natively
+     */
+    public PhaseRun nativePhase(Cartridge cartridge, Phase phase) {
+        return new PhaseRun(cartridge.getName(), phase.getId(), NATIVE_AGENT, null);
+    }
+
+    public synchronized void phaseStarted(PhaseRun run) {
+        append(event("phase_start", run, null, null, null, null, null, null));
+    }
+
+    /**
+     * Records a failed attempt that is retried after the backoff
+     */
+    public synchronized void retry(PhaseRun run, int attempt, int exitCode, long wallMillis, long backoffMillis,
+                                   boolean rateLimited) {
+        append(event("retry", run, attempt, exitCode, wallMillis, null,
+            rateLimited ? "rate_limited" : "failed", backoffMillis));
+    }
+
+    /**
+     * Records an attempt killed by the watchdog
+     *
+     * @param reason e.g. {@code timeout} or {@code idle_timeout}
+     */
+    public synchronized void timeout(PhaseRun run, int attempt, String reason, long wallMillis) {
+        append(event("timeout", run, attempt, null, wallMillis, null, reason, null));
+    }
+
+    public synchronized void phaseFinished(PhaseRun run, PhaseOutcome outcome) {
+        long wallMillis = run.elapsedMillis();
+        append(event("phase_end", run, run.attempts, run.exitCode, wallMillis, outcome, null,
+            run.waitNanos > 0 ? run.waitNanos / 1_000_000 : null));
+        if (outcome != PhaseOutcome.UNCHANGED) {
+            finished.add(new Finished(run.cartridge, run.phase, wallMillis));
+        }
+    }
+
+    /**
+     * Duration statistics per phase id, in the order the phases first finished. Phases skipped as
+     * unchanged are not counted.
+     */
+    public synchronized Map<String, Durations> getPhaseDurations() {
+        Map<String, List<Long>> byPhase = new LinkedHashMap<>();
+        for (Finished phase : finished) {
+            byPhase.computeIfAbsent(phase.phase(), k -> new ArrayList<>()).add(phase.wallMillis());
+        }
+        Map<String, Durations> durations = new LinkedHashMap<>();
+        byPhase.forEach((phase, millis) -> {
+            millis.sort(null);
+            durations.put(phase, new Durations(millis.size(), percentile(millis, 50), percentile(millis, 95),
+                millis.get(millis.size() - 1)));
+        });
+        return durations;
+    }
+
+    /**
+     * Cartridges with the longest total phase time, slowest first
+     */
+    public synchronized List<Map.Entry<String, Long>> getSlowestCartridges(int limit) {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (Finished phase : finished) {
+            totals.merge(phase.cartridge(), phase.wallMillis(), Long::sum);
+        }
+        return totals.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+            .limit(limit)
+            .toList();
+    }
+
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close metrics events: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    public Path getEventsFile() {
+        return eventsFile;
+    }
+
+    /**
+     * Nearest rank percentile of sorted values
+     */
+    private static long percentile(List<Long> sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    private Event event(String name, PhaseRun run, Integer attempt, Integer exitCode, Long wallMillis,
+                        PhaseOutcome outcome, String reason, Long backoffMillis) {
+        boolean end = "phase_end".equals(name);
+        return new Event(name, LocalDateTime.now().toString(), run.cartridge, run.phase, run.agent, run.model,
+            attempt, run.promptBytes, exitCode, wallMillis, end ? run.filesTouched : null, outcome, reason,
+            backoffMillis);
+    }
+
+    private void append(Event event) {
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(eventsFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer line = ByteBuffer.wrap((gson.toJson(event) + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write metrics event: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.intershop.mico.util;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Decides which files of a cartridge are sources.
+ * <p>
+ * Exclude globs without a {@code /} match the name of a file or directory anywhere in the tree
+ * (e.g. {@code node_modules}), globs with a {@code /} match the path relative to the cartridge
+ * (e.g. {@code build/**}). A glob ending in {@code /**} excludes the directory itself as well.
+ * Excluded directories are not descended into. Java files
+ * larger than the size limit are usually generated and are skipped with a warning.
+ */
+public final class SourceFilter {
+
+    /**
+     * Build output of the cartridge, IDE and VCS folders and generated sources. Build output is
+     * anchored to the cartridge root, a package named {@code build} must stay a source.
+     */
+    public static final List<String> DEFAULT_EXCLUDES = List.of(
+        "build/**", ".gradle/**", ".git", ".idea", "node_modules", "generated-src", "src-gen");
+
+    public static final long DEFAULT_MAX_FILE_SIZE = 1024 * 1024;
+
+    private static final SourceFilter DEFAULTS = new SourceFilter(DEFAULT_EXCLUDES, DEFAULT_MAX_FILE_SIZE);
+
+    private final List<String> excludes;
+    private final List<PathMatcher> nameMatchers = new ArrayList<>();
+    private final List<PathMatcher> pathMatchers = new ArrayList<>();
+    private final long maxFileSize;
+
+    /**
+     * @param excludes exclude globs, replacing the defaults
+     * @param maxFileSize maximum size of a Java file in bytes
+     */
+    public SourceFilter(List<String> excludes, long maxFileSize) {
+        if (maxFileSize < 1) {
+            throw new IllegalArgumentException("Maximum file size must be positive, was " + maxFileSize);
+        }
+        for (String glob : excludes) {
+            try {
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+                (glob.contains("/") ? pathMatchers : nameMatchers).add(matcher);
+                if (glob.endsWith("/**")) {
+                    // Lets the walk skip the directory instead of visiting each file in it
+                    pathMatchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob.substring(0, glob.length() - 3)));
+                }
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid exclude glob '" + glob + "': " + e.getDescription(), e);
+            }
+        }
+        this.excludes = List.copyOf(excludes);
+        this.maxFileSize = maxFileSize;
+    }
+
+    /**
+     * The default excludes and size limit
+     */
+    public static SourceFilter defaults() {
+        return DEFAULTS;
+    }
+
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    /**
+     * Checks if a file or directory below the root is excluded by a glob. The root itself never is.
+     */
+    public boolean isExcluded(Path root, Path path) {
+        Path relative = root.relativize(path);
+        if (relative.toString().isEmpty()) {
+            return false;
+        }
+        Path name = relative.getFileName();
+        return nameMatchers.stream().anyMatch(matcher -> matcher.matches(name))
+            || pathMatchers.stream().anyMatch(matcher -> matcher.matches(relative));
+    }
+
+    /**
+     * Checks if a file is a Java file above the size limit
+     */
+    public boolean isOversized(Path file, long size) {
+        return size > maxFileSize && file.toString().endsWith(".java");
+    }
+
+    /**
+     * Walks the tree below {@code start}, a directory of the cartridge {@code root}, and reports
+     * every regular file not excluded by a glob. Excluded directories are pruned, {@code start} is
+     * reported to {@code directories} as well. The size limit is left to {@link #accepts}.
+     * Symbolic links to files are reported with the attributes of their target, links to
+     * directories are not followed.
+     */
+    public void walk(Path root, Path start, BiConsumer<Path, BasicFileAttributes> directories,
+                     BiConsumer<Path, BasicFileAttributes> files) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (isExcluded(root, dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                directories.accept(dir, attrs);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                BasicFileAttributes fileAttrs = attrs.isSymbolicLink() ? followFileLink(file, attrs) : attrs;
+                if (fileAttrs.isRegularFile() && !isExcluded(root, file)) {
+                    files.accept(file, fileAttrs);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Attributes of a path without following links, except for a link to a regular file, which
+     * gets the attributes of its target like {@link Files#isRegularFile} does. Returns null if the
+     * path does not exist.
+     */
+    static BasicFileAttributes readAttributes(Path path) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return attributes.isSymbolicLink() ? followFileLink(path, attributes) : attributes;
+    }
+
+    /**
+     * The attributes of the target if the link points to a regular file, otherwise those of the
+     * link itself, so broken links and links to directories are neither files nor directories
+     */
+    private static BasicFileAttributes followFileLink(Path link, BasicFileAttributes linkAttributes) {
+        try {
+            BasicFileAttributes target = Files.readAttributes(link, BasicFileAttributes.class);
+            return target.isRegularFile() ? target : linkAttributes;
+        } catch (IOException e) {
+            return linkAttributes;
+        }
+    }
+
+    /**
+     * Checks if a regular file below the root is a source, warning about oversized files
+     */
+    public boolean accepts(Path root, Path file, long size) {
+        if (isExcluded(root, file)) {
+            return false;
+        }
+        if (isOversized(file, size)) {
+            System.err.println("⚠️ Skipping " + file + ": " + (size + 1023) / 1024 + " KB exceeds the limit of "
+                + maxFileSize / 1024 + " KB");
+            return false;
+        }
+        return true;
+    }
+}
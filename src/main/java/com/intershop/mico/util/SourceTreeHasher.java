@@ -0,0 +1,62 @@
+package com.intershop.mico.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Computes SHA-256 content hashes of cartridge source trees.
+ * <p>
+ * The tree hash covers the relative path and the content of every regular file, visited in
+ * sorted order, so it only changes when a file is added, removed, renamed or edited.
+ * Files excluded by the {@link SourceFilter} are not part of the hash, as the files come from a
+ * {@link CartridgeSourceIndex}.
+ */
+public class SourceTreeHasher {
+
+    private SourceTreeHasher() {
+    }
+
+    /**
+     * Hashes the given files below the root, e.g. those of a {@link CartridgeSourceIndex}, without
+     * walking the tree again. The files must be sorted.
+     */
+    public static String hashFiles(Path root, List<Path> files) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        for (Path file : files) {
+            // Separators keep path and content boundaries unambiguous
+            digest.update(root.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            try (InputStream in = Files.newInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hashes a text, e.g. a rendered prompt
+     */
+    public static String hashText(String text) {
+        return HexFormat.of().formatHex(newDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.intershop.mico;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.intershop.mico.agent.Agent;
+import com.intershop.mico.agent.BaseAgent;
+import com.intershop.mico.agent.agents.AgentType;
+import com.intershop.mico.models.Cartridge;
+import com.intershop.mico.models.Phase;
+import com.intershop.mico.repo.CartridgeRepository;
+import com.intershop.mico.repo.PhaseRepository;
+import com.intershop.mico.util.MigrationLogger;
+import com.intershop.mico.util.PhaseJournal;
+
+class MigratorTest {
+
+    private static final String PHASE_PROMPT = "# Build Script Migration\nCartridge Path: ";
+    private static final String FIX_PROMPT = "# Fix\n";
+
+    @TempDir
+    Path dir;
+
+    private final Deque<String> scripts = new ConcurrentLinkedDeque<>();
+    private final List<String> prompts = Collections.synchronizedList(new ArrayList<>());
+    private CartridgeRepository cartridges;
+    private PhaseRepository phases;
+    private MigrationLogger logger;
+
+    @BeforeEach
+    void createWorkspace() throws IOException {
+        Path cartridge = Files.createDirectories(dir.resolve("cartridges/app_sf_rest"));
+        Files.writeString(cartridge.resolve("build.gradle"), "apply plugin: 'java'\n");
+        Path instructions = Files.createDirectories(dir.resolve("instructions"));
+        Files.writeString(instructions.resolve("Phase_1.md"), PHASE_PROMPT + "[CARTRIDGE_PATH]\n");
+        Files.writeString(instructions.resolve(PhaseRepository.FIX_INSTRUCTIONS), FIX_PROMPT + "[BUILD_OUTPUT]");
+        Files.writeString(instructions.resolve(PhaseRepository.CARTRIDGE_PACKAGES), "");
+        Path config = dir.resolve("config.json");
+        Files.writeString(config, """
+            [
+              {
+                "name" : "Build Script Migration",
+                "instructions" : "Phase_1.md",
+                "id" : "build",
+                "order" : 1,
+                "resource" : "agent",
+                "retry" : { "maxAttempts" : 2, "initialBackoffSeconds" : 0, "jitter" : 0 },
+                "inputs" : { "cartridge_path" : "path/to/cartridge" }
+              }
+            ]
+            """);
+        cartridges = new CartridgeRepository(cartridge.toString(), true);
+        phases = new PhaseRepository(config, instructions);
+        logger = new MigrationLogger(Files.createDirectories(dir.resolve("session")));
+    }
+
+    @Test
+    void retriesARateLimitedAttemptWithoutAFixPass() throws IOException {
+        scripts.add("echo 'API Error: 429 Too Many Requests'; exit 1");
+        scripts.add("echo migrated");
+
+        migrate();
+
+        assertEquals(2, prompts.size());
+        assertTrue(prompts.stream().allMatch(prompt -> prompt.startsWith(PHASE_PROMPT)), prompts.toString());
+        assertFalse(Files.exists(logger.getFixLogFile(cartridge(), phase(), 2)));
+        assertTrue(Files.readString(logger.getLogFile(cartridge(), phase())).contains("429 Too Many Requests"));
+        assertTrue(Files.readString(logger.getLogFile(cartridge(), phase(), 2)).contains("migrated"));
+        assertTrue(new PhaseJournal(logger.getSessionLogDir()).isCompleted(cartridge(), phase()));
+    }
+
+    @Test
+    void runsTheFixPassOnTheOutputOfAFailedAttempt() throws IOException {
+        scripts.add("echo 'Foo.java:429: error: cannot find symbol'; exit 1");
+        scripts.add("echo fixed");
+        scripts.add("echo migrated");
+
+        migrate();
+
+        assertEquals(3, prompts.size());
+        assertTrue(prompts.get(0).startsWith(PHASE_PROMPT));
+        assertTrue(prompts.get(1).startsWith(FIX_PROMPT));
+        assertTrue(prompts.get(1).contains("Foo.java:429: error: cannot find symbol"), prompts.get(1));
+        // The outcome is that of the original prompt, run again after the fix pass
+        assertTrue(prompts.get(2).startsWith(PHASE_PROMPT));
+        Path fixLog = logger.getFixLogFile(cartridge(), phase(), 2);
+        assertTrue(fixLog.getFileName().toString().endsWith("_phase_1_build_attempt_2_fix.log"), fixLog.toString());
+        assertTrue(Files.readString(fixLog).contains("fixed"));
+        Path retryLog = logger.getLogFile(cartridge(), phase(), 2);
+        assertTrue(retryLog.getFileName().toString().endsWith("_phase_1_build_attempt_2.log"), retryLog.toString());
+        assertTrue(Files.readString(retryLog).contains("migrated"));
+        assertTrue(new PhaseJournal(logger.getSessionLogDir()).isCompleted(cartridge(), phase()));
+    }
+
+    private void migrate() {
+        new Migrator(cartridges, phases, () -> new ScriptAgent(scripts.removeFirst(), prompts), logger,
+                dir.resolve("phase-fingerprints.json"))
+            .setAgent(AgentType.STUB, null)
+            .setRateLimitPause(Duration.ZERO)
+            .migrate();
+        logger.close();
+    }
+
+    private Cartridge cartridge() {
+        return cartridges.getCartridges().get(0);
+    }
+
+    private Phase phase() {
+        return phases.getPhases().get(0);
+    }
+
+    /**
+     * Runs a shell script instead of an agent, after reading the prompt from stdin
+     */
+    private static final class ScriptAgent extends BaseAgent {
+        private final String script;
+        private final List<String> prompts;
+
+        private ScriptAgent(String script, List<String> prompts) {
+            super(new File("."));
+            this.script = script;
+            this.prompts = prompts;
+        }
+
+        @Override
+        public AgentType getType() {
+            return AgentType.STUB;
+        }
+
+        @Override
+        public Agent allowAllTools() {
+            return this;
+        }
+
+        @Override
+        public Agent setPrompt(String text) {
+            prompts.add(text);
+            return super.setPrompt(text);
+        }
+
+        @Override
+        public ProcessBuilder execute() {
+            return new ProcessBuilder("sh", "-c", "cat > /dev/null; " + script);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.intershop.mico.agent;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AgentGovernorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ignoresCompilerOutput() throws IOException {
+        assertFalse(isRateLimited("""
+            > Task :app_sf_rest:compileJava
+            /src/main/java/com/example/Foo.java:429: error: cannot find symbol
+                    return handler.handle(request);
+                                  ^
+            /src/main/java/com/example/Bar.java:12: error: reference to format is ambiguous,
+              both overloaded method format(String) and format(Locale) match
+            Note: RateLimiter.java uses unchecked or unsafe operations.
+            2 errors
+            FAILURE: Build failed with an exception.
+            """));
+    }
+
+    @Test
+    void detectsThrottlingMessagesOfTheProviders() throws IOException {
+        assertTrue(isRateLimited("Error: 429 Too Many Requests (simulated rate limit)\n"));
+        assertTrue(isRateLimited("Request failed: HTTP 429\n"));
+        assertTrue(isRateLimited("< HTTP/1.1 429\n"));
+        assertTrue(isRateLimited("API Error: Rate limit exceeded, please retry later\n"));
+        assertTrue(isRateLimited("{\"type\":\"error\",\"error\":{\"type\":\"overloaded_error\",\"message\":\"Overloaded\"}}\n"));
+        assertTrue(isRateLimited("You are being rate limited.\n"));
+    }
+
+    @Test
+    void looksAtTheLastLinesOnly() throws IOException {
+        StringBuilder log = new StringBuilder("Error: 429 Too Many Requests\n");
+        for (int i = 0; i < 50; i++) {
+            log.append("Retried and compiled file ").append(i).append('\n');
+        }
+
+        assertFalse(isRateLimited(log.toString()));
+        assertTrue(isRateLimited(log + "API Error: rate limit exceeded\n\n"));
+    }
+
+    private boolean isRateLimited(String output) throws IOException {
+        Path logFile = dir.resolve("agent.log");
+        Files.writeString(logFile, output, StandardCharsets.UTF_8);
+        return AgentGovernor.isRateLimited(logFile);
+    }
+}
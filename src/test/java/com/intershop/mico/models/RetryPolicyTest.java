@@ -0,0 +1,64 @@
+package com.intershop.mico.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class RetryPolicyTest {
+
+    @Test
+    void doublesTheBackoffUpToTheMaximum() {
+        RetryPolicy policy = policy(30, 100, 0);
+
+        assertEquals(Duration.ofSeconds(30), policy.getBackoff(1));
+        assertEquals(Duration.ofSeconds(60), policy.getBackoff(2));
+        assertEquals(Duration.ofSeconds(100), policy.getBackoff(3));
+        assertEquals(Duration.ofSeconds(100), policy.getBackoff(40));
+        // Attempts start at 1
+        assertEquals(Duration.ofSeconds(30), policy.getBackoff(0));
+    }
+
+    @Test
+    void variesTheBackoffWithinTheJitter() {
+        RetryPolicy policy = policy(30, 100, 0.2);
+        long min = Long.MAX_VALUE;
+        long max = 0;
+
+        for (int i = 0; i < 1000; i++) {
+            long backoff = policy.getBackoff(1).toMillis();
+            min = Math.min(min, backoff);
+            max = Math.max(max, backoff);
+            long capped = policy.getBackoff(5).toMillis();
+            assertTrue(capped >= 80_000 && capped <= 120_000, "capped backoff " + capped);
+        }
+
+        assertTrue(min >= 24_000 && max <= 36_000, min + ".." + max);
+        // The retries of parallel cartridges spread out
+        assertTrue(max - min > 6_000, min + ".." + max);
+    }
+
+    @Test
+    void clampsInvalidSettings() {
+        RetryPolicy policy = policy(-5, 100, 3);
+        policy.setMaxAttempts(0);
+
+        assertEquals(Duration.ZERO, policy.getBackoff(2));
+        assertEquals(1, policy.getMaxAttempts());
+        assertEquals(1, RetryPolicy.NONE.getMaxAttempts());
+        for (int i = 0; i < 100; i++) {
+            long backoff = policy(10, 100, 3).getBackoff(1).toMillis();
+            assertTrue(backoff >= 0 && backoff <= 20_000, "backoff " + backoff);
+        }
+    }
+
+    private static RetryPolicy policy(int initialBackoffSeconds, int maxBackoffSeconds, double jitter) {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setInitialBackoffSeconds(initialBackoffSeconds);
+        policy.setMaxBackoffSeconds(maxBackoffSeconds);
+        policy.setJitter(jitter);
+        return policy;
+    }
+}
@@ -0,0 +1,82 @@
+package com.intershop.mico.repo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.intershop.mico.models.Phase;
+
+class PhaseRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void chainsPhasesWithoutDependsOnByOrder() throws IOException {
+        List<Phase> phases = load("""
+            [
+              { "id" : "third", "order" : 3 },
+              { "id" : "first", "order" : 1 },
+              { "id" : "second", "order" : 2, "dependsOn" : [] },
+              { "id" : "fourth", "order" : 4, "dependsOn" : ["first", "second"] }
+            ]
+            """);
+
+        assertEquals(List.of("first", "second", "third", "fourth"), phases.stream().map(Phase::getId).toList());
+        assertEquals(List.of(), phases.get(0).getDependsOn());
+        assertEquals(List.of(), phases.get(1).getDependsOn());
+        assertEquals(List.of("second"), phases.get(2).getDependsOn());
+        assertEquals(List.of("first", "second"), phases.get(3).getDependsOn());
+    }
+
+    @Test
+    void rejectsDependencyCycles() {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> load("""
+            [
+              { "id" : "a", "order" : 1, "dependsOn" : ["c"] },
+              { "id" : "b", "order" : 2, "dependsOn" : ["a"] },
+              { "id" : "c", "order" : 3, "dependsOn" : ["b"] }
+            ]
+            """));
+
+        assertTrue(e.getMessage().contains("cycle"), e.getMessage());
+    }
+
+    @Test
+    void rejectsUnknownDependencies() {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> load("""
+            [
+              { "id" : "a", "order" : 1 },
+              { "id" : "b", "order" : 2, "dependsOn" : ["missing"] }
+            ]
+            """));
+
+        assertTrue(e.getMessage().contains("missing"), e.getMessage());
+    }
+
+    @Test
+    void rejectsDuplicateIds() {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> load("""
+            [
+              { "id" : "a", "order" : 1 },
+              { "id" : "a", "order" : 2 }
+            ]
+            """));
+
+        assertTrue(e.getMessage().contains("Duplicate"), e.getMessage());
+    }
+
+    private List<Phase> load(String config) throws IOException {
+        Path configFile = dir.resolve("config.json");
+        Files.writeString(configFile, config);
+        return new PhaseRepository(configFile, dir.resolve("instructions")).getPhases();
+    }
+}
@@ -0,0 +1,221 @@
+package com.intershop.mico.scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import org.junit.jupiter.api.Test;
+
+import com.intershop.mico.models.Cartridge;
+import com.intershop.mico.models.Phase;
+import com.intershop.mico.models.PhaseOutcome;
+
+class PhaseSchedulerTest {
+
+    @Test
+    void skipsPhasesDependingOnAFailedPhase() {
+        Phase build = phase("build", Phase.RESOURCE_AGENT);
+        Phase dependencies = phase("dependencies", Phase.RESOURCE_NATIVE, "build");
+        Phase code = phase("code", Phase.RESOURCE_NATIVE, "dependencies");
+        Phase resources = phase("resources", Phase.RESOURCE_AGENT, "build");
+        Cartridge failing = cartridge("failing");
+        Cartridge passing = cartridge("passing");
+        RecordingRunner runner = new RecordingRunner((cartridge, phase) ->
+            cartridge == failing && phase == dependencies
+                ? PhaseScheduler.RunResult.finished(PhaseOutcome.FAILED)
+                : PhaseScheduler.RunResult.finished(PhaseOutcome.SUCCEEDED));
+
+        Map<PhaseOutcome, Integer> outcomes = new PhaseScheduler(Map.of())
+            .run(List.of(failing, passing), List.of(build, dependencies, code, resources), runner);
+
+        assertEquals(Map.of(PhaseOutcome.SUCCEEDED, 6, PhaseOutcome.FAILED, 1, PhaseOutcome.SKIPPED, 1), outcomes);
+        assertEquals(List.of("failing:code<-dependencies"), runner.skipped);
+        assertFalse(runner.runs.contains("failing:code"));
+        // Independent phases of the failing cartridge still run
+        assertTrue(runner.runs.contains("failing:resources"));
+        assertEquals(Map.of(failing, false, passing, true), runner.completed);
+        assertEquals(2, runner.completions.get());
+    }
+
+    @Test
+    void limitsRunningTasksPerResourceClass() {
+        Phase agent = phase("agent", Phase.RESOURCE_AGENT);
+        Phase nativePhase = phase("native", Phase.RESOURCE_NATIVE);
+        AtomicInteger runningAgents = new AtomicInteger();
+        AtomicInteger runningNative = new AtomicInteger();
+        AtomicInteger maxAgents = new AtomicInteger();
+        AtomicInteger maxNative = new AtomicInteger();
+        RecordingRunner runner = new RecordingRunner((cartridge, phase) -> {
+            boolean isAgent = phase == agent;
+            AtomicInteger running = isAgent ? runningAgents : runningNative;
+            (isAgent ? maxAgents : maxNative).accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(50);
+            running.decrementAndGet();
+            return PhaseScheduler.RunResult.finished(PhaseOutcome.SUCCEEDED);
+        });
+        List<Cartridge> cartridges = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            cartridges.add(cartridge("c" + i));
+        }
+
+        PhaseScheduler scheduler = new PhaseScheduler(Map.of(Phase.RESOURCE_AGENT, 2));
+        Map<PhaseOutcome, Integer> outcomes = scheduler.run(cartridges, List.of(agent, nativePhase), runner);
+
+        assertEquals(Map.of(PhaseOutcome.SUCCEEDED, 12), outcomes);
+        assertEquals(2, maxAgents.get());
+        assertEquals(1, maxNative.get());
+        assertEquals(3, scheduler.getMaxConcurrency(List.of(agent, nativePhase)));
+    }
+
+    @Test
+    void releasesTheSlotWhileWaitingForARetry() {
+        Phase agent = phase("agent", Phase.RESOURCE_AGENT);
+        Cartridge retrying = cartridge("retrying");
+        Cartridge other = cartridge("other");
+        AtomicInteger attempts = new AtomicInteger();
+        RecordingRunner runner = new RecordingRunner((cartridge, phase) ->
+            cartridge == retrying && attempts.incrementAndGet() == 1
+                ? PhaseScheduler.RunResult.retryAfter(Duration.ofMillis(300))
+                : PhaseScheduler.RunResult.finished(PhaseOutcome.SUCCEEDED));
+
+        Map<PhaseOutcome, Integer> outcomes = new PhaseScheduler(Map.of(Phase.RESOURCE_AGENT, 1))
+            .run(List.of(retrying, other), List.of(agent), runner);
+
+        // The other cartridge uses the only agent slot during the backoff
+        assertEquals(List.of("retrying:agent", "other:agent", "retrying:agent"), runner.runs);
+        assertEquals(Map.of(PhaseOutcome.SUCCEEDED, 2), outcomes);
+        assertEquals(List.of(retrying, other), runner.started);
+    }
+
+    @Test
+    void doesNotRunPhasesCompletedBefore() {
+        Phase build = phase("build", Phase.RESOURCE_AGENT);
+        Phase code = phase("code", Phase.RESOURCE_NATIVE, "build");
+        Cartridge resumed = cartridge("resumed");
+        Cartridge done = cartridge("done");
+        RecordingRunner runner = new RecordingRunner((cartridge, phase) -> PhaseScheduler.RunResult.finished(PhaseOutcome.SUCCEEDED)) {
+            @Override
+            public boolean isCompleted(Cartridge cartridge, Phase phase) {
+                return cartridge == done || phase == build;
+            }
+        };
+
+        Map<PhaseOutcome, Integer> outcomes = new PhaseScheduler(Map.of())
+            .run(List.of(resumed, done), List.of(build, code), runner);
+
+        assertEquals(List.of("resumed:code"), runner.runs);
+        assertEquals(Map.of(PhaseOutcome.SUCCEEDED, 1), outcomes);
+        assertEquals(List.of(resumed), runner.started);
+        // A cartridge completed before is still completed, so its results are recorded
+        assertEquals(Map.of(resumed, true, done, true), runner.completed);
+        assertEquals(2, runner.completions.get());
+    }
+
+    @Test
+    void completesCartridgesOffTheDispatcher() {
+        Phase first = phase("first", Phase.RESOURCE_NATIVE);
+        Phase second = phase("second", Phase.RESOURCE_NATIVE, "first");
+        Cartridge early = cartridge("early");
+        Cartridge late = cartridge("late");
+        CountDownLatch lateRunning = new CountDownLatch(1);
+        AtomicBoolean dispatchedMeanwhile = new AtomicBoolean();
+        RecordingRunner runner = new RecordingRunner((cartridge, phase) -> {
+            if (cartridge == late && phase == second) {
+                lateRunning.countDown();
+            }
+            return PhaseScheduler.RunResult.finished(PhaseOutcome.SUCCEEDED);
+        }) {
+            @Override
+            public void cartridgeCompleted(Cartridge cartridge, boolean successful) {
+                if (cartridge == early) {
+                    // Blocks until the dispatcher started the last task of the other cartridge
+                    dispatchedMeanwhile.set(await(lateRunning));
+                }
+                super.cartridgeCompleted(cartridge, successful);
+            }
+        };
+
+        Map<PhaseOutcome, Integer> outcomes = new PhaseScheduler(Map.of())
+            .run(List.of(early, late), List.of(first, second), runner);
+
+        assertTrue(dispatchedMeanwhile.get());
+        assertEquals(Map.of(PhaseOutcome.SUCCEEDED, 4), outcomes);
+        // Every completion is reported before run returns
+        assertEquals(Map.of(early, true, late, true), runner.completed);
+    }
+
+    private static Phase phase(String id, String resource, String... dependsOn) {
+        Phase phase = new Phase(id, id + ".md", id, 0, Map.of());
+        phase.setResource(resource);
+        phase.setDependsOn(List.of(dependsOn));
+        return phase;
+    }
+
+    private static Cartridge cartridge(String name) {
+        return new Cartridge(name, "/cartridges/" + name, null);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static class RecordingRunner implements PhaseScheduler.PhaseRunner {
+        private final BiFunction<Cartridge, Phase, PhaseScheduler.RunResult> action;
+        private final List<String> runs = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> skipped = Collections.synchronizedList(new ArrayList<>());
+        private final List<Cartridge> started = Collections.synchronizedList(new ArrayList<>());
+        private final Map<Cartridge, Boolean> completed = new ConcurrentHashMap<>();
+        private final AtomicInteger completions = new AtomicInteger();
+
+        private RecordingRunner(BiFunction<Cartridge, Phase, PhaseScheduler.RunResult> action) {
+            this.action = action;
+        }
+
+        @Override
+        public PhaseScheduler.RunResult run(Cartridge cartridge, Phase phase) {
+            runs.add(cartridge.getName() + ":" + phase.getId());
+            return action.apply(cartridge, phase);
+        }
+
+        @Override
+        public void phaseSkipped(Cartridge cartridge, Phase phase, Phase failedDependency) {
+            skipped.add(cartridge.getName() + ":" + phase.getId() + "<-" + failedDependency.getId());
+        }
+
+        @Override
+        public void cartridgeStarted(Cartridge cartridge) {
+            started.add(cartridge);
+        }
+
+        @Override
+        public void cartridgeCompleted(Cartridge cartridge, boolean successful) {
+            completed.put(cartridge, successful);
+            completions.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.intershop.mico.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AsyncLogWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsTheOrderOfEveryFileUnderConcurrentAppends() throws Exception {
+        Path shared = dir.resolve("master.log");
+        int threads = 4;
+        int lines = 5000;
+        List<Thread> appenders = new ArrayList<>();
+        try (AsyncLogWriter writer = new AsyncLogWriter()) {
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                Thread appender = new Thread(() -> {
+                    for (int i = 0; i < lines; i++) {
+                        writer.append(shared, id + ":" + i + "\n");
+                        writer.append(dir.resolve("own" + id + ".log"), i + "\n");
+                    }
+                });
+                appenders.add(appender);
+                appender.start();
+            }
+            for (Thread appender : appenders) {
+                appender.join();
+            }
+        }
+
+        Map<String, Integer> next = new HashMap<>();
+        for (String line : Files.readAllLines(shared)) {
+            String[] parts = line.split(":");
+            assertEquals(next.getOrDefault(parts[0], 0), Integer.valueOf(parts[1]), line);
+            next.put(parts[0], Integer.parseInt(parts[1]) + 1);
+        }
+        for (int t = 0; t < threads; t++) {
+            assertEquals(Integer.valueOf(lines), next.get(String.valueOf(t)));
+            List<String> own = Files.readAllLines(dir.resolve("own" + t + ".log"));
+            assertEquals(lines, own.size());
+            assertEquals(String.valueOf(lines - 1), own.get(lines - 1));
+        }
+    }
+
+    @Test
+    void flushWritesEverythingAppendedSoFar() throws IOException {
+        Path log = dir.resolve("phase.log");
+        try (AsyncLogWriter writer = new AsyncLogWriter()) {
+            writer.append(log, "first\n");
+            writer.append(log, "second\n");
+
+            writer.flush();
+
+            assertEquals("first\nsecond\n", Files.readString(log));
+        }
+    }
+
+    @Test
+    void reopensAClosedFileOnTheNextAppend() throws IOException {
+        Path log = dir.resolve("summary.log");
+        try (AsyncLogWriter writer = new AsyncLogWriter()) {
+            writer.append(log, "old\n");
+            writer.close(log);
+            writer.flush();
+            Files.delete(log);
+
+            // Still open, this would go to the deleted file
+            writer.append(log, "new\n");
+            writer.flush();
+
+            assertEquals("new\n", Files.readString(log));
+        }
+    }
+
+    @Test
+    void writesDirectlyAfterClosing() throws IOException {
+        Path log = dir.resolve("master.log");
+        AsyncLogWriter writer = new AsyncLogWriter();
+        writer.append(log, "queued\n");
+        writer.close();
+
+        writer.append(log, "direct\n");
+        writer.flush();
+        writer.close();
+
+        assertEquals("queued\ndirect\n", Files.readString(log));
+    }
+
+    @Test
+    void keepsWritingAfterAFailingEntry() throws IOException {
+        Path log = dir.resolve("master.log");
+        try (AsyncLogWriter writer = new AsyncLogWriter()) {
+            // Fails on the writer thread with a NullPointerException
+            writer.append(null, "lost\n");
+            writer.append(log, "kept\n");
+            writer.flush();
+
+            assertEquals("kept\n", Files.readString(log));
+        }
+    }
+}
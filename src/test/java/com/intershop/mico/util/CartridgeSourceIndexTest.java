@@ -0,0 +1,139 @@
+package com.intershop.mico.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CartridgeSourceIndexTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void refreshesAddedRemovedAndChangedFiles() throws IOException {
+        Path sources = Files.createDirectories(root.resolve("src/main/java/com/example"));
+        write(sources.resolve("A.java"), "java.util.List");
+        write(sources.resolve("B.java"), "javax.inject.Inject");
+        write(Files.createDirectories(sources.resolve("old")).resolve("C.java"), "org.old.Thing");
+        CartridgeSourceIndex index = new CartridgeSourceIndex(root);
+        String initialHash = index.getTreeHash();
+
+        assertEquals(0, index.refresh());
+        assertEquals(initialHash, index.getTreeHash());
+
+        write(sources.resolve("D.java"), "org.added.Thing");
+        write(Files.createDirectories(sources.resolve("sub")).resolve("E.java"), "org.sub.Thing");
+        deleteTree(sources.resolve("old"));
+        write(sources.resolve("B.java"), "jakarta.inject.Inject");
+        touch(sources);
+
+        assertEquals(4, index.refresh());
+        assertEquals(Set.of("java.util.List", "jakarta.inject.Inject", "org.added.Thing", "org.sub.Thing"),
+            index.getImports(Set.of()));
+        String refreshedHash = index.getTreeHash();
+        assertNotEquals(initialHash, refreshedHash);
+
+        assertEquals(0, index.refresh());
+        assertEquals(refreshedHash, index.getTreeHash());
+        // Same state as a fresh walk
+        CartridgeSourceIndex fresh = new CartridgeSourceIndex(root);
+        assertEquals(fresh.getFiles(), index.getFiles());
+        assertEquals(fresh.getTreeHash(), refreshedHash);
+    }
+
+    @Test
+    void rereadsAFileWhoseModificationTimeChanged() throws IOException {
+        Path file = root.resolve("A.java");
+        write(file, "java.util.List");
+        CartridgeSourceIndex index = new CartridgeSourceIndex(root);
+        String initialHash = index.getTreeHash();
+        long size = Files.size(file);
+
+        // Same size, only the modification time tells the change
+        write(file, "java.util.Date");
+        touch(file);
+
+        assertEquals(size, Files.size(file));
+        assertEquals(1, index.refresh());
+        assertEquals(Set.of("java.util.Date"), index.getImports(Set.of()));
+        assertNotEquals(initialHash, index.getTreeHash());
+    }
+
+    @Test
+    void acceptsARejectedFileOnceItFits() throws IOException {
+        SourceFilter filter = new SourceFilter(SourceFilter.DEFAULT_EXCLUDES, 100);
+        Path big = root.resolve("Big.java");
+        write(big, "com.example.Big", "// " + "x".repeat(200));
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream originalErr = System.err;
+        System.setErr(new PrintStream(err, true, StandardCharsets.UTF_8));
+        CartridgeSourceIndex index;
+        try {
+            index = new CartridgeSourceIndex(root, filter);
+            // Lists the directory again, the unchanged file must not be rejected again
+            touch(root);
+
+            assertEquals(List.of(), index.getFiles());
+            assertEquals(0, index.refresh());
+
+            write(big, "com.example.Big");
+            touch(big);
+
+            assertEquals(1, index.refresh());
+        } finally {
+            System.setErr(originalErr);
+        }
+        assertEquals(List.of(big), index.getFiles());
+        assertEquals(Set.of("com.example.Big"), index.getImports(Set.of()));
+        // Rejected with the same modification time, the file warns only once
+        assertEquals(1, err.toString(StandardCharsets.UTF_8).lines().filter(line -> line.contains("Skipping")).count());
+    }
+
+    @Test
+    void ignoresExcludedDirectoriesAddedLater() throws IOException {
+        write(root.resolve("A.java"), "java.util.List");
+        CartridgeSourceIndex index = new CartridgeSourceIndex(root);
+
+        write(Files.createDirectories(root.resolve("build/generated")).resolve("G.java"), "org.generated.Thing");
+        touch(root);
+
+        assertEquals(0, index.refresh());
+        assertFalse(index.getImports(Set.of()).contains("org.generated.Thing"));
+        assertTrue(index.getFiles().stream().noneMatch(file -> file.startsWith(root.resolve("build"))));
+    }
+
+    private static void write(Path file, String importStatement, String... body) throws IOException {
+        Files.writeString(file, "package com.example;\n\nimport " + importStatement + ";\n\nclass Foo {}\n"
+            + String.join("\n", body));
+    }
+
+    /**
+     * Moves the modification time forward, file systems with a coarse clock may not notice a
+     * change made right after indexing
+     */
+    private static void touch(Path path) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 10_000));
+    }
+
+    private static void deleteTree(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (Path path : paths.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
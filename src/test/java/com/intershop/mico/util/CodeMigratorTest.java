@@ -0,0 +1,82 @@
+package com.intershop.mico.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class CodeMigratorTest {
+
+    private final CodeMigrator migrator = new CodeMigrator(".");
+
+    @Test
+    void migratesImportsOfTheHeaderOnly() {
+        String content = """
+            package com.example;
+
+            import javax.inject.Inject;
+
+            @Deprecated
+            public class Foo {
+                @Inject String s = "import javax.inject.Named;";
+            }
+            """;
+
+        assertEquals("""
+            package com.example;
+
+            import jakarta.inject.Inject;
+            @Deprecated
+            public class Foo {
+                @Inject String s = "import javax.inject.Named;";
+            }
+            """, migrator.migrateContent(content));
+    }
+
+    @Test
+    void endsTheHeaderAtTheFirstTypeAfterComments() {
+        String content = """
+            /* header */
+            package com.example; // pkg
+            // a comment
+            import org.apache.commons.lang.StringUtils; /* why */
+            import javax.inject.Inject;
+
+            /**
+             * Docs import javax.ws.rs.GET;
+             */
+            @Named
+            class Foo { @Inject StringUtils u; }
+            import javax.ws.rs.Path;
+            """;
+
+        assertEquals("""
+            /* header */
+            package com.example;
+
+            import jakarta.inject.Inject;
+
+            import org.apache.commons.lang3.StringUtils;
+            // pkg
+            // a comment
+            /* why */
+            /**
+             * Docs import javax.ws.rs.GET;
+             */
+            @Named
+            class Foo { @Inject StringUtils u; }
+            import javax.ws.rs.Path;
+            """, migrator.migrateContent(content));
+    }
+
+    @Test
+    void leavesFilesWithoutHeaderAlone() {
+        String content = """
+            @Deprecated
+            class Foo {
+                // import javax.inject.Inject;
+            }
+            """;
+
+        assertEquals(content, migrator.migrateContent(content));
+    }
+}
@@ -0,0 +1,165 @@
+package com.intershop.mico.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.intershop.mico.util.DependencyResolver.Dependency;
+
+class DependencyResolverTest {
+
+    private static final PrintStream NO_OUTPUT = new PrintStream(OutputStream.nullOutputStream());
+
+    private static final List<Dependency> DEPENDENCIES = List.of(
+        Dependency.of("cartridge", "com.intershop.platform:bc_foo"),
+        Dependency.of("cartridge", "com.intershop.platform:app"),
+        Dependency.of("cartridge", "com.intershop.platform:core"),
+        Dependency.of("cartridge", "com.intershop.business:bc_order"),
+        Dependency.of("implementation", "com.google.guava:guava"),
+        Dependency.of("testImplementation", "org.junit.jupiter:junit-jupiter"));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsExistingLinesAndInsertsNewOnesSorted() throws IOException {
+        Path buildScript = write("""
+            plugins {
+                id("com.intershop.icm.cartridge.product")
+            }
+
+            dependencies {
+                // Platform dependencies
+                cartridge("com.intershop.platform:pf_common")
+                cartridge("com.intershop.platform:core") // needed for X
+
+                // External dependencies
+                implementation("org.slf4j:slf4j-api")
+                constraints {
+                    implementation("com.google.guava:guava")
+                }
+            }
+            """);
+
+        int added = DependencyResolver.updateBuildScript(buildScript, DEPENDENCIES, NO_OUTPUT);
+
+        assertEquals(5, added);
+        assertEquals("""
+            plugins {
+                id("com.intershop.icm.cartridge.product")
+            }
+
+            dependencies {
+                // Platform dependencies
+                cartridge("com.intershop.platform:pf_common")
+                cartridge("com.intershop.platform:core") // needed for X
+                cartridge("com.intershop.platform:app")
+                cartridge("com.intershop.platform:bc_foo")
+
+                // Business dependencies
+                cartridge("com.intershop.business:bc_order")
+
+                // External dependencies
+                implementation("org.slf4j:slf4j-api")
+                implementation("com.google.guava:guava")
+
+                // Test dependencies
+                testImplementation("org.junit.jupiter:junit-jupiter")
+                constraints {
+                    implementation("com.google.guava:guava")
+                }
+            }
+            """, Files.readString(buildScript));
+    }
+
+    @Test
+    void leavesAnUpToDateScriptUnchanged() throws IOException {
+        Path buildScript = write("plugins {\n}\n");
+        DependencyResolver.updateBuildScript(buildScript, DEPENDENCIES, NO_OUTPUT);
+        String updated = Files.readString(buildScript);
+
+        assertEquals(0, DependencyResolver.updateBuildScript(buildScript, DEPENDENCIES, NO_OUTPUT));
+        assertEquals(updated, Files.readString(buildScript));
+    }
+
+    @Test
+    void addsAMissingDependenciesBlock() throws IOException {
+        Path buildScript = write("plugins {\n}\n");
+
+        int added = DependencyResolver.updateBuildScript(buildScript, DEPENDENCIES, NO_OUTPUT);
+
+        assertEquals(6, added);
+        assertEquals("""
+            plugins {
+            }
+
+            dependencies {
+                // Platform dependencies
+                cartridge("com.intershop.platform:app")
+                cartridge("com.intershop.platform:bc_foo")
+                cartridge("com.intershop.platform:core")
+
+                // Business dependencies
+                cartridge("com.intershop.business:bc_order")
+
+                // External dependencies
+                implementation("com.google.guava:guava")
+
+                // Test dependencies
+                testImplementation("org.junit.jupiter:junit-jupiter")
+            }
+            """, Files.readString(buildScript));
+    }
+
+    @Test
+    void resolvesImportsByTheLongestPackagePrefix() throws IOException {
+        Path cartridgePackages = dir.resolve("cartridge-packages.properties");
+        Files.writeString(cartridgePackages, """
+            # group:artifact = package
+            business:bc_order = com.intershop.component.order
+            platform:core = com.intershop.beehive.core
+            """);
+        DependencyResolver resolver = new DependencyResolver("""
+            | Import Pattern | Dependency |
+            |----------------|------------|
+            | `com.intershop.component.order.capi.*` | `cartridge("com.intershop.b2b:bc_order_b2b")` |
+            | `com.google.common.*` | `implementation("com.google.guava:guava")` |
+            """, cartridgePackages);
+
+        DependencyResolver.Resolution resolution = resolver.resolve(List.of(
+            "java.util.List",
+            "com.example.own.Helper",
+            "com.intershop.component.order.capi.Order",
+            "com.intershop.component.order.internal.OrderPO",
+            "com.intershop.beehive.core.capi.log.Logger",
+            "com.intershop.beehive.app.capi.AppContext",
+            "com.google.common.collect.Lists",
+            "org.unknown.Thing"), Set.of("com.example.own"));
+
+        assertEquals(List.of(
+            "cartridge(\"com.intershop.b2b:bc_order_b2b\")",
+            "cartridge(\"com.intershop.business:bc_order\")",
+            "cartridge(\"com.intershop.platform:app\")",
+            "cartridge(\"com.intershop.platform:core\")",
+            "cartridge(\"com.intershop.platform:pf_common\")",
+            "implementation(\"com.google.guava:guava\")",
+            "implementation(\"org.slf4j:slf4j-api\")"),
+            resolution.dependencies().stream().map(Dependency::toString).toList());
+        assertEquals(Set.of("org.unknown.Thing"), resolution.unresolved());
+    }
+
+    private Path write(String content) throws IOException {
+        Path buildScript = dir.resolve("build.gradle.kts");
+        Files.writeString(buildScript, content);
+        return buildScript;
+    }
+}
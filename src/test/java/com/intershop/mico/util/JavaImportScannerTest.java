@@ -0,0 +1,116 @@
+package com.intershop.mico.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JavaImportScannerTest {
+
+    @TempDir
+    Path dir;
+
+    private final JavaImportScanner.HeaderScanner scanner = new JavaImportScanner.HeaderScanner();
+
+    @Test
+    void readsPackageAndImports() throws IOException {
+        List<String> imports = new ArrayList<>();
+
+        String packageName = scan("""
+            package com.example.rest;
+
+            import javax.inject.Inject;
+            import static org.junit.Assert.assertEquals;
+            import java.util.*;
+            import  java.util.List ;
+
+            public class Foo {}
+            """, imports);
+
+        assertEquals("com.example.rest", packageName);
+        assertEquals(List.of("javax.inject.Inject", "org.junit.Assert.assertEquals"), imports);
+    }
+
+    @Test
+    void stopsAtTheAnnotationsOfTheFirstType() throws IOException {
+        List<String> imports = new ArrayList<>();
+
+        scan("""
+            import javax.inject.Inject;
+            @Deprecated
+            import.should.not.Matter;
+            class Foo {
+                String s = "import not.an.Import;";
+            }
+            """, imports);
+
+        assertEquals(List.of("javax.inject.Inject"), imports);
+    }
+
+    @Test
+    void skipsCommentsBetweenStatements() throws IOException {
+        List<String> imports = new ArrayList<>();
+
+        String packageName = scan("""
+            /*
+             * import commented.Out;
+             */
+            // package commented.out;
+            package com.example; // import line.Comment;
+            /** import javadoc.Comment; */
+            import javax.inject.Inject; /* import block.Comment; */ import javax.ws.rs.GET;
+            ;
+            // class Foo {}
+            import javax.ws.rs.Path;
+            class Foo {}
+            import after.Type;
+            """, imports);
+
+        assertEquals("com.example", packageName);
+        assertEquals(List.of("javax.inject.Inject", "javax.ws.rs.GET", "javax.ws.rs.Path"), imports);
+    }
+
+    @Test
+    void readsHeadersLongerThanTheBuffer() throws IOException {
+        StringBuilder content = new StringBuilder("\uFEFF/*\n");
+        while (content.length() < 10 * 1024) {
+            content.append(" * Licensed under the Apache License, Version 2.0 (the \"License\");\n");
+        }
+        content.append(" */\npackage com.example;\n\n");
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String name = "com.example.generated.package" + i + ".Type" + i;
+            content.append("import ").append(name).append(";\n");
+            expected.add(name);
+        }
+        content.append("\npublic class Foo {}\n");
+        List<String> imports = new ArrayList<>();
+
+        String packageName = scan(content.toString(), imports);
+
+        assertEquals("com.example", packageName);
+        assertEquals(expected, imports);
+    }
+
+    @Test
+    void returnsNoPackageForTheDefaultPackage() throws IOException {
+        List<String> imports = new ArrayList<>();
+
+        assertNull(scan("import java.util.List;\nclass Foo {}\n", imports));
+        assertEquals(List.of("java.util.List"), imports);
+    }
+
+    private String scan(String content, List<String> imports) throws IOException {
+        Path file = dir.resolve("Foo.java");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return scanner.scan(file, imports::add);
+    }
+}
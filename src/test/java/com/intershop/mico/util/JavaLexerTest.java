@@ -0,0 +1,77 @@
+package com.intershop.mico.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class JavaLexerTest {
+
+    @Test
+    void endsLineCommentsAtTheLineBreak() {
+        assertEquals(List.of("a ", "\nb"), code("a // \"c /* d\nb"));
+    }
+
+    @Test
+    void doesNotCloseABlockCommentOnItsOpeningStar() {
+        assertEquals(List.of("a ", " b"), code("a /*/ \"c\" // d */ b"));
+    }
+
+    @Test
+    void skipsEscapedQuotesInStrings() {
+        assertEquals(List.of("s = ", "; t"), code("s = \"a\\\"b /* c\"; t"));
+    }
+
+    @Test
+    void skipsQuotesInCharacterLiterals() {
+        assertEquals(List.of("c = ", "; d = ", "; e = ", ";"), code("c = '\"'; d = '\\''; e = '/';"));
+    }
+
+    @Test
+    void endsUnterminatedLiteralsAtTheLineBreak() {
+        assertEquals(List.of("s = ", "\nt;"), code("s = \"abc\nt;"));
+    }
+
+    @Test
+    void skipsQuotesAndCommentsInTextBlocks() {
+        String text = "x = \"\"\"\n  \"quoted\" \\\"\"\" // no comment\n  \"\"\"; y = 1;";
+
+        assertEquals(List.of("x = ", "; y = 1;"), code(text));
+    }
+
+    @Test
+    void closesATextBlockEndingWithAQuoteAtTheLastQuotes() {
+        String text = "x = \"\"\"\n  say \"hi\"\"\"\"; y = \"z\";";
+
+        assertEquals(List.of("x = ", "; y = ", ";"), code(text));
+    }
+
+    @Test
+    void rewritesOnlyCode() {
+        LiteralRewriter rewriter = LiteralRewriter.compile(List.of(LiteralRewriter.Rule.literal("foo", "bar")), true);
+        String text = """
+            foo(); // foo
+            /* foo */ foo("foo", 'f', \"""
+                foo "" foo(); /* foo
+                \""");
+            """;
+
+        assertEquals("""
+            bar(); // foo
+            /* foo */ bar("foo", 'f', \"""
+                foo "" foo(); /* foo
+                \""");
+            """, rewriter.rewrite(text));
+    }
+
+    private static List<String> code(String text) {
+        int[] regions = JavaLexer.codeRegions(text);
+        List<String> code = new ArrayList<>();
+        for (int r = 0; r < regions.length; r += 2) {
+            code.add(text.substring(regions[r], regions[r + 1]));
+        }
+        return code;
+    }
+}
@@ -0,0 +1,203 @@
+package com.intershop.mico.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class LiteralRewriterTest {
+
+    @Test
+    void defaultPackageRulesMatchSequentialReplace() {
+        MigrationRuleSet rules = MigrationRuleSet.defaults();
+        StringBuilder header = new StringBuilder("package com.example;\n\n");
+        for (String prefix : rules.getPackagePrefixes()) {
+            header.append("import ").append(prefix).append("Foo;\n");
+            header.append("import static ").append(prefix).append("Bar.baz;\n");
+        }
+        header.append("import javax.injection.Other;\nimport org.apache.commons.lang3.StringUtils;\n");
+
+        String expected = header.toString();
+        for (MigrationRuleSet.Replacement rule : rules.getPackages()) {
+            expected = rule.pattern().matcher(expected).replaceAll(rule.replacement());
+        }
+
+        assertNotNull(rules.getPackageRewriter());
+        assertEquals(expected, rules.getPackageRewriter().rewrite(header.toString()));
+    }
+
+    @Test
+    void defaultCodeRulesMatchSequentialReplaceInCode() {
+        MigrationRuleSet rules = MigrationRuleSet.defaults();
+        String code = """
+            public class FooTest {
+                @Test
+                @BeforeEach public void setUp() { MockitoAnnotations.openMocks(this); }
+                @Disabled("@Test in a string") @Test
+                void test() {
+                    // @Test verifyNoInteractions(mock) in a comment
+                    verifyNoInteractions(mock);
+                    Assertions.assertEquals("verifyNoInteractions(mock)", text);
+                    char c = '@';
+                    String block = \"""
+                        @Test verifyNoInteractions(mock)
+                        \""";
+                }
+            }
+            """;
+
+        String expected = code;
+        for (MigrationRuleSet.Replacement rule : rules.getAnnotations()) {
+            expected = replaceInCode(expected, rule.pattern(), rule.replacement());
+        }
+        for (MigrationRuleSet.Replacement rule : rules.getMethods()) {
+            expected = replaceInCode(expected, rule.pattern(), rule.replacement());
+        }
+
+        assertNotNull(rules.getCodeRewriter());
+        assertEquals(expected, rules.getCodeRewriter().rewrite(code));
+    }
+
+    @Test
+    void returnsTheTextItselfWithoutMatches() {
+        LiteralRewriter rewriter = LiteralRewriter.compile(List.of(LiteralRewriter.Rule.literal("javax.", "jakarta.")));
+        String text = "import java.util.List;";
+
+        assertSame(text, rewriter.rewrite(text));
+    }
+
+    @Test
+    void rejectsRulesThatMatchWhatAnEarlierRuleProduced() {
+        List<LiteralRewriter.Rule> rules = List.of(
+            LiteralRewriter.Rule.literal("javax.inject.", "jakarta.inject."),
+            LiteralRewriter.Rule.literal("jakarta.", "jakarta.ee."));
+
+        assertNull(LiteralRewriter.compile(rules));
+    }
+
+    @Test
+    void rejectsOverlappingKeys() {
+        assertNull(LiteralRewriter.compile(List.of(
+            LiteralRewriter.Rule.literal("javax.", "jakarta."),
+            LiteralRewriter.Rule.literal("javax.inject.", "jakarta.inject."))));
+        assertNull(LiteralRewriter.compile(List.of(
+            LiteralRewriter.Rule.literal("lang.Str", "lang3.Str"),
+            LiteralRewriter.Rule.literal("Strings", "Texts"))));
+    }
+
+    @Test
+    void appliesIndependentRulesInOneScan() {
+        LiteralRewriter rewriter = LiteralRewriter.compile(List.of(
+            LiteralRewriter.Rule.literal("import javax.inject.", "import jakarta.inject."),
+            LiteralRewriter.Rule.literal("import org.apache.commons.lang.", "import org.apache.commons.lang3.")));
+
+        assertNotNull(rewriter);
+        assertEquals("import jakarta.inject.Inject;\nimport org.apache.commons.lang3.StringUtils;\n",
+            rewriter.rewrite("import javax.inject.Inject;\nimport org.apache.commons.lang.StringUtils;\n"));
+    }
+
+    @Test
+    void convertsOnlyLiteralRegularExpressions() {
+        assertNotNull(LiteralRewriter.Rule.regex("\\bverifyZeroInteractions\\s*\\(", "verifyNoInteractions("));
+        assertNotNull(LiteralRewriter.Rule.regex("MockitoAnnotations\\.initMocks", "MockitoAnnotations.openMocks"));
+        assertNull(LiteralRewriter.Rule.regex("assert(True|False)", "check$1"));
+        assertNull(LiteralRewriter.Rule.regex("\\w+\\.initMocks", "openMocks"));
+    }
+
+    /**
+     * Random rules over a small alphabet, so keys, replacements and texts overlap often. Whenever
+     * the rules compile, one scan must give the same result as replacing rule by rule.
+     */
+    @Test
+    void matchesSequentialReplaceForRandomRules() {
+        Random random = new Random(42);
+        int compiled = 0;
+        for (int round = 0; round < 20_000; round++) {
+            List<LiteralRewriter.Rule> rules = new ArrayList<>();
+            List<Pattern> patterns = new ArrayList<>();
+            List<String> replacements = new ArrayList<>();
+            int count = 1 + random.nextInt(3);
+            for (int r = 0; r < count; r++) {
+                String key = randomString(random, "ab.@", 1 + random.nextInt(3));
+                String replacement = randomString(random, "abc.@", 1 + random.nextInt(3));
+                switch (random.nextInt(3)) {
+                    case 0 -> {
+                        rules.add(LiteralRewriter.Rule.literal(key, replacement));
+                        patterns.add(Pattern.compile(Pattern.quote(key)));
+                        replacements.add(Matcher.quoteReplacement(replacement));
+                    }
+                    case 1 -> {
+                        rules.add(LiteralRewriter.Rule.annotation(key, replacement));
+                        patterns.add(Pattern.compile("(\\s)" + Pattern.quote(key) + "(\\s|\\()"));
+                        replacements.add("$1" + Matcher.quoteReplacement(replacement) + "$2");
+                    }
+                    default -> {
+                        String regex = (random.nextBoolean() ? "\\b" : "") + quote(key)
+                            + (random.nextBoolean() ? "\\s*\\(" : "");
+                        rules.add(LiteralRewriter.Rule.regex(regex, replacement));
+                        patterns.add(Pattern.compile(regex));
+                        replacements.add(replacement);
+                    }
+                }
+            }
+            boolean codeOnly = random.nextBoolean();
+            LiteralRewriter rewriter = LiteralRewriter.compile(rules, codeOnly);
+            if (rewriter == null) {
+                continue;
+            }
+            compiled++;
+            for (int t = 0; t < 5; t++) {
+                String text = randomString(random, codeOnly ? "ab.@ (\n\"/*'" : "ab.@ (\n", random.nextInt(30));
+                String expected = text;
+                for (int r = 0; r < patterns.size(); r++) {
+                    expected = codeOnly
+                        ? replaceInCode(expected, patterns.get(r), replacements.get(r))
+                        : patterns.get(r).matcher(expected).replaceAll(replacements.get(r));
+                }
+                assertEquals(expected, rewriter.rewrite(text), "rules " + patterns + " -> " + replacements
+                    + (codeOnly ? " in code" : "") + " on '" + text + "'");
+            }
+        }
+        assertTrue(compiled > 1000, "too few rule sets compiled: " + compiled);
+    }
+
+    /**
+     * The way rules were applied before the single scan, see {@code CodeMigrator}
+     */
+    private static String replaceInCode(String content, Pattern pattern, String replacement) {
+        int[] regions = JavaLexer.codeRegions(content);
+        StringBuilder result = new StringBuilder();
+        int copied = 0;
+        for (int r = 0; r < regions.length; r += 2) {
+            result.append(content, copied, regions[r]);
+            result.append(pattern.matcher(content.subSequence(regions[r], regions[r + 1])).replaceAll(replacement));
+            copied = regions[r + 1];
+        }
+        return result.append(content, copied, content.length()).toString();
+    }
+
+    private static String quote(String literal) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : literal.toCharArray()) {
+            regex.append(Character.isLetterOrDigit(c) ? "" : "\\").append(c);
+        }
+        return regex.toString();
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package com.intershop.mico.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PackageTrieTest {
+
+    @Test
+    void findsTheLongestPrefix() {
+        PackageTrie<String> trie = new PackageTrie<>();
+        trie.put("com.intershop", "intershop");
+        trie.put("com.intershop.beehive.core", "core");
+
+        assertEquals(new PackageTrie.Match<>("com.intershop.beehive.core", "core"),
+            trie.longestPrefix("com.intershop.beehive.core.capi.log.Logger"));
+        assertEquals(new PackageTrie.Match<>("com.intershop", "intershop"),
+            trie.longestPrefix("com.intershop.beehive.app.AppContext"));
+        assertEquals(new PackageTrie.Match<>("com.intershop.beehive.core", "core"),
+            trie.longestPrefix("com.intershop.beehive.core"));
+        assertNull(trie.longestPrefix("com.example.Foo"));
+    }
+
+    @Test
+    void matchesWholeSegmentsOnly() {
+        PackageTrie<String> trie = new PackageTrie<>();
+        trie.put("org.apache.commons.lang", "lang");
+
+        assertNull(trie.longestPrefix("org.apache.commons.lang3.StringUtils"));
+        assertFalse(trie.containsPrefixOf("org.apache.commons.langx"));
+        assertTrue(trie.containsPrefixOf("org.apache.commons.lang.StringUtils"));
+    }
+
+    @Test
+    void getsExactNamesOnly() {
+        PackageTrie<String> trie = new PackageTrie<>();
+        trie.put("org.junit.Test", "test");
+
+        assertEquals("test", trie.get("org.junit.Test"));
+        assertNull(trie.get("org.junit"));
+        assertNull(trie.get("org.junit.Test.Inner"));
+        assertEquals(new PackageTrie.Match<>("org.junit.Test", "test"), trie.longestPrefix("org.junit.Test.Inner"));
+    }
+
+    @Test
+    void checksWhetherANameIsAPrefixOfAKey() {
+        PackageTrie<Boolean> trie = new PackageTrie<>();
+        trie.put("com.intershop.beehive.core.capi.log.Logger", true);
+
+        assertTrue(trie.isPrefixOfAnyKey("com.intershop.beehive"));
+        assertTrue(trie.isPrefixOfAnyKey("com.intershop.beehive.core.capi.log.Logger"));
+        assertFalse(trie.isPrefixOfAnyKey("com.intershop.bee"));
+        assertFalse(trie.isPrefixOfAnyKey("com.intershop.beehive.core.capi.log.Logger.Level"));
+    }
+
+    @Test
+    void visitsAllPrefixesShortestFirst() {
+        PackageTrie<Integer> trie = new PackageTrie<>();
+        trie.put("com.intershop.beehive", 3);
+        trie.put("com", 1);
+        trie.put("com.intershop.beehive.core.capi", 5);
+        trie.put("com.example", 2);
+        List<String> prefixes = new ArrayList<>();
+
+        trie.forEachPrefix("com.intershop.beehive.core.capi.Foo", (prefix, value) -> prefixes.add(prefix + "=" + value));
+
+        assertEquals(List.of("com=1", "com.intershop.beehive=3", "com.intershop.beehive.core.capi=5"), prefixes);
+    }
+
+    @Test
+    void replacesValuesAndCountsEntries() {
+        PackageTrie<String> trie = new PackageTrie<>();
+        trie.put("a.b", "first");
+        trie.put("a.b", "second");
+        trie.computeIfAbsent("a.b", name -> "third");
+        trie.computeIfAbsent("a.c", name -> name);
+
+        assertEquals("second", trie.get("a.b"));
+        assertEquals("a.c", trie.get("a.c"));
+        assertEquals(2, trie.size());
+    }
+}
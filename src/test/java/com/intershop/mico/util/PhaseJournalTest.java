@@ -0,0 +1,108 @@
+package com.intershop.mico.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.intershop.mico.models.Cartridge;
+import com.intershop.mico.models.Phase;
+import com.intershop.mico.models.PhaseOutcome;
+
+class PhaseJournalTest {
+
+    private final Cartridge cartridge = new Cartridge("app_sf_rest", "/cartridges/app_sf_rest", null);
+    private final Phase build = new Phase("Build", "Phase_1.md", "build", 1, Map.of());
+    private final Phase code = new Phase("Code", "Phase_3.md", "code", 2, Map.of());
+    private final Phase fix = new Phase("Fix", "Phase_4.md", "fix", 3, Map.of());
+    private final Phase resources = new Phase("Resources", "Phase_5.md", "resources", 4, Map.of());
+
+    @TempDir
+    Path sessionDir;
+
+    @Test
+    void replaysOutcomesOfAPreviousSession() {
+        PhaseJournal journal = new PhaseJournal(sessionDir);
+        journal.phaseStarted(cartridge, build);
+        journal.phaseFinished(cartridge, build, PhaseOutcome.SUCCEEDED);
+        journal.phaseStarted(cartridge, code);
+        journal.phaseFinished(cartridge, code, PhaseOutcome.UNCHANGED);
+        journal.phaseStarted(cartridge, fix);
+        journal.phaseFinished(cartridge, fix, PhaseOutcome.FAILED);
+        // Interrupted before it finished
+        journal.phaseStarted(cartridge, resources);
+        journal.close();
+
+        PhaseJournal resumed = new PhaseJournal(sessionDir);
+
+        assertEquals(PhaseOutcome.SUCCEEDED, resumed.getOutcome(cartridge, build));
+        assertTrue(resumed.isCompleted(cartridge, build));
+        assertTrue(resumed.isCompleted(cartridge, code));
+        assertEquals(PhaseOutcome.FAILED, resumed.getOutcome(cartridge, fix));
+        assertFalse(resumed.isCompleted(cartridge, fix));
+        assertNull(resumed.getOutcome(cartridge, resources));
+        assertFalse(resumed.isCompleted(cartridge, resources));
+        resumed.close();
+    }
+
+    @Test
+    void keepsTheLastOutcomeOfAPhase() {
+        PhaseJournal journal = new PhaseJournal(sessionDir);
+        journal.phaseFinished(cartridge, fix, PhaseOutcome.FAILED);
+        journal.close();
+        PhaseJournal second = new PhaseJournal(sessionDir);
+        second.phaseFinished(cartridge, fix, PhaseOutcome.SUCCEEDED);
+        second.close();
+
+        assertTrue(new PhaseJournal(sessionDir).isCompleted(cartridge, fix));
+    }
+
+    @Test
+    void ignoresATornLastLine() throws IOException {
+        PhaseJournal journal = new PhaseJournal(sessionDir);
+        journal.phaseFinished(cartridge, build, PhaseOutcome.SUCCEEDED);
+        journal.close();
+        Files.writeString(journal.getJournalFile(), "{\"event\":\"end\",\"cartridge\":\"app",
+            StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        PhaseJournal resumed = new PhaseJournal(sessionDir);
+        resumed.phaseFinished(cartridge, code, PhaseOutcome.SUCCEEDED);
+        resumed.close();
+
+        PhaseJournal replayed = new PhaseJournal(sessionDir);
+        assertTrue(replayed.isCompleted(cartridge, build));
+        assertTrue(replayed.isCompleted(cartridge, code));
+    }
+
+    @Test
+    void matchesCartridgesByTheirNormalizedPath() {
+        Cartridge relative = new Cartridge("app_sf_rest", "cartridges/app_sf_rest", null);
+        String absolute = Path.of("").toAbsolutePath().resolve("cartridges/other/../app_sf_rest/.").toString();
+        Cartridge respelled = new Cartridge("app_sf_rest", absolute, null);
+        Cartridge other = new Cartridge("app_sf_rest", "/elsewhere/app_sf_rest", null);
+        PhaseJournal journal = new PhaseJournal(sessionDir);
+        journal.phaseFinished(relative, build, PhaseOutcome.SUCCEEDED);
+        journal.close();
+
+        PhaseJournal resumed = new PhaseJournal(sessionDir);
+
+        assertTrue(resumed.isCompleted(respelled, build));
+        // Same name, but a different cartridge
+        assertFalse(resumed.isCompleted(other, build));
+        assertTrue(resumed.hasOutcomes());
+        assertTrue(resumed.hasOutcomes(List.of(other, respelled)));
+        assertFalse(resumed.hasOutcomes(List.of(other)));
+        resumed.close();
+    }
+}
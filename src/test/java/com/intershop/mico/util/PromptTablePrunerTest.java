@@ -0,0 +1,110 @@
+package com.intershop.mico.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PromptTablePrunerTest {
+
+    private static final String INSTRUCTIONS = """
+        # Dependencies
+        | `com.intershop.unmarked.*` | `cartridge("com.intershop.platform:unmarked")` |
+
+        <!-- mico:prune-by-imports -->
+        | Import Pattern | Dependency |
+        |----------------|------------|
+        | `com.intershop.beehive.core.*` | `cartridge("com.intershop.platform:core")` |
+        | `com.intershop.component.order.*` | `cartridge("com.intershop.business:bc_order")` |
+        | `com.intershop.component.basket.*`, `com.intershop.component.cart.*` | `cartridge("com.intershop.business:bc_basket")` |
+        | `com.google.common.*` | `implementation("com.google.guava:guava")` |
+        | `org.apache.commons.lang.StringUtils` | `implementation("org.apache.commons:commons-lang3")` |
+
+        Rows of other cartridges are not needed.
+          <!-- mico:end -->
+        Keep `com.intershop.beehive.app.*` in mind.
+        """;
+
+    @TempDir
+    Path dir;
+
+    private PromptTablePruner pruner;
+
+    @BeforeEach
+    void loadCartridgePackages() throws IOException {
+        Path cartridgePackages = dir.resolve("cartridge-packages.properties");
+        Files.writeString(cartridgePackages, """
+            # group:artifact = package
+            com.intershop.business:bc_order = com.intershop.component.order
+            com.intershop.business:bc_order = com.intershop.adapter.order
+            ! comment
+            com.intershop.business:bc_basket = com.intershop.component.basket
+            """);
+        pruner = new PromptTablePruner(cartridgePackages);
+    }
+
+    @Test
+    void keepsRowsMatchingAnImportAndStripsTheMarkers() {
+        PromptTablePruner.Result result = pruner.prune(INSTRUCTIONS, List.of(
+            "com.intershop.beehive.core.capi.log.Logger",
+            "com.intershop.component.cart.capi.Cart",
+            "org.apache.commons.lang.StringUtils"));
+
+        assertEquals("""
+            # Dependencies
+            | `com.intershop.unmarked.*` | `cartridge("com.intershop.platform:unmarked")` |
+
+            | Import Pattern | Dependency |
+            |----------------|------------|
+            | `com.intershop.beehive.core.*` | `cartridge("com.intershop.platform:core")` |
+            | `com.intershop.component.basket.*`, `com.intershop.component.cart.*` | `cartridge("com.intershop.business:bc_basket")` |
+            | `org.apache.commons.lang.StringUtils` | `implementation("org.apache.commons:commons-lang3")` |
+
+            Rows of other cartridges are not needed.
+            Keep `com.intershop.beehive.app.*` in mind.
+            """, result.text());
+        assertEquals(3, result.keptRows());
+        assertEquals(2, result.removedRows());
+    }
+
+    @Test
+    void keepsRowsThroughThePackagesOfTheirArtifact() {
+        PromptTablePruner.Result result = pruner.prune(INSTRUCTIONS, Set.of("com.intershop.adapter.order.OrderExport"));
+
+        assertTrue(result.text().contains("`cartridge(\"com.intershop.business:bc_order\")`"), result.text());
+        assertFalse(result.text().contains("com.intershop.platform:core"), result.text());
+        assertEquals(1, result.keptRows());
+        assertEquals(4, result.removedRows());
+    }
+
+    @Test
+    void matchesWholePackageSegmentsOnly() {
+        PromptTablePruner.Result result = pruner.prune(INSTRUCTIONS, Set.of(
+            "com.intershop.beehive.corex.Foo",
+            "com.google.commonx.Bar"));
+
+        assertEquals(0, result.keptRows());
+        assertEquals(5, result.removedRows());
+        assertTrue(result.text().contains("| Import Pattern | Dependency |"));
+        assertTrue(result.text().contains("`com.intershop.unmarked.*`"));
+    }
+
+    @Test
+    void leavesTextWithoutSectionsUnchanged() {
+        String text = "| `com.google.common.*` | `implementation(\"com.google.guava:guava\")` |\n";
+
+        PromptTablePruner.Result result = pruner.prune(text, Set.of());
+
+        assertFalse(PromptTablePruner.hasSections(text));
+        assertEquals(new PromptTablePruner.Result(text, 0, 0), result);
+    }
+}
@@ -0,0 +1,113 @@
+package com.intershop.mico.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SourceFilterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void excludesBuildOutputAtTheRootOnly() {
+        SourceFilter filter = SourceFilter.defaults();
+        Path root = dir.resolve("app_sf_rest");
+
+        assertTrue(filter.isExcluded(root, root.resolve("build")));
+        assertTrue(filter.isExcluded(root, root.resolve("build/classes/java/main/Foo.class")));
+        assertTrue(filter.isExcluded(root, root.resolve(".gradle")));
+        assertFalse(filter.isExcluded(root, root.resolve("src/main/java/com/example/build")));
+        assertFalse(filter.isExcluded(root, root.resolve("src/main/java/com/example/build/Builder.java")));
+        assertFalse(filter.isExcluded(root, root));
+    }
+
+    @Test
+    void matchesGlobsWithoutSlashAgainstNamesAnywhere() {
+        SourceFilter filter = new SourceFilter(List.of("*_Generated.java", "node_modules"), SourceFilter.DEFAULT_MAX_FILE_SIZE);
+        Path root = dir.resolve("app_sf_rest");
+
+        assertTrue(filter.isExcluded(root, root.resolve("Foo_Generated.java")));
+        assertTrue(filter.isExcluded(root, root.resolve("src/main/java/com/example/Foo_Generated.java")));
+        assertTrue(filter.isExcluded(root, root.resolve("staticfiles/node_modules")));
+        assertFalse(filter.isExcluded(root, root.resolve("src/main/java/com/example/Foo.java")));
+        // The defaults are replaced
+        assertFalse(filter.isExcluded(root, root.resolve("build")));
+    }
+
+    @Test
+    void walksSourcesAndLinksToFilesButNotLinksToDirectories() throws IOException {
+        Path root = dir.resolve("app_sf_rest");
+        Path sources = Files.createDirectories(root.resolve("src/main/java/com/example"));
+        Files.writeString(sources.resolve("Foo.java"), "class Foo {}");
+        Files.createDirectories(sources.resolve("build"));
+        Files.writeString(sources.resolve("build/Builder.java"), "class Builder {}");
+        Files.createDirectories(root.resolve("build/classes"));
+        Files.writeString(root.resolve("build/classes/Foo.class"), "");
+        Files.createDirectories(root.resolve("staticfiles/node_modules/lib"));
+        Files.writeString(root.resolve("staticfiles/node_modules/lib/index.js"), "");
+        Path outside = Files.createDirectories(dir.resolve("shared"));
+        Files.writeString(outside.resolve("Shared.java"), "class Shared {}");
+        Files.createSymbolicLink(sources.resolve("Linked.java"), outside.resolve("Shared.java"));
+        Files.createSymbolicLink(sources.resolve("linked"), outside);
+        Files.createSymbolicLink(sources.resolve("Broken.java"), outside.resolve("Missing.java"));
+        List<String> directories = new ArrayList<>();
+        Map<String, Long> files = new TreeMap<>();
+
+        SourceFilter.defaults().walk(root, root,
+            (directory, attrs) -> directories.add(root.relativize(directory).toString()),
+            (file, attrs) -> files.put(root.relativize(file).toString(), attrs.size()));
+
+        assertEquals(Map.of(
+            "src/main/java/com/example/Foo.java", 12L,
+            "src/main/java/com/example/Linked.java", 15L,
+            "src/main/java/com/example/build/Builder.java", 16L), files);
+        assertTrue(directories.contains(""));
+        assertTrue(directories.contains("src/main/java/com/example/build"));
+        assertFalse(directories.contains("build"));
+        assertFalse(directories.contains("staticfiles/node_modules"));
+        assertFalse(directories.contains("src/main/java/com/example/linked"));
+    }
+
+    @Test
+    void skipsOversizedJavaFilesWithAWarning() {
+        SourceFilter filter = new SourceFilter(List.of(), 2048);
+        Path root = dir.resolve("app_sf_rest");
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream originalErr = System.err;
+        System.setErr(new PrintStream(err, true, StandardCharsets.UTF_8));
+        try {
+            assertTrue(filter.accepts(root, root.resolve("Small.java"), 2048));
+            assertTrue(filter.accepts(root, root.resolve("data.json"), 4096));
+            assertEquals("", err.toString(StandardCharsets.UTF_8));
+
+            assertFalse(filter.accepts(root, root.resolve("Big.java"), 4097));
+        } finally {
+            System.setErr(originalErr);
+        }
+
+        assertEquals("⚠️ Skipping " + root.resolve("Big.java") + ": 5 KB exceeds the limit of 2 KB",
+            err.toString(StandardCharsets.UTF_8).strip());
+    }
+
+    @Test
+    void rejectsInvalidGlobsAndSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new SourceFilter(List.of("src/[main"), 1024));
+        assertThrows(IllegalArgumentException.class, () -> new SourceFilter(List.of(), 0));
+    }
+}